@@ -0,0 +1,84 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Redeeming an authorization code against the in-memory storage with a simulated Cassandra latency:
+ * the previous read-then-delete sequence versus the single round trip of the current services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationCodeBenchmark {
+
+    @Param({"PT0.001S"})
+    public String latency;
+
+    private InMemoryStorage storage;
+
+    private InMemoryAuthorizationCodeService service;
+
+    private String code;
+
+    @Setup
+    public void setUp() {
+        storage = new InMemoryStorage(Duration.parse(latency));
+        service = new InMemoryAuthorizationCodeService();
+        ReflectionTestUtils.setField(service, "storage", storage);
+    }
+
+    @Setup(Level.Invocation)
+    public void createCode() {
+        code = service.create("mystate", "myclient", "/services", ImmutableSet.of("uid"),
+                ImmutableMap.of("sub", "foo"), URI.create("https://myapp.example.org/callback"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        storage.shutdown();
+    }
+
+    /**
+     * The way codes were redeemed before, kept as a baseline: read, then delete in a second round trip
+     * (the first statement only stands in for the read).
+     */
+    @Benchmark
+    public Optional<AuthorizationCode> readThenDelete() {
+        storage.execute(() -> code);
+        return service.invalidate(code);
+    }
+
+    @Benchmark
+    public Optional<AuthorizationCode> consume() {
+        return service.invalidate(code);
+    }
+
+    @Benchmark
+    public Optional<AuthorizationCode> consumeAsync() {
+        return service.invalidateAsync(code).join();
+    }
+}
@@ -0,0 +1,105 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.security.Security;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Signing a typical access token, with the keys from src/test/resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTIssuerBenchmark {
+
+    private static final String REALM = "/services";
+
+    private static final Map<String, String> KEY_FILES = ImmutableMap.of(
+            "RS256", "test-rs256-2048.pem",
+            "ES256", "test-es256-prime256v1.pem",
+            "ES512", "test-es512-secp521r1.pem");
+
+    @Param({"RS256", "ES256", "ES512"})
+    public String algorithm;
+
+    private OIDCKeyHolder.Signer signer;
+
+    private final Set<String> scopes = ImmutableSet.of("uid", "openid", "cn");
+
+    @Setup
+    public void setUp() throws IOException {
+        // as in Main, the EC keys are parsed by BouncyCastle
+        Security.addProvider(new BouncyCastleProvider());
+
+        final KeyPairData storedKey = KeyPairData.builder()
+                .kid("benchmark-" + algorithm)
+                .realms(ImmutableSet.of(REALM))
+                .privateKeyPem(Resources.toString(Resources.getResource(KEY_FILES.get(algorithm)), UTF_8))
+                .algorithm(algorithm)
+                .validFrom(0)
+                .build();
+
+        final OIDCKeyHolder keyHolder = Mockito.spy(new OIDCKeyHolder());
+        Mockito.doReturn(singletonList(storedKey)).when(keyHolder).getStoredKeys();
+        keyHolder.checkKeys();
+        signer = keyHolder.getCurrentSigner(REALM).orElseThrow(() -> new IllegalStateException("key not loaded"));
+    }
+
+    /**
+     * The way tokens were serialized before JWTClaimsWriter, kept as a baseline.
+     */
+    @Benchmark
+    public String claimsSet() throws JOSEException {
+        final long now = System.currentTimeMillis();
+        final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("B")
+                .expirationTime(new Date(now + 3600_000))
+                .issueTime(new Date(now))
+                .claim("realm", REALM)
+                .claim("scope", scopes)
+                .claim("sub", "stups_my-app")
+                .build();
+        return JWTIssuer.getSignedJWT(claims, signer);
+    }
+
+    @Benchmark
+    public String claimsWriter() throws JOSEException {
+        final long now = System.currentTimeMillis();
+        final JWTClaimsWriter claims = JWTClaimsWriter.get()
+                .claim("iss", "B")
+                .claim("exp", (now + 3600_000) / 1000)
+                .claim("iat", now / 1000)
+                .claim("realm", REALM)
+                .claim("scope", scopes)
+                .claim("sub", "stups_my-app");
+        return JWTIssuer.getSignedJWT(claims, signer);
+    }
+}
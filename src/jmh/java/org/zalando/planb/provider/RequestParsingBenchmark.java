@@ -0,0 +1,113 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The small per-request steps: client credentials, scopes, realm lookup and metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    private final Optional<String> authorization = Optional.of("Basic "
+            + Base64.getEncoder().encodeToString("stups_my-app_0123456789:5ecr3t-p4ssw0rd-with-some-length".getBytes(UTF_8)));
+
+    private final Optional<String> scope = Optional.of("uid openid cn email profile");
+
+    private final Set<String> scopes = ScopeService.split(scope);
+
+    private final Set<String> defaultScopes = ScopeService.split("uid openid cn");
+
+    private final Set<String> clientScopes = ImmutableSet.of("email", "profile");
+
+    private final RealmIndex realms = new RealmIndex(ImmutableSet.of("/services", "/customers", "/employees", "/guests"));
+
+    private final String host = "planb-provider.customers.example.org";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private TokenMetrics tokenMetrics;
+
+    private final String realmName = "/customers";
+
+    @Setup
+    public void setUp() {
+        final RealmProperties realmProperties = new RealmProperties();
+        realmProperties.getNames().addAll(ImmutableSet.of("/services", "/customers", "/employees", "/guests"));
+        tokenMetrics = new TokenMetrics(metricRegistry, realmProperties);
+        tokenMetrics.setup();
+    }
+
+    @Benchmark
+    public ClientCredentials getClientCredentials() {
+        return OIDCController.getClientCredentials(authorization);
+    }
+
+    @Benchmark
+    public Set<String> splitScopes() {
+        return ScopeService.split(scope);
+    }
+
+    @Benchmark
+    public String joinScopes() {
+        return ScopeService.join(scopes);
+    }
+
+    @Benchmark
+    public Set<String> getMissingScopes() {
+        return ScopeService.getMissingScopes(scopes, defaultScopes, clientScopes);
+    }
+
+    /**
+     * Every request has its own Host header string (without a cached hash code)
+     */
+    @Benchmark
+    public Optional<String> findRealmNameInHost() {
+        return realms.findRealmNameInHost(new String(host));
+    }
+
+    @Benchmark
+    public Optional<String> findRealmNameInUnknownHost() {
+        return realms.findRealmNameInHost(new String("planb-provider.example.org"));
+    }
+
+    @Benchmark
+    public Optional<String> findRealmNameInRealm() {
+        return realms.findRealmNameInRealm("customers");
+    }
+
+    /**
+     * How the token endpoint recorded its timers before {@link TokenMetrics}
+     */
+    @Benchmark
+    public void finishMetricByName() {
+        new Metric(metricRegistry).start().finish("planb.provider.access_token." + Metric.trimSlash(realmName) + ".success");
+    }
+
+    @Benchmark
+    public void finishResolvedMetric() {
+        new Metric(metricRegistry).start().finish(tokenMetrics.accessTokenSuccess(realmName));
+    }
+}
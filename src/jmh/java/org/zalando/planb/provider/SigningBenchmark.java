@@ -0,0 +1,122 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.util.Base64URL;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.security.Security;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Signing throughput on one thread and on all cores, with Nimbus' shared JWSSigner (which gets a new Signature for
+ * every token) and with the per-thread Signature of OIDCKeyHolder.Signer, for each JCA provider.
+ *
+ * The "allThreads" score should be about "singleThread" times the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBenchmark {
+
+    private static final String REALM = "/services";
+
+    private static final Map<String, String> KEY_FILES = ImmutableMap.of(
+            "RS256", "test-rs256-2048.pem",
+            "ES256", "test-es256-prime256v1.pem",
+            "ES512", "test-es512-secp521r1.pem");
+
+    // a typical access token
+    private static final byte[] SIGNING_INPUT = ("eyJraWQiOiJ0ZXN0a2V5IiwiYWxnIjoiRVMyNTYifQ." +
+            "eyJzdWIiOiJzdHVwc19teS1hcHAiLCJyZWFsbSI6Ii9zZXJ2aWNlcyIsInNjb3BlIjpbInVpZCIsIm9wZW5pZCIsImNuIl0sIml" +
+            "zcyI6IkIiLCJleHAiOjE0NTgwMDM2MDAsImlhdCI6MTQ1ODAwMDAwMH0").getBytes(US_ASCII);
+
+    @Param({"RS256", "ES256", "ES512"})
+    public String algorithm;
+
+    /**
+     * "default" is the first provider supporting the key, "SUN" is SunRsaSign or SunEC
+     */
+    @Param({"default", "SUN", "BC"})
+    public String provider;
+
+    private OIDCKeyHolder.Signer signer;
+
+    @Setup
+    public void setUp() throws IOException {
+        // as in Main, the EC keys are parsed by BouncyCastle
+        Security.addProvider(new BouncyCastleProvider());
+
+        final boolean ec = JWSAlgorithm.Family.EC.contains(JWSAlgorithm.parse(algorithm));
+        final String providerName = provider.equals("SUN") ? (ec ? "SunEC" : "SunRsaSign") : provider;
+        final SignatureProperties signatureProperties = new SignatureProperties();
+        if (!providerName.equals("default")) {
+            signatureProperties.setEcProvider(providerName);
+            signatureProperties.setRsaProvider(providerName);
+        }
+
+        final KeyPairData storedKey = KeyPairData.builder()
+                .kid("benchmark-" + algorithm)
+                .realms(ImmutableSet.of(REALM))
+                .privateKeyPem(Resources.toString(Resources.getResource(KEY_FILES.get(algorithm)), UTF_8))
+                .algorithm(algorithm)
+                .validFrom(0)
+                .build();
+
+        final OIDCKeyHolder keyHolder = Mockito.spy(new OIDCKeyHolder());
+        ReflectionTestUtils.setField(keyHolder, "signatureProperties", signatureProperties);
+        Mockito.doReturn(singletonList(storedKey)).when(keyHolder).getStoredKeys();
+        keyHolder.checkKeys();
+        signer = keyHolder.getCurrentSigner(REALM).orElseThrow(() -> new IllegalStateException("key not loaded"));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Base64URL jwsSignerSingleThread() throws JOSEException {
+        return signer.getJWSSigner().sign(signer.getHeader(), SIGNING_INPUT);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Base64URL jwsSignerAllThreads() throws JOSEException {
+        return signer.getJWSSigner().sign(signer.getHeader(), SIGNING_INPUT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Base64URL signatureSingleThread() throws JOSEException {
+        return signer.sign(SIGNING_INPUT);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Base64URL signatureAllThreads() throws JOSEException {
+        return signer.sign(SIGNING_INPUT);
+    }
+}
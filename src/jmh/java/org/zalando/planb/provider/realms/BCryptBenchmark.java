@@ -0,0 +1,45 @@
+package org.zalando.planb.provider.realms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Cost of a single password check, depending on the BCrypt cost factor of the stored hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    private static final String PASSWORD = "my-secret-password";
+
+    @Param({"4", "8", "10", "12"})
+    public int cost;
+
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        passwordHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public boolean checkBCryptPassword() {
+        return Realm.checkBCryptPassword(PASSWORD, passwordHash);
+    }
+}
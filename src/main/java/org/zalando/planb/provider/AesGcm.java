@@ -0,0 +1,63 @@
+package org.zalando.planb.provider;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Authenticated encryption with AES/GCM, the output is a random IV followed by the ciphertext (including the tag).
+ */
+final class AesGcm {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private AesGcm() {
+    }
+
+    /**
+     * @param base64Key Base64 encoded AES key (128, 192 or 256 bit)
+     */
+    static SecretKeySpec key(String base64Key) {
+        return new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+    }
+
+    /**
+     * @param associatedData authenticated, but not encrypted, e.g. to bind the ciphertext to its purpose
+     */
+    static byte[] encrypt(SecretKeySpec key, byte[] associatedData, byte[] plaintext) throws GeneralSecurityException {
+        final byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        final byte[] encrypted = cipher(Cipher.ENCRYPT_MODE, key, iv, associatedData).doFinal(plaintext);
+
+        final byte[] data = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+        System.arraycopy(encrypted, 0, data, IV_LENGTH, encrypted.length);
+        return data;
+    }
+
+    /**
+     * @throws GeneralSecurityException if the data was not encrypted with the same key and associated data,
+     *                                  or was modified
+     */
+    static byte[] decrypt(SecretKeySpec key, byte[] associatedData, byte[] data) throws GeneralSecurityException {
+        if (data.length < IV_LENGTH) {
+            throw new GeneralSecurityException("Encrypted data too short");
+        }
+        return cipher(Cipher.DECRYPT_MODE, key, Arrays.copyOf(data, IV_LENGTH), associatedData)
+                .doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+    }
+
+    private static Cipher cipher(int mode, SecretKeySpec key, byte[] iv, byte[] associatedData) throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        cipher.updateAAD(associatedData);
+        return cipher;
+    }
+}
@@ -0,0 +1,102 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.MDC;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Request handling is asynchronous (Cassandra reads complete on driver I/O threads),
+ * everything which still blocks (BCrypt, upstream realms, signing, writes) runs on the bounded worker pool.
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncConfig.AsyncProperties.class)
+public class AsyncConfig {
+
+    public static final String WORKER_EXECUTOR = "workerExecutor";
+
+    private static final String METRIC_PREFIX = "planb.provider.worker.";
+
+    @Bean(name = WORKER_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService workerExecutor(AsyncProperties asyncProperties, MetricRegistry metricRegistry) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(asyncProperties.getPoolSize(), asyncProperties.getPoolSize(),
+                0, MILLISECONDS,
+                new ArrayBlockingQueue<>(asyncProperties.getQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("worker-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy()) {
+            @Override
+            public void execute(Runnable command) {
+                super.execute(withCopyOfMDC(command));
+            }
+        };
+
+        metricRegistry.register(METRIC_PREFIX + "queue", (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register(METRIC_PREFIX + "active", (Gauge<Integer>) executor::getActiveCount);
+        return executor;
+    }
+
+    /**
+     * @return the given task, running with the MDC (e.g. the request info for log lines) of the submitting thread
+     */
+    static Runnable withCopyOfMDC(Runnable task) {
+        final Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            final Map<String, String> previous = MDC.getCopyOfContextMap();
+            setContextMap(context);
+            try {
+                task.run();
+            } finally {
+                setContextMap(previous);
+            }
+        };
+    }
+
+    private static void setContextMap(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    @ConfigurationProperties(prefix = "async")
+    static class AsyncProperties {
+
+        /**
+         * Number of threads for blocking request steps, replaces the servlet threads which used to do this work
+         */
+        private int poolSize = 100;
+
+        /**
+         * Number of steps allowed to wait for a free worker, further requests are rejected with 503
+         */
+        private int queueSize = 1000;
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+    }
+}
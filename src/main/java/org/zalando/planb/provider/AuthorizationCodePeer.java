@@ -0,0 +1,23 @@
+package org.zalando.planb.provider;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An instance owning some of the authorization codes, see {@link ShardedAuthorizationCodeService}
+ */
+public interface AuthorizationCodePeer {
+
+    /**
+     * @param expires expiry date in seconds since epoch
+     * @return false if the peer already knows the code
+     */
+    boolean store(AuthorizationCode code, long expires);
+
+    /**
+     * @return the code's data, if it exists, did not expire and was not used yet
+     */
+    Optional<AuthorizationCode> consume(String code);
+
+    CompletableFuture<Optional<AuthorizationCode>> consumeAsync(String code);
+}
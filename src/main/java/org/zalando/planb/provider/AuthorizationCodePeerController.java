@@ -0,0 +1,64 @@
+package org.zalando.planb.provider;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Optional;
+
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.ResponseEntity.status;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.CONSUME;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.STORE;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.consumed;
+
+/**
+ * Lets the other instances store and redeem the codes owned by this instance, see {@link ShardedAuthorizationCodeService}.
+ * The endpoints are not protected by OAuth, requests must be encrypted with the shared authorizationCode.key instead.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "authorizationCode", name = "sharded", havingValue = "true")
+public class AuthorizationCodePeerController {
+
+    static final String STORE_PATH = "/internal/authorization-codes/store";
+    static final String CONSUME_PATH = "/internal/authorization-codes/consume";
+
+    private final ShardedAuthorizationCodeStore store;
+
+    private final SecretKeySpec key;
+
+    @Autowired
+    public AuthorizationCodePeerController(ShardedAuthorizationCodeService authorizationCodeService, AuthorizationCodeProperties properties) {
+        this.store = authorizationCodeService.getStore();
+        // without peers nobody is supposed to call us
+        this.key = properties.getKey() != null && !properties.getPeers().isEmpty() ? AesGcm.key(properties.getKey()) : null;
+    }
+
+    @RequestMapping(value = STORE_PATH, method = POST)
+    public ResponseEntity<Void> store(@RequestBody byte[] body) {
+        final AuthorizationCodePeerMessage message = decrypt(STORE, body);
+        return status(store.put(message.toAuthorizationCode(), message.expires) ? HttpStatus.CREATED : HttpStatus.CONFLICT).build();
+    }
+
+    @RequestMapping(value = CONSUME_PATH, method = POST)
+    public ResponseEntity<byte[]> consume(@RequestBody byte[] body) {
+        final String code = decrypt(CONSUME, body).code;
+        return store.consume(code)
+                .map(authorizationCode -> ResponseEntity.ok()
+                        .contentType(APPLICATION_OCTET_STREAM)
+                        .body(AuthorizationCodePeerMessage.of(authorizationCode).encrypt(key, consumed(code))))
+                .orElseGet(() -> status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    private AuthorizationCodePeerMessage decrypt(String type, byte[] body) {
+        return Optional.ofNullable(key)
+                .flatMap(k -> AuthorizationCodePeerMessage.decrypt(k, type, body))
+                .orElseThrow(() -> new RestException(403, "Invalid authorization code message", null, "access_denied", "Invalid message"));
+    }
+}
@@ -0,0 +1,124 @@
+package org.zalando.planb.provider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * What instances tell each other about a code, sent as JSON encrypted with the shared authorizationCode.key.
+ * Only instances knowing the key can create valid messages, and the message type is part of the associated data,
+ * so a message can not be replayed as another type (e.g. a response as a request).
+ */
+class AuthorizationCodePeerMessage {
+
+    static final String STORE = "store";
+    static final String CONSUME = "consume";
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthorizationCodePeerMessage.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // how long a consume request or its response is accepted (a stored code is accepted until it expires)
+    private static final long VALIDITY = 10;
+
+    public String code;
+    public String state;
+    public String clientId;
+    public String realm;
+    public Set<String> scopes;
+    public Map<String, String> claims;
+    public String redirectUri;
+    /**
+     * Expiry of the message in seconds since epoch
+     */
+    public long expires;
+
+    /**
+     * @return a consume request
+     */
+    static AuthorizationCodePeerMessage of(String code) {
+        final AuthorizationCodePeerMessage message = new AuthorizationCodePeerMessage();
+        message.code = code;
+        message.expires = System.currentTimeMillis() / 1000 + VALIDITY;
+        return message;
+    }
+
+    /**
+     * @return the response to a consume request
+     */
+    static AuthorizationCodePeerMessage of(AuthorizationCode authorizationCode) {
+        return of(authorizationCode, System.currentTimeMillis() / 1000 + VALIDITY);
+    }
+
+    /**
+     * @return a store request, valid as long as the code
+     */
+    static AuthorizationCodePeerMessage of(AuthorizationCode authorizationCode, long expires) {
+        final AuthorizationCodePeerMessage message = new AuthorizationCodePeerMessage();
+        message.code = authorizationCode.getCode();
+        message.state = authorizationCode.getState();
+        message.clientId = authorizationCode.getClientId();
+        message.realm = authorizationCode.getRealm();
+        message.scopes = authorizationCode.getScopes();
+        message.claims = authorizationCode.getClaims();
+        message.redirectUri = authorizationCode.getRedirectUri().toString();
+        message.expires = expires;
+        return message;
+    }
+
+    /**
+     * The response to a consume request is bound to the requested code
+     */
+    static String consumed(String code) {
+        return "consumed:" + code;
+    }
+
+    AuthorizationCode toAuthorizationCode() {
+        return AuthorizationCode.builder()
+                .code(code)
+                .state(state)
+                .clientId(clientId)
+                .realm(realm)
+                .scopes(scopes)
+                .claims(claims)
+                .redirectUri(URI.create(redirectUri))
+                .build();
+    }
+
+    byte[] encrypt(SecretKeySpec key, String type) {
+        try {
+            return AesGcm.encrypt(key, associatedData(type), OBJECT_MAPPER.writeValueAsBytes(this));
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt authorization code message", e);
+        }
+    }
+
+    /**
+     * @return the message, if it was encrypted with the key for the given type and did not expire
+     */
+    static Optional<AuthorizationCodePeerMessage> decrypt(SecretKeySpec key, String type, byte[] data) {
+        try {
+            final byte[] json = AesGcm.decrypt(key, associatedData(type), data);
+            return Optional.of(OBJECT_MAPPER.readValue(json, AuthorizationCodePeerMessage.class))
+                    .filter(message -> message.expires > System.currentTimeMillis() / 1000);
+        } catch (GeneralSecurityException | IOException e) {
+            LOG.warn("Invalid authorization code message: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] associatedData(String type) {
+        return ("planb-authorization-code-peer-v1:" + type).getBytes(UTF_8);
+    }
+}
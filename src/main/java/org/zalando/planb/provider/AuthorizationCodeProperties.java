@@ -0,0 +1,58 @@
+package org.zalando.planb.provider;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "authorizationCode")
+public class AuthorizationCodeProperties {
+
+    /**
+     * Issue encrypted codes carrying all their data instead of storing them in the authorization_code table,
+     * only their IDs are stored (to allow a single use)
+     */
+    private boolean stateless = false;
+
+    /**
+     * Base64 encoded AES key (128 or 256 bit) to encrypt stateless codes, must be the same on all instances
+     */
+    private String key;
+
+    /**
+     * Keep codes in memory, each code on the instance which owns it (picked by its hash), instead of Cassandra
+     */
+    private boolean sharded = false;
+
+    /**
+     * Base URLs of all instances (e.g. "http://10.0.0.1:8080") in the same order on every instance,
+     * empty if codes are only kept by this instance. Requires the key to authenticate the instances.
+     */
+    private List<String> peers = new ArrayList<>();
+
+    /**
+     * URL of this instance, as it appears in the peers
+     */
+    private String self;
+
+    /**
+     * Number of independently locked partitions of the in-memory codes
+     */
+    private int shards = 16;
+
+    /**
+     * Connect and read timeout for calls to other instances
+     */
+    private Duration peerTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Maximum number of (kept-alive) connections to each other instance, further calls wait up to the peer timeout
+     * for a free connection
+     */
+    private int peerMaxConnections = 50;
+}
@@ -0,0 +1,20 @@
+package org.zalando.planb.provider;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remembers the stateless authorization codes which were redeemed already, until they expire.
+ */
+public interface AuthorizationCodeReplayStore {
+
+    /**
+     * @return true if the code was not used before (it is marked as used now), false otherwise
+     */
+    boolean markUsed(String id, Instant expires);
+
+    /**
+     * Non-blocking variant of {@link #markUsed(String, Instant)}
+     */
+    CompletableFuture<Boolean> markUsedAsync(String id, Instant expires);
+}
@@ -0,0 +1,33 @@
+package org.zalando.planb.provider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public interface AuthorizationCodeService {
+
+    /**
+     * http://tools.ietf.org/html/rfc6749#section-4.1.2 says:
+     * The authorization code MUST expire shortly after it is issued to mitigate the risk of leaks.
+     * A maximum authorization code lifetime of 10 minutes is RECOMMENDED.
+     * 60 seconds sounds like enough time to complete the authorization code grant flow.
+     */
+    Duration LIFETIME = Duration.ofSeconds(60);
+
+    String create(String state, String clientId, String realm, Set<String> scopes, Map<String, String> claims, URI redirectUri);
+
+    /**
+     * Redeem the code, it can only be used once.
+     *
+     * @return the code's data, if it exists and did not expire yet
+     */
+    Optional<AuthorizationCode> invalidate(String code);
+
+    /**
+     * Non-blocking variant of {@link #invalidate(String)}, the code is only returned after it was marked as used.
+     */
+    CompletableFuture<Optional<AuthorizationCode>> invalidateAsync(String code);
+}
@@ -5,31 +5,39 @@ import com.nimbusds.jose.JOSEException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.client.utils.URIBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.ExtendedModelMap;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.RedirectView;
 import org.zalando.planb.provider.realms.ClientRealm;
 import org.zalando.planb.provider.realms.UserRealm;
 import org.zalando.planb.provider.realms.UserRealmAuthenticationException;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static java.lang.String.format;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.zalando.planb.provider.CompletableFutures.toDeferredResult;
+import static org.zalando.planb.provider.CompletableFutures.unchecked;
+import static org.zalando.planb.provider.CompletableFutures.unwrap;
 import static org.zalando.planb.provider.OIDCController.getRealmName;
 import static org.zalando.planb.provider.realms.ClientRealmAuthenticationException.clientNotFound;
 
@@ -90,7 +98,7 @@ public class AuthorizeController {
     private JWTIssuer jwtIssuer;
 
     @Autowired
-    private CassandraAuthorizationCodeService cassandraAuthorizationCodeService;
+    private AuthorizationCodeService authorizationCodeService;
 
     @Autowired
     private ConsentService consentService;
@@ -98,51 +106,58 @@ public class AuthorizeController {
     @Autowired
     private ScopeService scopeService;
 
+    @Autowired
+    @Qualifier(AsyncConfig.WORKER_EXECUTOR)
+    private Executor workerExecutor;
+
     /**
      * Authorization Request, see http://tools.ietf.org/html/rfc6749#section-4.1.1.
      */
     @RequestMapping(method = RequestMethod.GET)
-    String showAuthorizationForm(@RequestParam(value = PARAM_REALM) final Optional<String> realmNameParam,
-                                 @RequestParam(value = PARAM_RESPONSE_TYPE) final String responseType,
-                                 @RequestParam(value = PARAM_CLIENT_ID) final String clientId,
-                                 @RequestParam(value = PARAM_SCOPE) final Optional<String> scope,
-                                 @RequestParam(value = PARAM_REDIRECT_URI) final Optional<URI> redirectUriParam,
-                                 @RequestParam(value = PARAM_STATE) final Optional<String> state,
-                                 @RequestParam(value = PARAM_ERROR) final Optional<String> error,
-                                 @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader, final Model model) {
+    DeferredResult<ModelAndView> showAuthorizationForm(@RequestParam(value = PARAM_REALM) final Optional<String> realmNameParam,
+                                                       @RequestParam(value = PARAM_RESPONSE_TYPE) final String responseType,
+                                                       @RequestParam(value = PARAM_CLIENT_ID) final String clientId,
+                                                       @RequestParam(value = PARAM_SCOPE) final Optional<String> scope,
+                                                       @RequestParam(value = PARAM_REDIRECT_URI) final Optional<URI> redirectUriParam,
+                                                       @RequestParam(value = PARAM_STATE) final Optional<String> state,
+                                                       @RequestParam(value = PARAM_ERROR) final Optional<String> error,
+                                                       @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader) {
 
         checkResponseType(responseType);
 
         final String realmName = getRealmName(realms, realmNameParam, hostHeader);
         ClientRealm clientRealm = realms.getClientRealm(realmName);
-        final ClientData clientData = clientRealm.get(clientId).orElseThrow(() -> clientNotFound(clientId, realmName));
-
-        // Either use passed Redirect URI or get configured Redirect URI
-        // "redirect_uri" parameter is OPTIONAL according to http://tools.ietf.org/html/rfc6749#section-4.1.1
-        // NOTE 1: we use "findFirst", i.e. if no parameter was passed and the client has multiple Redirect URIs
-        // configured, it will take a "random" one
-        // NOTE 2: not passing the "redirect_uri" parameter allows "snooping" the configured Redirect URI(s) for known
-        // client IDs --- client IDs should be unpredictable to prevent this
-        final URI redirectUri = redirectUriParam
-                .orElseGet(() ->
-                        clientData
-                                .getRedirectUris()
-                                .stream()
-                                .findFirst()
-                                .map(URI::create)
-                                .orElseThrow(() ->
-                                        new BadRequestException("Missing redirect_uri",
-                                                "invalid_request", "Missing redirect_uri")));
-
-        validateRedirectUri(realmName, clientId, clientData, redirectUri);
-
-        updateModelForLogin(model, responseType, realmName, clientId, scope, state, redirectUri, error);
-
-        return LOGIN_FORM;
+        return toDeferredResult(clientRealm.getAsync(clientId).thenApply(client -> {
+            final ClientData clientData = client.orElseThrow(() -> clientNotFound(clientId, realmName));
+
+            // Either use passed Redirect URI or get configured Redirect URI
+            // "redirect_uri" parameter is OPTIONAL according to http://tools.ietf.org/html/rfc6749#section-4.1.1
+            // NOTE 1: we use "findFirst", i.e. if no parameter was passed and the client has multiple Redirect URIs
+            // configured, it will take a "random" one
+            // NOTE 2: not passing the "redirect_uri" parameter allows "snooping" the configured Redirect URI(s) for known
+            // client IDs --- client IDs should be unpredictable to prevent this
+            final URI redirectUri = redirectUriParam
+                    .orElseGet(() ->
+                            clientData
+                                    .getRedirectUris()
+                                    .stream()
+                                    .findFirst()
+                                    .map(URI::create)
+                                    .orElseThrow(() ->
+                                            new BadRequestException("Missing redirect_uri",
+                                                    "invalid_request", "Missing redirect_uri")));
+
+            validateRedirectUri(realmName, clientId, clientData, redirectUri);
+
+            final Model model = new ExtendedModelMap();
+            updateModelForLogin(model, responseType, realmName, clientId, scope, state, redirectUri, error);
+
+            return new ModelAndView(LOGIN_FORM, model.asMap());
+        }));
     }
 
     @RequestMapping(method = RequestMethod.POST, produces = MediaType.TEXT_HTML_VALUE)
-    ModelAndView authorizeAsModel(
+    DeferredResult<ModelAndView> authorizeAsModel(
             @RequestParam(value = PARAM_RESPONSE_TYPE) final String responseType,
             @RequestParam(value = PARAM_REALM) final Optional<String> realmNameParam,
             @RequestParam(value = PARAM_CLIENT_ID) final String clientId,
@@ -152,31 +167,34 @@ public class AuthorizeController {
             @RequestParam(value = PARAM_USERNAME) final String username,
             @RequestParam(value = PARAM_PASSWORD) final String password,
             @RequestParam(value = PARAM_DECISION) final Optional<String> decision,
-            @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader) throws IOException, URISyntaxException,
-            JOSEException {
-        try {
-            final AuthorizeResponse authorizeResponse = authorizeAsJson(responseType, realmNameParam, clientId, scope,
-                    redirectUri, state, username, password, decision, hostHeader);
-
-            return authorizeResponse.isConsentNeeded() ?
-                    generateConsentScopesView(authorizeResponse) :
-                    generateRedirectView(authorizeResponse);
-        } catch (UserRealmAuthenticationException e) {
-            return generateRedirectViewOnAccessDenied(responseType, realmNameParam, clientId, scope, redirectUri, state);
-        }
-
+            @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader) {
+
+        // resolve now, the request context is not available on the thread completing the future
+        final String loginPath = linkTo(AuthorizeController.class).toUri().getPath();
+
+        return toDeferredResult(authorize(responseType, realmNameParam, clientId, scope,
+                redirectUri, state, username, password, decision, hostHeader)
+                .thenApply(authorizeResponse -> authorizeResponse.isConsentNeeded() ?
+                        generateConsentScopesView(authorizeResponse) :
+                        generateRedirectView(authorizeResponse))
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof UserRealmAuthenticationException) {
+                        return unchecked(() -> generateRedirectViewOnAccessDenied(loginPath, responseType, realmNameParam, clientId, scope, redirectUri, state));
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                }));
     }
 
-    private ModelAndView generateRedirectViewOnAccessDenied(String responseType, Optional<String> realmNameParam,
+    private ModelAndView generateRedirectViewOnAccessDenied(String loginPath, String responseType, Optional<String> realmNameParam,
                                                             String clientId, Optional<String> scope, URI redirectUri,
                                                             Optional<String> state) throws URISyntaxException, JOSEException {
         return new ModelAndView(new RedirectView(
-                generateLoginURIAfterAccessDenied(realmNameParam, responseType, state, clientId, scope, redirectUri).toString()));
+                generateLoginURIAfterAccessDenied(loginPath, realmNameParam, responseType, state, clientId, scope, redirectUri).toString()));
     }
 
     @RequestMapping(method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
-    AuthorizeResponse authorizeAsJson(
+    DeferredResult<AuthorizeResponse> authorizeAsJson(
             @RequestParam(value = PARAM_RESPONSE_TYPE) final String responseType,
             @RequestParam(value = PARAM_REALM) final Optional<String> realmNameParam,
             @RequestParam(value = PARAM_CLIENT_ID) final String clientId,
@@ -186,56 +204,68 @@ public class AuthorizeController {
             @RequestParam(value = PARAM_USERNAME) final String username,
             @RequestParam(value = PARAM_PASSWORD) final String password,
             @RequestParam(value = PARAM_DECISION) final Optional<String> decision,
-            @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader) throws IOException, URISyntaxException,
-            JOSEException {
-
-        checkResponseType(responseType);
+            @RequestHeader(value = HEADER_HOST) final Optional<String> hostHeader) {
 
-        final String realmName = getRealmName(realms, realmNameParam, hostHeader);
-
-        // retrieve realms for the given realm
-        final ClientRealm clientRealm = realms.getClientRealm(realmName);
-        final ClientData clientData = clientRealm.get(clientId).orElseThrow(() -> clientNotFound(clientId, realmName));
-
-        // make sure (again!) that the redirect_uri was configured in the client
-        validateRedirectUri(realmName, clientId, clientData, redirectUri);
-        checkNonConfidentialClientForImplicitCodeGrant(clientId, responseType, clientData.getConfidential());
-
-        final Set<String> scopes = ScopeService.split(scope);
-        final Set<String> defaultScopes = scopeService.getDefaultScopesForClient(clientRealm, clientData);
-        final Set<String> finalScopes = scopes.isEmpty() ? defaultScopes : scopes;
-        // IMPORTANT: make sure that the requested scopes are allowed by the client
-        // (implicit flow does not authenticate the client, so it would not be checked otherwise)
-        clientRealm.validateScopes(clientId, clientData, finalScopes, defaultScopes);
-        final UserRealm userRealm = realms.getUserRealm(realmName);
-
-        URI redirect;
-        try {
-            final Map<String, String> claims = userRealm.authenticate(username, password, finalScopes, defaultScopes);
-            final Optional<Set<String>> consentedScopes = storeOrGetConsentedScopes(decision, username, clientId,
-                    userRealm, finalScopes);
-
-            // no consented scopes -> access was denied
-            if (!consentedScopes.isPresent()) {
-                return noConsentedScopesResponse(responseType, redirectUri, state);
-            }
+        return toDeferredResult(authorize(responseType, realmNameParam, clientId, scope,
+                redirectUri, state, username, password, decision, hostHeader));
+    }
 
-            if (!allScopesAreConsented(consentedScopes, finalScopes)) {
-                // return JSON object with "scopes" property if "Accept" header specifies "application/json"
-                // see http://tools.ietf.org/html/rfc7231#section-5.3.2
-                return generateConsentNeededResponse(clientData, finalScopes, realmName, clientId, redirectUri,
-                        username, password, responseType, state);
-            } else {
-                redirect = generateRedirectURIbasedOnGrantType(responseType, realmName, userRealm, state, clientId, finalScopes, claims, redirectUri);
+    private CompletableFuture<AuthorizeResponse> authorize(final String responseType, final Optional<String> realmNameParam,
+                                                           final String clientId, final Optional<String> scope,
+                                                           final URI redirectUri, final Optional<String> state,
+                                                           final String username, final String password,
+                                                           final Optional<String> decision, final Optional<String> hostHeader) {
+        return CompletableFutures.from(() -> {
+            checkResponseType(responseType);
+
+            final String realmName = getRealmName(realms, realmNameParam, hostHeader);
+
+            // retrieve realms for the given realm
+            final ClientRealm clientRealm = realms.getClientRealm(realmName);
+            final UserRealm userRealm = realms.getUserRealm(realmName);
+
+            return clientRealm.getAsync(clientId).thenCompose(client -> {
+                final ClientData clientData = client.orElseThrow(() -> clientNotFound(clientId, realmName));
+
+                // make sure (again!) that the redirect_uri was configured in the client
+                validateRedirectUri(realmName, clientId, clientData, redirectUri);
+                checkNonConfidentialClientForImplicitCodeGrant(clientId, responseType, clientData.getConfidential());
+
+                final Set<String> scopes = ScopeService.split(scope);
+                final Set<String> defaultScopes = scopeService.getDefaultScopesForClient(clientRealm, clientData);
+                final Set<String> finalScopes = scopes.isEmpty() ? defaultScopes : scopes;
+                // IMPORTANT: make sure that the requested scopes are allowed by the client
+                // (implicit flow does not authenticate the client, so it would not be checked otherwise)
+                clientRealm.validateScopes(clientId, clientData, finalScopes, defaultScopes);
+
+                return userRealm.authenticateAsync(username, password, finalScopes, defaultScopes, workerExecutor)
+                        .thenCompose(claims -> storeOrGetConsentedScopes(decision, username, clientId, userRealm, finalScopes)
+                                .thenApplyAsync(consentedScopes -> {
+                                    // no consented scopes -> access was denied
+                                    if (!consentedScopes.isPresent()) {
+                                        return unchecked(() -> noConsentedScopesResponse(responseType, redirectUri, state));
+                                    }
+
+                                    if (!allScopesAreConsented(consentedScopes, finalScopes)) {
+                                        // return JSON object with "scopes" property if "Accept" header specifies "application/json"
+                                        // see http://tools.ietf.org/html/rfc7231#section-5.3.2
+                                        return generateConsentNeededResponse(clientData, finalScopes, realmName, clientId, redirectUri,
+                                                username, password, responseType, state);
+                                    }
+
+                                    final URI redirect = unchecked(() -> generateRedirectURIbasedOnGrantType(responseType, realmName,
+                                            userRealm, state, clientId, finalScopes, claims, redirectUri));
+                                    return AuthorizeResponse.builder().redirect(redirect.toString()).build();
+                                }, workerExecutor));
+            });
+        }).whenComplete((response, error) -> {
+            final Throwable cause = unwrap(error);
+            if (cause instanceof UserRealmAuthenticationException) {
+                // redirect back to login form with error message
+                final UserRealmAuthenticationException e = (UserRealmAuthenticationException) cause;
+                log.info("{} (status {} / {})", e.getMessage(), e.getStatusCode(), e.getClass().getSimpleName());
             }
-
-        } catch (UserRealmAuthenticationException e) {
-            // redirect back to login form with error message
-            log.info("{} (status {} / {})", e.getMessage(), e.getStatusCode(), e.getClass().getSimpleName());
-            throw e;
-        }
-
-        return AuthorizeResponse.builder().redirect(redirect.toString()).build();
+        });
     }
 
     private void checkResponseType(final String responseType) {
@@ -286,30 +316,24 @@ public class AuthorizeController {
         return PARAM_RESPONSE_TYPE_TOKEN.equals(responseType);
     }
 
-    private Optional<Set<String>> storeOrGetConsentedScopes(final Optional<String> decision, final String username,
-                                                            final String clientId, final UserRealm userRealm, final Set<String> finalScopes) throws URISyntaxException {
-        Optional<Set<String>> consentedScopes = Optional.empty();
-
+    private CompletableFuture<Optional<Set<String>>> storeOrGetConsentedScopes(final Optional<String> decision, final String username,
+                                                                               final String clientId, final UserRealm userRealm, final Set<String> finalScopes) {
         switch (decision.orElse(PARAM_DECISION_DEFAULT)) {
 
             case PARAM_DECISION_ALLOW:
                 // save user consent
-                consentService.store(username, userRealm.getName(), clientId, finalScopes);
-                consentedScopes = Optional.of(finalScopes);
-                break;
+                return consentService.storeAsync(username, userRealm.getName(), clientId, finalScopes)
+                        .thenApply(stored -> Optional.of(finalScopes));
 
             case PARAM_DECISION_DENY:
                 // redirect user to callback URL if decision is "deny" (error=access_denied)
                 // see http://tools.ietf.org/html/rfc6749#section-4.1.2.1
-                break;
+                return CompletableFuture.completedFuture(Optional.empty());
 
             default:
-                consentedScopes = Optional.of(consentService.getConsentedScopes(username, userRealm.getName(),
-                        clientId));
-                break;
+                return consentService.getConsentedScopesAsync(username, userRealm.getName(), clientId)
+                        .thenApply(Optional::of);
         }
-
-        return consentedScopes;
     }
 
     private ModelAndView generateConsentScopesView(final AuthorizeResponse authorizeResponse) {
@@ -360,7 +384,7 @@ public class AuthorizeController {
     private URI generateCodeResponseURI(final String realmName, final Optional<String> state, final String clientId,
                                         final Set<String> finalScopes, final Map<String, String> claims, final URI redirectUri)
             throws URISyntaxException {
-        final String code = cassandraAuthorizationCodeService
+        final String code = authorizationCodeService
                 .create(state.orElse(EMPTY_STRING), clientId, realmName, finalScopes, claims, redirectUri);
 
         return new URIBuilder(redirectUri).addParameter(PARAM_RESPONSE_TYPE_CODE, code).addParameter(PARAM_STATE, state.orElse(EMPTY_STRING)).build();
@@ -382,10 +406,10 @@ public class AuthorizeController {
         return new URIBuilder(redirectUri).setFragment(queryURI.getQuery()).build();
     }
 
-    private URI generateLoginURIAfterAccessDenied(final Optional<String> realmName, final String responseType, final Optional<String> state,
+    private URI generateLoginURIAfterAccessDenied(final String loginPath, final Optional<String> realmName, final String responseType, final Optional<String> state,
                                                   final String clientId, final Optional<String> finalScopes, final URI redirectUri) throws URISyntaxException,
             JOSEException {
-        return new URIBuilder(linkTo(AuthorizeController.class).toUri().getPath())
+        return new URIBuilder(loginPath)
                 .addParameter(PARAM_RESPONSE_TYPE, responseType)
                 .addParameter(PARAM_REALM, realmName.orElse(EMPTY_STRING))
                 .addParameter(PARAM_CLIENT_ID, clientId)
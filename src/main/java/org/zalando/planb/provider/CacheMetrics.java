@@ -0,0 +1,24 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+
+public final class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    /**
+     * Export the statistics of the given Guava cache (built with "recordStats") as gauges.
+     *
+     * @param prefix metric name prefix, e.g. "planb.provider.client_cache.services"
+     */
+    public static void register(MetricRegistry metricRegistry, String prefix, Cache<?, ?> cache) {
+        metricRegistry.register(prefix + ".hit", (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(prefix + ".miss", (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.register(prefix + ".eviction", (Gauge<Long>) () -> cache.stats().evictionCount());
+        metricRegistry.register(prefix + ".load_error", (Gauge<Long>) () -> cache.stats().loadExceptionCount());
+        metricRegistry.register(prefix + ".size", (Gauge<Long>) cache::size);
+    }
+}
@@ -0,0 +1,95 @@
+package org.zalando.planb.provider;
+
+import com.google.common.cache.CacheBuilder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    /**
+     * Successful BCrypt verifications of client secrets and user passwords
+     */
+    private Spec password = new Spec(10000, Duration.ofMinutes(5), null);
+
+    /**
+     * Client data read from Cassandra (per realm), refreshed in the background after "refresh"
+     */
+    private Spec client = new Spec(10000, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+    /**
+     * User data read from Cassandra (per realm), password changes on other instances become visible after "ttl"
+     */
+    private Spec user = new Spec(10000, Duration.ofMinutes(1), null);
+
+    /**
+     * Usernames which were not found in Cassandra (per realm), keep this short
+     */
+    private Spec unknownUser = new Spec(10000, Duration.ofSeconds(10), null);
+
+    /**
+     * All consents of a user (per realm), opt-in. Writes on this instance invalidate it, but writes on other instances
+     * (e.g. withdrawals) only become visible after "ttl", until then tokens are issued without asking for consent.
+     */
+    private Spec consent = disabled(new Spec(10000, Duration.ofSeconds(10), null));
+
+    /**
+     * Successful logins of upstream realms (e.g. employees), opt-in. Entries never outlive the upstream token,
+     * but a password change or a locked account upstream only takes effect after "ttl" (or a purge).
+     */
+    private Spec upstream = disabled(new Spec(1000, Duration.ofMinutes(5), null));
+
+    private static Spec disabled(Spec spec) {
+        spec.setEnabled(false);
+        return spec;
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+
+        private boolean enabled = true;
+
+        private long maximumSize;
+
+        /**
+         * Entries are removed after this time, i.e. this is the maximum staleness of a cached value
+         */
+        private Duration ttl;
+
+        /**
+         * Optional: entries are reloaded on first access after this time, the old value is served until then
+         */
+        private Duration refresh;
+
+        public Spec() {
+        }
+
+        public Spec(long maximumSize, Duration ttl, Duration refresh) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+            this.refresh = refresh;
+        }
+
+        /**
+         * @return a cache builder configured according to this spec (a disabled cache does not keep any entries)
+         */
+        public CacheBuilder<Object, Object> toCacheBuilder() {
+            final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                    .maximumSize(enabled ? maximumSize : 0)
+                    .expireAfterWrite(ttl.toMillis(), MILLISECONDS)
+                    .recordStats();
+            if (refresh != null) {
+                builder.refreshAfterWrite(refresh.toMillis(), MILLISECONDS);
+            }
+            return builder;
+        }
+    }
+}
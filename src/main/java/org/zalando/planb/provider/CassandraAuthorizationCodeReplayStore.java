@@ -0,0 +1,68 @@
+package org.zalando.planb.provider;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static org.zalando.planb.provider.CompletableFutures.executeAsync;
+
+/**
+ * One tiny row per redeemed code, inserted with a lightweight transaction and never deleted
+ * (it expires with the code), so redeeming a code does not leave tombstones of the full code data behind.
+ */
+@Component
+@Profile("!in-memory")
+@ConditionalOnProperty(prefix = "authorizationCode", name = "stateless", havingValue = "true")
+public class CassandraAuthorizationCodeReplayStore implements AuthorizationCodeReplayStore {
+
+    private static final String AUTHORIZATION_CODE_USED = "authorization_code_used";
+
+    private static final String ID = "id";
+
+    @Autowired
+    private Session session;
+
+    @Autowired
+    private CassandraProperties cassandraProperties;
+
+    private PreparedStatement insertIfNotExists;
+
+    @PostConstruct
+    public void initialize() {
+        insertIfNotExists = session.prepare(insertInto(AUTHORIZATION_CODE_USED)
+                .value(ID, bindMarker())
+                .ifNotExists()
+                .using(ttl(bindMarker())))
+                .setConsistencyLevel(cassandraProperties.getConditionalWriteConsistencyLevel())
+                .setSerialConsistencyLevel(cassandraProperties.getSerialConsistencyLevel());
+    }
+
+    @Override
+    public boolean markUsed(String id, Instant expires) {
+        return session.execute(insert(id, expires)).wasApplied();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> markUsedAsync(String id, Instant expires) {
+        return executeAsync(session, insert(id, expires)).thenApply(ResultSet::wasApplied);
+    }
+
+    private Statement insert(String id, Instant expires) {
+        // keep the row a bit longer than the code is valid, clocks of other instances might be late
+        final int ttl = (int) Duration.between(Instant.now(), expires).plusMinutes(1).getSeconds();
+        return insertIfNotExists.bind(id, Math.max(ttl, 1));
+    }
+}
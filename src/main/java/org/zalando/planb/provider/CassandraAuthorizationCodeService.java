@@ -1,11 +1,13 @@
 package org.zalando.planb.provider;
 
 import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
-import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.Statement;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -15,17 +17,24 @@ import java.util.Base64;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.update;
 import static java.time.ZonedDateTime.now;
+import static org.zalando.planb.provider.CompletableFutures.executeAsync;
 
 @Component
-public class CassandraAuthorizationCodeService {
+@Profile("!in-memory")
+@ConditionalOnProperty(prefix = "authorizationCode", name = {"stateless", "sharded"}, havingValue = "false", matchIfMissing = true)
+public class CassandraAuthorizationCodeService implements AuthorizationCodeService {
 
     private static final String AUTHORIZATION_CODE = "authorization_code";
 
@@ -37,14 +46,8 @@ public class CassandraAuthorizationCodeService {
     private static final String CLAIMS = "claims";
     private static final String REDIRECT_URI = "redirect_uri";
     private static final String EXPIRES = "expires";
+    private static final String NOW = "now";
 
-    /**
-     * http://tools.ietf.org/html/rfc6749#section-4.1.2 says:
-     * The authorization code MUST expire shortly after it is issued to mitigate the risk of leaks.
-     * A maximum authorization code lifetime of 10 minutes is RECOMMENDED.
-     * 60 seconds sounds like enough time to complete the authorization code grant flow.
-     */
-    private static final Duration LIFETIME = Duration.ofSeconds(60);
     // clean up: automatically remove non-used authorization_code rows after 15 minutes
     private static final int TTL = (int) Duration.ofMinutes(15).getSeconds();
 
@@ -54,7 +57,7 @@ public class CassandraAuthorizationCodeService {
     @Autowired
     private CassandraProperties cassandraProperties;
 
-    private PreparedStatement deleteOne;
+    private PreparedStatement consumeOne;
     private PreparedStatement findOne;
     private PreparedStatement upsert;
 
@@ -88,10 +91,14 @@ public class CassandraAuthorizationCodeService {
                 .value(EXPIRES, bindMarker(EXPIRES)))
                 .setConsistencyLevel(cassandraProperties.getWriteConsistencyLevel());
 
-        deleteOne = session.prepare(QueryBuilder.delete().all()
-                .from(AUTHORIZATION_CODE)
-                .where(eq(CODE, bindMarker(CODE))))
-                .setConsistencyLevel(cassandraProperties.getWriteConsistencyLevel());
+        // Mark the code as used by letting it expire, the lightweight transaction guarantees that only one
+        // request wins. Unlike a delete this leaves the row readable, so it can be read at the same time.
+        consumeOne = session.prepare(update(AUTHORIZATION_CODE).using(ttl(TTL))
+                .with(set(EXPIRES, 0))
+                .where(eq(CODE, bindMarker(CODE)))
+                .onlyIf(gt(EXPIRES, bindMarker(NOW))))
+                .setConsistencyLevel(cassandraProperties.getConditionalWriteConsistencyLevel())
+                .setSerialConsistencyLevel(cassandraProperties.getSerialConsistencyLevel());
     }
 
 
@@ -108,6 +115,7 @@ public class CassandraAuthorizationCodeService {
         return Base64.getUrlEncoder().encodeToString(bytes);
     }
 
+    @Override
     public String create(String state, String clientId, String realm, Set<String> scopes, Map<String, String> claims, URI redirectUri) {
         String code = getRandomCode();
 
@@ -125,17 +133,35 @@ public class CassandraAuthorizationCodeService {
         return code;
     }
 
+    @Override
     public Optional<AuthorizationCode> invalidate(String code) {
-        Optional<AuthorizationCode> authorizationCode = Optional.ofNullable(findOne.bind().setString(CODE, code))
-                .map(session::execute)
-                .map(ResultSet::one)
-                .filter(row -> row.getInt(EXPIRES) > now().toEpochSecond())
-                .map(CassandraAuthorizationCodeService::toAuthorizationCode);
-        // Delete the authorization code immediately.
         // http://tools.ietf.org/html/rfc6749#section-4.1.2 says:
         // "The client MUST NOT use the authorization code more than once."
-        session.execute(deleteOne.bind().setString(CODE, code));
-        return authorizationCode;
+        // Both statements are sent at once, so this takes a single round trip.
+        final ResultSetFuture consumed = session.executeAsync(consume(code));
+        final ResultSetFuture found = session.executeAsync(findOne.bind().setString(CODE, code));
+        if (!consumed.getUninterruptibly().wasApplied()) {
+            found.cancel(false);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(found.getUninterruptibly().one())
+                .map(CassandraAuthorizationCodeService::toAuthorizationCode);
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> invalidateAsync(String code) {
+        return CompletableFutures.combine(
+                executeAsync(session, consume(code)),
+                executeAsync(session, findOne.bind().setString(CODE, code)),
+                (consumed, found) -> Optional.ofNullable(consumed.wasApplied() ? found.one() : null)
+                        .map(CassandraAuthorizationCodeService::toAuthorizationCode));
+    }
+
+    private Statement consume(String code) {
+        // the row returned by findOne might already be the consumed one, the expiry is only checked here
+        return consumeOne.bind()
+                .setString(CODE, code)
+                .setInt(NOW, (int) now().toEpochSecond());
     }
 
     private static AuthorizationCode toAuthorizationCode(Row row) {
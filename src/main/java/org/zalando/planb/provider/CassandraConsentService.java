@@ -5,21 +5,34 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.delete;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static org.zalando.planb.provider.CompletableFutures.executeAsync;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 @Component
+@Profile("!in-memory")
 public class CassandraConsentService implements ConsentService {
 
     private static final String CONSENT = "consent";
@@ -35,22 +48,38 @@ public class CassandraConsentService implements ConsentService {
     @Autowired
     private CassandraProperties cassandraProperties;
 
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     private PreparedStatement deleteOne;
-    private PreparedStatement findOne;
+    private PreparedStatement findAll;
     private PreparedStatement upsert;
 
+    // (username, realm) -> client_id -> scopes, i.e. a whole partition, so a user's logins to other clients are
+    // answered without reading again. Opt-in, see CacheProperties: writes on this instance invalidate the cache, writes
+    // on others (e.g. withdrawals) only become visible after TTL.
+    private Cache<List<String>, Map<String, Set<String>>> consents;
+
+    // incremented by every write, a load only caches its result if no write happened in the meantime
+    private final AtomicLong writeGeneration = new AtomicLong();
+
     @PostConstruct
     public void initialize() {
         prepareStatements();
+        consents = cacheProperties.getConsent().toCacheBuilder().build();
+        CacheMetrics.register(metricRegistry, "planb.provider.consent_cache", consents);
     }
 
     private void prepareStatements() {
-        findOne = session.prepare(select()
+        findAll = session.prepare(select()
+                .column(CLIENT_ID)
                 .column(SCOPES)
                 .from(CONSENT)
                 .where(eq(USERNAME, bindMarker(USERNAME)))
-                .and(eq(REALM, bindMarker(REALM)))
-                .and(eq(CLIENT_ID, bindMarker(CLIENT_ID))))
+                .and(eq(REALM, bindMarker(REALM))))
                 .setConsistencyLevel(cassandraProperties.getReadConsistencyLevel());
 
         upsert = session.prepare(insertInto(CONSENT)
@@ -71,22 +100,50 @@ public class CassandraConsentService implements ConsentService {
 
     public void store(final String username, final String realm, final String clientId, final Set<String> scopes) {
 
-        session.execute(upsert.bind()
+        session.execute(upsert(username, realm, clientId, scopes));
+
+        invalidate(username, realm);
+    }
+
+    public CompletableFuture<Void> storeAsync(final String username, final String realm, final String clientId, final Set<String> scopes) {
+
+        return executeAsync(session, upsert(username, realm, clientId, scopes))
+                .thenRun(() -> invalidate(username, realm));
+    }
+
+    private BoundStatement upsert(final String username, final String realm, final String clientId, final Set<String> scopes) {
+        return upsert.bind()
                 .setString(USERNAME, username)
                 .setString(REALM, realm)
-                .setString(CLIENT_ID,clientId).setSet(SCOPES, scopes));
+                .setString(CLIENT_ID, clientId)
+                .setSet(SCOPES, scopes);
     }
 
     public Set<String> getConsentedScopes(final String username, final String realm, final String clientId) {
 
-        return Optional.ofNullable(findOne.bind()
+        final Map<String, Set<String>> cached = consents.getIfPresent(key(username, realm));
+        if (cached != null) {
+            return cached.getOrDefault(clientId, Collections.emptySet());
+        }
+        final long generation = writeGeneration.get();
+        final Map<String, Set<String>> partition = toPartition(session.execute(findAll.bind()
                 .setString(USERNAME, username)
-                .setString(REALM, realm)
-                .setString(CLIENT_ID, clientId))
-                .map(session::execute)
-                .map(ResultSet::one)
-                .map(r -> r.getSet(SCOPES, String.class))
-                .orElse(Collections.emptySet());
+                .setString(REALM, realm)));
+        return remember(username, realm, generation, partition).getOrDefault(clientId, Collections.emptySet());
+    }
+
+    public CompletableFuture<Set<String>> getConsentedScopesAsync(final String username, final String realm, final String clientId) {
+
+        final Map<String, Set<String>> cached = consents.getIfPresent(key(username, realm));
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.getOrDefault(clientId, Collections.emptySet()));
+        }
+        final long generation = writeGeneration.get();
+        return executeAsync(session, findAll.bind()
+                .setString(USERNAME, username)
+                .setString(REALM, realm))
+                .thenApply(resultSet -> remember(username, realm, generation, toPartition(resultSet))
+                        .getOrDefault(clientId, Collections.emptySet()));
     }
 
     public void withdraw(final String username, final String realm, final String clientId) {
@@ -94,6 +151,47 @@ public class CassandraConsentService implements ConsentService {
                 .setString(USERNAME, username)
                 .setString(REALM, realm)
                 .setString(CLIENT_ID, clientId));
+
+        invalidate(username, realm);
+    }
+
+    private void invalidate(final String username, final String realm) {
+        // first the generation, so that loads which started before the write do not cache their (stale) result
+        writeGeneration.incrementAndGet();
+        consents.invalidate(key(username, realm));
+    }
+
+    long getWriteGeneration() {
+        return writeGeneration.get();
+    }
+
+    /**
+     * Caches the partition, unless there was a write since the load started (at the given generation).
+     *
+     * @return the loaded partition
+     */
+    Map<String, Set<String>> remember(final String username, final String realm, final long generation,
+                                      final Map<String, Set<String>> loaded) {
+        if (writeGeneration.get() == generation) {
+            consents.asMap().putIfAbsent(key(username, realm), loaded);
+            // a write between the check and the put has to win
+            if (writeGeneration.get() != generation) {
+                consents.invalidate(key(username, realm));
+            }
+        }
+        return loaded;
+    }
+
+    private static Map<String, Set<String>> toPartition(final ResultSet resultSet) {
+        final ImmutableMap.Builder<String, Set<String>> partition = ImmutableMap.builder();
+        for (Row row : resultSet) {
+            partition.put(row.getString(CLIENT_ID), ImmutableSet.copyOf(row.getSet(SCOPES, String.class)));
+        }
+        return partition.build();
+    }
+
+    private static List<String> key(final String username, final String realm) {
+        return Arrays.asList(username, realm);
     }
 
 }
@@ -5,11 +5,13 @@ import com.datastax.driver.core.Statement;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @Component
+@Profile("!in-memory")
 public class CassandraHealthIndicator extends AbstractHealthIndicator {
 
     private final Session session;
@@ -0,0 +1,61 @@
+package org.zalando.planb.provider;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static java.util.stream.Collectors.toList;
+
+@Component
+@Profile("!in-memory")
+public class CassandraKeyPairService implements KeyPairService {
+
+    private static final String KEYPAIR = "keypair";
+
+    private static final String KID = "kid";
+    private static final String REALMS = "realms";
+    private static final String PRIVATE_KEY_PEM = "private_key_pem";
+    private static final String ALGORITHM = "algorithm";
+    private static final String VALID_FROM = "valid_from";
+
+    @Autowired
+    private Session session;
+
+    @Autowired
+    private CassandraProperties cassandraProperties;
+
+    private PreparedStatement findAll;
+
+    @PostConstruct
+    public void initialize() {
+        prepareStatements();
+    }
+
+    private void prepareStatements() {
+        findAll = session.prepare(select().from(cassandraProperties.getKeyspace(), KEYPAIR));
+    }
+
+    @Override
+    public List<KeyPairData> getAll() {
+        return session.execute(findAll.bind()).all().stream()
+                .map(CassandraKeyPairService::toKeyPair)
+                .collect(toList());
+    }
+
+    private static KeyPairData toKeyPair(Row row) {
+        return KeyPairData.builder()
+                .kid(row.getString(KID))
+                .realms(row.getSet(REALMS, String.class))
+                .privateKeyPem(row.getString(PRIVATE_KEY_PEM))
+                .algorithm(row.getString(ALGORITHM))
+                .validFrom(row.getInt(VALID_FROM))
+                .build();
+    }
+}
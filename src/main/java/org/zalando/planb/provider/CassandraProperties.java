@@ -8,6 +8,8 @@ import java.util.Optional;
 
 import static com.datastax.driver.core.ConsistencyLevel.EACH_QUORUM;
 import static com.datastax.driver.core.ConsistencyLevel.ONE;
+import static com.datastax.driver.core.ConsistencyLevel.QUORUM;
+import static com.datastax.driver.core.ConsistencyLevel.SERIAL;
 
 @ConfigurationProperties(prefix = "cassandra")
 public class CassandraProperties {
@@ -20,6 +22,10 @@ public class CassandraProperties {
     private int port = ProtocolOptions.DEFAULT_PORT;
     private ConsistencyLevel writeConsistencyLevel = EACH_QUORUM;
     private ConsistencyLevel readConsistencyLevel = ONE;
+    /**
+     * Paxos phase of lightweight transactions, LOCAL_SERIAL keeps them in the local data center
+     */
+    private ConsistencyLevel serialConsistencyLevel = SERIAL;
     private Optional<String> username = Optional.empty();
     private Optional<String> password = Optional.empty();
     private String healthCheckQuery = "SELECT release_version FROM system.local;";
@@ -64,6 +70,13 @@ public class CassandraProperties {
         this.writeConsistencyLevel = writeConsistencyLevel;
     }
 
+    /**
+     * Commit consistency for lightweight transactions, Cassandra does not accept EACH_QUORUM there
+     */
+    public ConsistencyLevel getConditionalWriteConsistencyLevel() {
+        return writeConsistencyLevel == EACH_QUORUM ? QUORUM : writeConsistencyLevel;
+    }
+
     public ConsistencyLevel getReadConsistencyLevel() {
         return readConsistencyLevel;
     }
@@ -72,6 +85,14 @@ public class CassandraProperties {
         this.readConsistencyLevel = readConsistencyLevel;
     }
 
+    public ConsistencyLevel getSerialConsistencyLevel() {
+        return serialConsistencyLevel;
+    }
+
+    public void setSerialConsistencyLevel(ConsistencyLevel serialConsistencyLevel) {
+        this.serialConsistencyLevel = serialConsistencyLevel;
+    }
+
     public Optional<String> getUsername() {
         return username;
     }
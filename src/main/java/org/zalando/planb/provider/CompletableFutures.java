@@ -0,0 +1,139 @@
+package org.zalando.planb.provider;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+public final class CompletableFutures {
+
+    private CompletableFutures() {
+    }
+
+    /**
+     * Non-blocking variant of {@link Session#execute(Statement)}, the future completes on a driver I/O thread,
+     * so any blocking continuation must be moved to another executor.
+     */
+    public static CompletableFuture<ResultSet> executeAsync(Session session, Statement statement) {
+        return toCompletableFuture(session.executeAsync(statement));
+    }
+
+    public static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> future) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(t);
+        return result;
+    }
+
+    /**
+     * Invoke the given supplier, any exception it throws becomes a failed future instead of escaping to the caller.
+     */
+    public static <T> CompletableFuture<T> from(Supplier<CompletableFuture<T>> supplier) {
+        try {
+            return supplier.get();
+        } catch (Throwable t) {
+            return failed(t);
+        }
+    }
+
+    /**
+     * Call the given callable from within a lambda, checked exceptions are wrapped in a {@link CompletionException}
+     * (which is stripped again by {@link #unwrap(Throwable)}).
+     */
+    public static <T> T unchecked(Callable<T> callable) {
+        try {
+            return callable.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Like {@link CompletableFuture#thenCombine}, but fails fast: if the first future fails, the result fails right
+     * away without waiting for the second one. If both fail, the error of the first future wins (as if they had been
+     * run one after another), so a failure of the second future is only propagated once the first one succeeded.
+     * <p>
+     * The second future is then cancelled, which only completes it (and its dependents) exceptionally, the work
+     * behind it (e.g. an upstream call or a BCrypt check) still runs to its end.
+     * <p>
+     * {@code fn} runs on the thread which completed the later future, possibly an I/O thread, so it should be cheap.
+     */
+    public static <A, B, R> CompletableFuture<R> combine(CompletableFuture<A> first, CompletableFuture<B> second,
+                                                         BiFunction<? super A, ? super B, ? extends R> fn) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        first.whenComplete((a, error) -> {
+            if (error != null) {
+                second.cancel(false);
+                result.completeExceptionally(error);
+            }
+        });
+        second.whenComplete((b, error) -> {
+            if (error != null) {
+                first.thenRun(() -> result.completeExceptionally(error));
+            }
+        });
+        first.thenAcceptBoth(second, (a, b) -> {
+            try {
+                result.complete(fn.apply(a, b));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Strip the wrappers added by {@link CompletableFuture}, so the original exception can be inspected or handled
+     */
+    public static Throwable unwrap(Throwable t) {
+        Throwable cause = t;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Adapt the future to Spring MVC, failures are unwrapped first, so our @ExceptionHandlers still match
+     * (Spring does not look at the cause of an exception).
+     */
+    public static <T> DeferredResult<T> toDeferredResult(CompletableFuture<T> future) {
+        final DeferredResult<T> result = new DeferredResult<>();
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                result.setErrorResult(unwrap(error));
+            } else {
+                result.setResult(value);
+            }
+        });
+        return result;
+    }
+}
@@ -23,7 +23,7 @@ import org.zalando.planb.provider.realms.UserRealm;
 public class ConsentController implements ConsentsApi {
 
     @Autowired
-    private CassandraConsentService cassandraConsentService;
+    private ConsentService consentService;
 
     @Autowired
     private RealmConfig realms;
@@ -37,7 +37,7 @@ public class ConsentController implements ConsentsApi {
         log.info("Get stored consents for user {} on realm {}, application id {}", userRealm.maskSubject(username), realm, clientId);
 
         final Consent consentedScopes = new Consent();
-        final Set<String> scopes = cassandraConsentService.getConsentedScopes(username, realmName, clientId);
+        final Set<String> scopes = consentService.getConsentedScopes(username, realmName, clientId);
         consentedScopes.setScopes(new ArrayList<>(scopes));
 
         return ResponseEntity.ok(consentedScopes);
@@ -51,7 +51,7 @@ public class ConsentController implements ConsentsApi {
         final UserRealm userRealm = realms.getUserRealm(realmName);
         log.info("Withdrawing stored consents for user {} on realm {}, application id {}", userRealm.maskSubject(username), realm, clientId);
 
-        cassandraConsentService.withdraw(username, realmName, clientId);
+        consentService.withdraw(username, realmName, clientId);
 
         return new ResponseEntity<>(NO_CONTENT);
     }
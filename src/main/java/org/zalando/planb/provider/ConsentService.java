@@ -1,12 +1,17 @@
 package org.zalando.planb.provider;
 
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public interface ConsentService {
 
     void store(final String username, final String realm, final String clientId, final Set<String> scopes);
 
+    CompletableFuture<Void> storeAsync(final String username, final String realm, final String clientId, final Set<String> scopes);
+
     Set<String> getConsentedScopes(final String username, final String realm, final String clientId);
 
+    CompletableFuture<Set<String>> getConsentedScopesAsync(final String username, final String realm, final String clientId);
+
     void withdraw(final String username, final String realm, final String clientId);
 }
@@ -0,0 +1,110 @@
+package org.zalando.planb.provider;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.CONSUME;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.STORE;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.consumed;
+
+/**
+ * Another instance, called via {@link AuthorizationCodePeerController}
+ */
+public class HttpAuthorizationCodePeer implements AuthorizationCodePeer {
+
+    private final String baseUrl;
+
+    private final URI storeUri;
+
+    private final URI consumeUri;
+
+    private final SecretKeySpec key;
+
+    private final Executor executor;
+
+    private final RestTemplate rest;
+
+    /**
+     * @param timeout        connect and read timeout, and how long a call waits for a free connection
+     * @param maxConnections size of the connection pool to the other instance
+     * @param executor       runs the blocking HTTP calls of {@link #consumeAsync(String)}
+     */
+    public HttpAuthorizationCodePeer(String baseUrl, SecretKeySpec key, Duration timeout, int maxConnections, Executor executor) {
+        this.baseUrl = baseUrl;
+        this.storeUri = URI.create(baseUrl + AuthorizationCodePeerController.STORE_PATH);
+        this.consumeUri = URI.create(baseUrl + AuthorizationCodePeerController.CONSUME_PATH);
+        this.key = key;
+        this.executor = executor;
+
+        // a single route, so the whole pool is available to it (the default allows only 2 connections per route)
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) timeout.toMillis())
+                .setSocketTimeout((int) timeout.toMillis())
+                .setConnectionRequestTimeout((int) timeout.toMillis())
+                .build();
+
+        this.rest = new RestTemplate(new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build()));
+    }
+
+    @Override
+    public boolean store(AuthorizationCode code, long expires) {
+        final byte[] body = AuthorizationCodePeerMessage.of(code, expires).encrypt(key, STORE);
+        try {
+            rest.exchange(RequestEntity.post(storeUri).contentType(APPLICATION_OCTET_STREAM).body(body), Void.class);
+            return true;
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.CONFLICT) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<AuthorizationCode> consume(String code) {
+        final byte[] body = AuthorizationCodePeerMessage.of(code).encrypt(key, CONSUME);
+        final byte[] response;
+        try {
+            response = rest.exchange(RequestEntity.post(consumeUri).contentType(APPLICATION_OCTET_STREAM).body(body), byte[].class).getBody();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        final AuthorizationCodePeerMessage message = AuthorizationCodePeerMessage.decrypt(key, consumed(code), response)
+                .orElseThrow(() -> new IllegalStateException("Invalid response from " + consumeUri));
+        return Optional.of(message.toAuthorizationCode());
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> consumeAsync(String code) {
+        return CompletableFuture.supplyAsync(() -> consume(code), executor);
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
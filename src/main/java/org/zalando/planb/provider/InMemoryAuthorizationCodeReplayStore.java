@@ -0,0 +1,41 @@
+package org.zalando.planb.provider;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Component
+@Profile("in-memory")
+@ConditionalOnProperty(prefix = "authorizationCode", name = "stateless", havingValue = "true")
+public class InMemoryAuthorizationCodeReplayStore implements AuthorizationCodeReplayStore {
+
+    private final InMemoryStorage storage;
+
+    // codes expire after LIFETIME, so there is no need to remember them any longer
+    private final Cache<String, Boolean> usedCodes = CacheBuilder.newBuilder()
+            .expireAfterWrite(AuthorizationCodeService.LIFETIME.getSeconds(), SECONDS)
+            .build();
+
+    @Autowired
+    public InMemoryAuthorizationCodeReplayStore(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public boolean markUsed(String id, Instant expires) {
+        return storage.execute(() -> usedCodes.asMap().putIfAbsent(id, Boolean.TRUE) == null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> markUsedAsync(String id, Instant expires) {
+        return storage.executeAsync(() -> usedCodes.asMap().putIfAbsent(id, Boolean.TRUE) == null);
+    }
+}
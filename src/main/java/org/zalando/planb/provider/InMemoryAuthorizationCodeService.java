@@ -0,0 +1,56 @@
+package org.zalando.planb.provider;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Component
+@Profile("in-memory")
+@ConditionalOnProperty(prefix = "authorizationCode", name = {"stateless", "sharded"}, havingValue = "false", matchIfMissing = true)
+public class InMemoryAuthorizationCodeService implements AuthorizationCodeService {
+
+    @Autowired
+    private InMemoryStorage storage;
+
+    // expired codes are dropped, just like Cassandra would not return them
+    private final Cache<String, AuthorizationCode> codes = CacheBuilder.newBuilder()
+            .expireAfterWrite(LIFETIME.getSeconds(), SECONDS)
+            .build();
+
+    @Override
+    public String create(String state, String clientId, String realm, Set<String> scopes, Map<String, String> claims, URI redirectUri) {
+        final String code = CassandraAuthorizationCodeService.getRandomCode();
+        storage.execute(() -> codes.put(code, AuthorizationCode.builder()
+                .code(code)
+                .state(state)
+                .clientId(clientId)
+                .realm(realm)
+                .scopes(scopes)
+                .claims(claims)
+                .redirectUri(redirectUri)
+                .build()));
+        return code;
+    }
+
+    @Override
+    public Optional<AuthorizationCode> invalidate(String code) {
+        // one round trip like with Cassandra, only the caller which removes the code gets it
+        return storage.execute(() -> Optional.ofNullable(codes.asMap().remove(code)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> invalidateAsync(String code) {
+        return storage.executeAsync(() -> Optional.ofNullable(codes.asMap().remove(code)));
+    }
+}
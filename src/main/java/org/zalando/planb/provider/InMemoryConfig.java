@@ -0,0 +1,20 @@
+package org.zalando.planb.provider;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces Cassandra with in-memory tables, see application-in-memory.yml
+ */
+@Configuration
+@Profile("in-memory")
+@EnableConfigurationProperties(InMemoryProperties.class)
+public class InMemoryConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public InMemoryStorage inMemoryStorage(InMemoryProperties inMemoryProperties) {
+        return new InMemoryStorage(inMemoryProperties.getLatency());
+    }
+}
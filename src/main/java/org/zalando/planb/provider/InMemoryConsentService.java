@@ -0,0 +1,55 @@
+package org.zalando.planb.provider;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.collect.ImmutableSet.copyOf;
+
+@Component
+@Profile("in-memory")
+public class InMemoryConsentService implements ConsentService {
+
+    @Autowired
+    private InMemoryStorage storage;
+
+    // (username, realm, client_id) -> scopes
+    private final ConcurrentMap<List<String>, Set<String>> consents = new ConcurrentHashMap<>();
+
+    @Override
+    public void store(final String username, final String realm, final String clientId, final Set<String> scopes) {
+        storage.execute(() -> consents.put(key(username, realm, clientId), copyOf(scopes)));
+    }
+
+    @Override
+    public CompletableFuture<Void> storeAsync(final String username, final String realm, final String clientId, final Set<String> scopes) {
+        return storage.executeAsync(() -> consents.put(key(username, realm, clientId), copyOf(scopes))).thenApply(previous -> null);
+    }
+
+    @Override
+    public Set<String> getConsentedScopes(final String username, final String realm, final String clientId) {
+        return storage.execute(() -> consents.getOrDefault(key(username, realm, clientId), Collections.emptySet()));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getConsentedScopesAsync(final String username, final String realm, final String clientId) {
+        return storage.executeAsync(() -> consents.getOrDefault(key(username, realm, clientId), Collections.emptySet()));
+    }
+
+    @Override
+    public void withdraw(final String username, final String realm, final String clientId) {
+        storage.execute(() -> consents.remove(key(username, realm, clientId)));
+    }
+
+    private static List<String> key(String username, String realm, String clientId) {
+        return Arrays.asList(username, realm, clientId);
+    }
+}
@@ -0,0 +1,79 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+@Component
+@Profile("in-memory")
+public class InMemoryKeyPairService implements KeyPairService {
+
+    private static final String GENERATED_KID = "in-memory";
+
+    @Autowired
+    private InMemoryStorage storage;
+
+    @Autowired
+    private InMemoryProperties inMemoryProperties;
+
+    @Autowired
+    private RealmProperties realmProperties;
+
+    private List<KeyPairData> keys;
+
+    @PostConstruct
+    public void initialize() throws GeneralSecurityException, IOException {
+        if (inMemoryProperties.getKeys().isEmpty()) {
+            keys = ImmutableList.of(KeyPairData.builder()
+                    .kid(GENERATED_KID)
+                    .realms(ImmutableSet.copyOf(realmProperties.getNames()))
+                    .privateKeyPem(generateES256PrivateKeyPem())
+                    .algorithm("ES256")
+                    .validFrom(0)
+                    .build());
+        } else {
+            keys = inMemoryProperties.getKeys().stream()
+                    .map(key -> KeyPairData.builder()
+                            .kid(key.getKid())
+                            .realms(ImmutableSet.copyOf(key.getRealms()))
+                            .privateKeyPem(key.getPrivateKeyPem())
+                            .algorithm(key.getAlgorithm())
+                            .validFrom(key.getValidFrom())
+                            .build())
+                    .collect(toList());
+        }
+    }
+
+    @Override
+    public List<KeyPairData> getAll() {
+        return storage.execute(() -> keys);
+    }
+
+    private static String generateES256PrivateKeyPem() throws GeneralSecurityException, IOException {
+        // BouncyCastle (registered in Main) includes the public key in the PEM, which OIDCKeyHolder relies on
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        final KeyPair keyPair = generator.generateKeyPair();
+
+        final StringWriter pem = new StringWriter();
+        try (JcaPEMWriter writer = new JcaPEMWriter(pem)) {
+            writer.writeObject(keyPair);
+        }
+        return pem.toString();
+    }
+}
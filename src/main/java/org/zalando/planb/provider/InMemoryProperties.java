@@ -0,0 +1,75 @@
+package org.zalando.planb.provider;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage for the "in-memory" profile, which replaces Cassandra (e.g. for throughput tests without external services)
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "inMemory")
+public class InMemoryProperties {
+
+    /**
+     * Simulated round trip time, added to every read and write
+     */
+    private Duration latency = Duration.ZERO;
+
+    /**
+     * Initial content of the client table
+     */
+    private List<Client> clients = new ArrayList<>();
+
+    /**
+     * Initial content of the user table
+     */
+    private List<User> users = new ArrayList<>();
+
+    /**
+     * Initial content of the keypair table, if empty a ES256 key for all realms is generated on startup
+     */
+    private List<Key> keys = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Client {
+        private String realm;
+        private String id;
+        private String secretHash;
+        private Set<String> scopes = new HashSet<>();
+        private Set<String> defaultScopes = new HashSet<>();
+        private boolean confidential = true;
+        private String name;
+        private String description;
+        private Set<String> redirectUris = new HashSet<>();
+    }
+
+    @Getter
+    @Setter
+    public static class User {
+        private String realm;
+        private String username;
+        private List<String> passwordHashes = new ArrayList<>();
+        private Map<String, String> scopes = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Key {
+        private String kid;
+        private Set<String> realms = new HashSet<>();
+        private String privateKeyPem;
+        private String algorithm;
+        private int validFrom;
+    }
+}
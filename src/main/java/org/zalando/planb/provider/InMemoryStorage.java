@@ -0,0 +1,68 @@
+package org.zalando.planb.provider;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Stands in for the Cassandra session in the "in-memory" profile: every statement takes the configured latency,
+ * asynchronous statements complete on an "I/O" thread like they do with the driver.
+ */
+public class InMemoryStorage {
+
+    private final long latencyNanos;
+
+    private final ScheduledExecutorService ioThreads;
+
+    public InMemoryStorage(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+        this.ioThreads = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("in-memory-io-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Blocking like {@link com.datastax.driver.core.Session#execute(com.datastax.driver.core.Statement)}
+     */
+    public <T> T execute(Supplier<T> statement) {
+        if (latencyNanos > 0) {
+            Uninterruptibles.sleepUninterruptibly(latencyNanos, NANOSECONDS);
+        }
+        return statement.get();
+    }
+
+    public void execute(Runnable statement) {
+        execute(() -> {
+            statement.run();
+            return null;
+        });
+    }
+
+    /**
+     * Non-blocking like {@link CompletableFutures#executeAsync}, the statement runs when the latency is over
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<T> statement) {
+        if (latencyNanos == 0) {
+            return CompletableFutures.from(() -> CompletableFuture.completedFuture(statement.get()));
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        ioThreads.schedule(() -> {
+            try {
+                result.complete(statement.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, latencyNanos, NANOSECONDS);
+        return result;
+    }
+
+    public void shutdown() {
+        ioThreads.shutdown();
+    }
+}
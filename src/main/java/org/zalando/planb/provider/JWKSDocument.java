@@ -0,0 +1,72 @@
+package org.zalando.planb.provider;
+
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.nimbusds.jose.jwk.JWK;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The serialized JWK set as served by the keys endpoint, built once whenever the keys change.
+ * The byte arrays are shared, they must not be modified.
+ */
+final class JWKSDocument {
+
+    private static final Joiner COMMA_SEPARATED = Joiner.on(",");
+
+    static final JWKSDocument EMPTY = of(Collections.emptyList());
+
+    private final byte[] json;
+    private final byte[] gzipped;
+    private final String etag;
+    private final String gzippedEtag;
+
+    private JWKSDocument(byte[] json) {
+        this.json = json;
+        this.gzipped = gzip(json);
+        // strong validators, the gzip variant is a different representation
+        final String hash = BaseEncoding.base64Url().omitPadding().encode(Hashing.sha256().hashBytes(json).asBytes());
+        this.etag = '"' + hash + '"';
+        this.gzippedEtag = '"' + hash + "-gzip\"";
+    }
+
+    static JWKSDocument of(List<JWK> keys) {
+        final List<String> jwks = keys.stream().map(JWK::toJSONString).collect(toList());
+        return new JWKSDocument(("{\"keys\": [" + COMMA_SEPARATED.join(jwks) + "]}").getBytes(UTF_8));
+    }
+
+    byte[] getJson() {
+        return json;
+    }
+
+    byte[] getGzipped() {
+        return gzipped;
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    String getGzippedEtag() {
+        return gzippedEtag;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
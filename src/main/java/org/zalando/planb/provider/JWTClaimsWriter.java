@@ -0,0 +1,353 @@
+package org.zalando.planb.provider;
+
+import net.minidev.json.JSONStyle;
+import net.minidev.json.JSONValue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes JWT claims as compact JSON straight into a reusable (per thread) buffer and returns the
+ * JWS signing input, i.e. "base64url(header).base64url(claims)", without going through Nimbus' JWTClaimsSet.
+ *
+ * The output is byte-for-byte what {@code JWTClaimsSet.toJSONObject().toJSONString(JSONStyle.LT_COMPRESS)}
+ * produces, including the member order: json-smart's JSONObject is a plain HashMap with default capacity,
+ * so members are ordered by hash bucket, members in the same bucket by insertion order. Claims with a null value
+ * are left out, like Nimbus does.
+ */
+final class JWTClaimsWriter {
+
+    private static final ThreadLocal<JWTClaimsWriter> WRITERS = ThreadLocal.withInitial(JWTClaimsWriter::new);
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes();
+
+    // java.util.HashMap constants, see ordering below
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int TREEIFY_THRESHOLD = 8;
+
+    private String[] names = new String[16];
+    private Object[] values = new Object[16];
+    private int[] order = new int[16];
+    private int size;
+
+    private byte[] json = new byte[1024];
+    private int length;
+
+    private JWTClaimsWriter() {
+    }
+
+    /**
+     * @return the empty writer of the current thread
+     */
+    static JWTClaimsWriter get() {
+        final JWTClaimsWriter writer = WRITERS.get();
+        writer.reset();
+        return writer;
+    }
+
+    void reset() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        length = 0;
+    }
+
+    /**
+     * Set a claim, setting the same name again replaces the value (but keeps the position).
+     * Supported values are strings, numbers and collections of them, anything else is serialized with json-smart.
+     */
+    JWTClaimsWriter claim(String name, Object value) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                values[i] = value;
+                return this;
+            }
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            order = new int[size * 2];
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    /**
+     * @param encodedHeader the base64url encoded JWS header (ASCII)
+     * @return the JWS signing input "header.payload" (ASCII)
+     */
+    byte[] signingInput(byte[] encodedHeader) {
+        writeClaims();
+
+        final int encodedLength = (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+        final byte[] result = new byte[encodedHeader.length + 1 + encodedLength];
+        System.arraycopy(encodedHeader, 0, result, 0, encodedHeader.length);
+        result[encodedHeader.length] = '.';
+        base64url(json, length, result, encodedHeader.length + 1);
+        return result;
+    }
+
+    /**
+     * @return the serialized claims, for testing
+     */
+    String toJSONString() {
+        writeClaims();
+        return new String(json, 0, length, UTF_8);
+    }
+
+    private void writeClaims() {
+        length = 0;
+        final int count = nonNullClaims();
+        if (!sortLikeHashMap(count)) {
+            sortWithHashMap(count);
+        }
+        write('{');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            final int index = order[i];
+            writeString(names[index]);
+            write(':');
+            writeValue(values[index]);
+        }
+        write('}');
+    }
+
+    /**
+     * Put the indexes of the claims with a value into the order, in insertion order.
+     *
+     * @return the number of those claims
+     */
+    private int nonNullClaims() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != null) {
+                order[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Order the first count members like HashMap iterates them: by bucket, and by insertion order within a bucket.
+     *
+     * @return false if some bucket is crowded enough for HashMap to resize early or build a tree,
+     * in which case we do not try to replicate the order
+     */
+    private boolean sortLikeHashMap(int count) {
+        int capacity = INITIAL_CAPACITY;
+        while (count > (int) (capacity * LOAD_FACTOR)) {
+            capacity *= 2;
+        }
+        final int mask = capacity - 1;
+
+        // insertion sort, stable and allocation-free, we only have a handful of claims
+        for (int i = 1; i < count; i++) {
+            final int current = order[i];
+            final int bucket = bucket(names[current], mask);
+            int j = i - 1;
+            while (j >= 0 && bucket(names[order[j]], mask) > bucket) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+
+        int sameBucket = 1;
+        for (int i = 1; i < count; i++) {
+            sameBucket = bucket(names[order[i]], mask) == bucket(names[order[i - 1]], mask) ? sameBucket + 1 : 1;
+            if (sameBucket >= TREEIFY_THRESHOLD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sortWithHashMap(int count) {
+        final Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put(names[order[i]], order[i]);
+        }
+        int i = 0;
+        for (Integer index : map.values()) {
+            order[i++] = index;
+        }
+    }
+
+    private static int bucket(String name, int mask) {
+        final int h = name.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void writeValue(Object value) {
+        if (value == null) {
+            writeAscii("null");
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Iterable) {
+            write('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeValue(element);
+            }
+            write(']');
+        } else {
+            writeChars(JSONValue.toJSONString(value, JSONStyle.LT_COMPRESS));
+        }
+    }
+
+    /**
+     * Quote and escape like json-smart's JStylerObj.ESCAPE_LT (i.e. without escaping forward slashes).
+     */
+    private void writeString(String s) {
+        write('"');
+        final int len = s.length();
+        for (int i = 0; i < len; i++) {
+            final char ch = s.charAt(i);
+            switch (ch) {
+                case '"':
+                    write('\\');
+                    write('"');
+                    break;
+                case '\\':
+                    write('\\');
+                    write('\\');
+                    break;
+                case '\b':
+                    write('\\');
+                    write('b');
+                    break;
+                case '\f':
+                    write('\\');
+                    write('f');
+                    break;
+                case '\n':
+                    write('\\');
+                    write('n');
+                    break;
+                case '\r':
+                    write('\\');
+                    write('r');
+                    break;
+                case '\t':
+                    write('\\');
+                    write('t');
+                    break;
+                default:
+                    if (ch <= '\u001F' || (ch >= '\u007F' && ch <= '\u009F') || (ch >= '\u2000' && ch <= '\u20FF')) {
+                        write('\\');
+                        write('u');
+                        write(HEX[(ch >> 12) & 0xF]);
+                        write(HEX[(ch >> 8) & 0xF]);
+                        write(HEX[(ch >> 4) & 0xF]);
+                        write(HEX[ch & 0xF]);
+                    } else {
+                        i = writeChar(s, i);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    private void writeChars(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            i = writeChar(s, i);
+        }
+    }
+
+    /**
+     * Encode the char at the given index as UTF-8 (like String.getBytes, unpaired surrogates become '?').
+     *
+     * @return index of the last char consumed
+     */
+    private int writeChar(String s, int i) {
+        final char ch = s.charAt(i);
+        if (ch < 0x80) {
+            write(ch);
+        } else if (ch < 0x800) {
+            write(0xC0 | (ch >> 6));
+            write(0x80 | (ch & 0x3F));
+        } else if (Character.isSurrogate(ch)) {
+            if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(ch, s.charAt(i + 1));
+                write(0xF0 | (cp >> 18));
+                write(0x80 | ((cp >> 12) & 0x3F));
+                write(0x80 | ((cp >> 6) & 0x3F));
+                write(0x80 | (cp & 0x3F));
+                return i + 1;
+            }
+            write('?');
+        } else {
+            write(0xE0 | (ch >> 12));
+            write(0x80 | ((ch >> 6) & 0x3F));
+            write(0x80 | (ch & 0x3F));
+        }
+        return i;
+    }
+
+    private void writeAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            write('0' + (int) ((value / divisor) % 10));
+        }
+    }
+
+    private void write(int b) {
+        if (length == json.length) {
+            json = Arrays.copyOf(json, length * 2);
+        }
+        json[length++] = (byte) b;
+    }
+
+    private static void base64url(byte[] src, int len, byte[] dst, int offset) {
+        int i = 0;
+        int o = offset;
+        for (; i + 2 < len; i += 3) {
+            final int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[o++] = BASE64URL[(bits >>> 18) & 0x3F];
+            dst[o++] = BASE64URL[(bits >>> 12) & 0x3F];
+            dst[o++] = BASE64URL[(bits >>> 6) & 0x3F];
+            dst[o++] = BASE64URL[bits & 0x3F];
+        }
+        final int remaining = len - i;
+        if (remaining > 0) {
+            final int bits = (src[i] & 0xFF) << 16 | (remaining == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            dst[o++] = BASE64URL[(bits >>> 18) & 0x3F];
+            dst[o++] = BASE64URL[(bits >>> 12) & 0x3F];
+            if (remaining == 2) {
+                dst[o] = BASE64URL[(bits >>> 6) & 0x3F];
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.zalando.planb.provider;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 import com.nimbusds.jose.*;
+import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import net.minidev.json.JSONStyle;
 import org.slf4j.Logger;
@@ -10,10 +11,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.zalando.planb.provider.realms.Realm;
 
-import java.util.Date;
 import java.util.Map;
 import java.util.Set;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -25,6 +26,10 @@ public class JWTIssuer {
     private static final String ISSUER = "B";
     private static final String AUTHORIZED_PARTY = "azp";
 
+    private static final String ISSUER_CLAIM = "iss";
+    private static final String EXPIRATION_TIME_CLAIM = "exp";
+    private static final String ISSUED_AT_CLAIM = "iat";
+
     @Autowired
     private RealmProperties realmProperties;
 
@@ -34,22 +39,31 @@ public class JWTIssuer {
     @Autowired
     private MetricRegistry metricRegistry;
 
-    static String getSignedJWT(JWTClaimsSet claims, OIDCKeyHolder.Signer signer) throws JOSEException {
-        final JWSAlgorithm algorithm = signer.getAlgorithm();
+    @Autowired
+    private TokenMetrics tokenMetrics;
 
+    static String getSignedJWT(JWTClaimsSet claims, OIDCKeyHolder.Signer signer) throws JOSEException {
         // NOTE: we are doing the JSON serialization "by hand" here to use the correct compression flag
         // (the default is using net.minidev.json.JStylerObj.ESCAPE4Web which also escapes forward slashes)
         final String serializedJson = claims.toJSONObject().toJSONString(JSONStyle.LT_COMPRESS);
-        final JWSHeader header = new JWSHeader(algorithm, null, null, null, null, null, null, null, null, null,
-                signer.getKid(), null, null);
         final Payload payload = new Payload(serializedJson);
-        final JWSObject jwt = new JWSObject(header, payload);
+        final JWSObject jwt = new JWSObject(signer.getHeader(), payload);
 
         jwt.sign(signer.getJWSSigner());
 
         return jwt.serialize();
     }
 
+    /**
+     * Same as {@link #getSignedJWT(JWTClaimsSet, OIDCKeyHolder.Signer)} (byte for byte), but without the
+     * intermediate Nimbus and json-smart objects.
+     */
+    static String getSignedJWT(JWTClaimsWriter claims, OIDCKeyHolder.Signer signer) throws JOSEException {
+        final byte[] signingInput = claims.signingInput(signer.getEncodedHeader());
+        final Base64URL signature = signer.sign(signingInput);
+        return new String(signingInput, US_ASCII) + '.' + signature.toString();
+    }
+
 
     /**
      * Issue (create) a single JWT access token
@@ -64,20 +78,20 @@ public class JWTIssuer {
         // this should never happen (only if some realm does not return "sub"
         Preconditions.checkState(claims.containsKey(Realm.SUB), "'sub' claim missing");
         final long tokenLifetimeInMilliseconds = realmProperties.getTokenLifetime(userRealm.getName()).toMillis();
-        JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder()
-                .issuer(ISSUER)
-                .expirationTime(new Date(System.currentTimeMillis() + tokenLifetimeInMilliseconds))
-                .issueTime(new Date())
+        final long now = System.currentTimeMillis();
+        final JWTClaimsWriter jwtClaims = JWTClaimsWriter.get()
+                .claim(ISSUER_CLAIM, ISSUER)
+                .claim(EXPIRATION_TIME_CLAIM, (now + tokenLifetimeInMilliseconds) / 1000)
+                .claim(ISSUED_AT_CLAIM, now / 1000)
                 .claim("realm", userRealm.getName())
                 .claim("scope", scopes);
-        claims.forEach(claimsBuilder::claim);
+        claims.forEach(jwtClaims::claim);
         if (scopes.contains(AUTHORIZED_PARTY)) {
             // http://openid.net/specs/openid-connect-core-1_0.html#IDToken
             // Authorized party - the party to which the ID Token was issued.
             // If present, it MUST contain the OAuth 2.0 Client ID of this party.
-            claimsBuilder.claim(AUTHORIZED_PARTY, clientId);
+            jwtClaims.claim(AUTHORIZED_PARTY, clientId);
         }
-        final JWTClaimsSet jwtClaims = claimsBuilder.build();
 
         // sign JWT
         OIDCKeyHolder.Signer signer = keyHolder.getCurrentSigner(userRealm.getName())
@@ -88,7 +102,7 @@ public class JWTIssuer {
         try {
             rawJWT = getSignedJWT(jwtClaims, signer);
         } finally {
-            signingMetric.finish("planb.provider.jwt.signing." + signer.getAlgorithm().getName());
+            signingMetric.finish(tokenMetrics.signing(signer.getAlgorithm().getName()));
         }
 
         final String maskedSubject = userRealm.maskSubject(claims.get(Realm.SUB));
@@ -0,0 +1,19 @@
+package org.zalando.planb.provider;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class KeyPairData {
+
+    private String kid;
+    private Set<String> realms;
+    private String privateKeyPem;
+    private String algorithm;
+    private int validFrom;
+}
@@ -0,0 +1,11 @@
+package org.zalando.planb.provider;
+
+import java.util.List;
+
+public interface KeyPairService {
+
+    /**
+     * @return all stored key pairs, including the ones which are not valid yet
+     */
+    List<KeyPairData> getAll();
+}
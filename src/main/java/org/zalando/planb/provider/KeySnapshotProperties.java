@@ -0,0 +1,33 @@
+package org.zalando.planb.provider;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "keySnapshot")
+public class KeySnapshotProperties {
+
+    /**
+     * Local file holding the last key set read from Cassandra, the snapshot is disabled if not set
+     */
+    private String path;
+
+    /**
+     * Base64 encoded AES key (128 or 256 bit) used to encrypt the snapshot
+     */
+    private String key;
+
+    /**
+     * Snapshots older than this are not used on startup, a running instance rewrites its snapshot
+     * at half this age even if the keys did not change
+     */
+    private Duration maxAge = Duration.ofDays(7);
+
+    public boolean isEnabled() {
+        return path != null && !path.isEmpty();
+    }
+}
@@ -0,0 +1,175 @@
+package org.zalando.planb.provider;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Keeps an encrypted copy of the stored key pairs on local disk, so the key holder can start without Cassandra.
+ *
+ * The file contains a random IV followed by the AES/GCM encrypted JSON, i.e. it is authenticated as well:
+ * a snapshot written with another key or modified on disk is rejected. So is a snapshot older than
+ * "keySnapshot.maxAge", it might still contain keys which were removed from Cassandra in the meantime.
+ */
+@Component
+public class KeySnapshotStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeySnapshotStore.class);
+
+    // binds the ciphertext to its purpose and format version
+    private static final byte[] ASSOCIATED_DATA = "planb-keypair-snapshot-v2".getBytes(US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().addMixIn(KeyPairData.class, KeyPairDataMixIn.class);
+
+    private final Path path;
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+
+    // time the current snapshot was written, null if there is none (or it is unknown yet)
+    private volatile Instant writtenAt;
+
+    @Autowired
+    public KeySnapshotStore(KeySnapshotProperties properties) {
+        if (properties.isEnabled()) {
+            if (properties.getKey() == null) {
+                throw new IllegalStateException("keySnapshot.key is required if keySnapshot.path is set");
+            }
+            this.path = Paths.get(properties.getPath());
+            this.key = AesGcm.key(properties.getKey());
+        } else {
+            this.path = null;
+            this.key = null;
+        }
+        this.maxAge = properties.getMaxAge();
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * @return the key pairs of the last snapshot, empty if there is none, it cannot be read or it is too old
+     */
+    public Optional<List<KeyPairData>> read() {
+        if (!isEnabled() || !Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            final byte[] json = AesGcm.decrypt(key, ASSOCIATED_DATA, Files.readAllBytes(path));
+            final Snapshot snapshot = objectMapper.readValue(json, Snapshot.class);
+            final Instant snapshotWrittenAt = Instant.ofEpochMilli(snapshot.getWrittenAt());
+            writtenAt = snapshotWrittenAt;
+            if (snapshotWrittenAt.plus(maxAge).isBefore(Instant.now())) {
+                LOG.warn("Ignoring key snapshot {} written at {}, it is older than {}", path, snapshotWrittenAt, maxAge);
+                return Optional.empty();
+            }
+            return Optional.of(snapshot.getKeys());
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOG.warn("Could not read key snapshot {}: {}", path, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return whether the snapshot should be rewritten even if the keys did not change, so it does not reach
+     * the maximum age while this instance is running
+     */
+    public boolean isDueForRefresh() {
+        final Instant current = writtenAt;
+        return isEnabled() && (current == null || current.plus(maxAge.dividedBy(2)).isBefore(Instant.now()));
+    }
+
+    /**
+     * Replace the snapshot (atomically where the file system supports it), failures are only logged
+     *
+     * @return whether the snapshot was written
+     */
+    public boolean write(List<KeyPairData> keys) {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            final Instant now = Instant.now();
+            final byte[] data = AesGcm.encrypt(key, ASSOCIATED_DATA, objectMapper.writeValueAsBytes(new Snapshot(now.toEpochMilli(), keys)));
+
+            final Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // temp files are only readable by the owner
+            final Path tmp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, data);
+                try {
+                    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            writtenAt = now;
+            LOG.info("Wrote key snapshot {} with {} keys.", path, keys.size());
+            return true;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOG.warn("Could not write key snapshot {}: {}", path, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Content of the snapshot file (before encryption)
+     */
+    static class Snapshot {
+
+        private final long writtenAt;
+        private final List<KeyPairData> keys;
+
+        @JsonCreator
+        Snapshot(@JsonProperty("writtenAt") long writtenAt,
+                 @JsonProperty("keys") List<KeyPairData> keys) {
+            this.writtenAt = writtenAt;
+            this.keys = keys;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+
+        public List<KeyPairData> getKeys() {
+            return keys;
+        }
+    }
+
+    /**
+     * KeyPairData is immutable, tell Jackson how to use its constructor
+     */
+    abstract static class KeyPairDataMixIn {
+
+        @JsonCreator
+        KeyPairDataMixIn(@JsonProperty("kid") String kid,
+                         @JsonProperty("realms") Set<String> realms,
+                         @JsonProperty("privateKeyPem") String privateKeyPem,
+                         @JsonProperty("algorithm") String algorithm,
+                         @JsonProperty("validFrom") int validFrom) {
+        }
+    }
+}
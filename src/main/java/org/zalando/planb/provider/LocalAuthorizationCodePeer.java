@@ -0,0 +1,31 @@
+package org.zalando.planb.provider;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This instance
+ */
+public class LocalAuthorizationCodePeer implements AuthorizationCodePeer {
+
+    private final ShardedAuthorizationCodeStore store;
+
+    public LocalAuthorizationCodePeer(ShardedAuthorizationCodeStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean store(AuthorizationCode code, long expires) {
+        return store.put(code, expires);
+    }
+
+    @Override
+    public Optional<AuthorizationCode> consume(String code) {
+        return store.consume(code);
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> consumeAsync(String code) {
+        return CompletableFuture.completedFuture(store.consume(code));
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.cloud.netflix.hystrix.EnableHystrix;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.zalando.planb.provider.realms.BCryptProperties;
 import org.zalando.planb.provider.realms.UpstreamRealmProperties;
 
 import java.security.Security;
@@ -20,7 +22,10 @@ import java.security.Security;
 @ComponentScan
 @EnableHystrix
 @EnableAspectJAutoProxy(proxyTargetClass = true)
-@EnableConfigurationProperties(value = {ScopeProperties.class, RealmProperties.class, UpstreamRealmProperties.class})
+@EnableScheduling
+@EnableConfigurationProperties(value = {ScopeProperties.class, RealmProperties.class, UpstreamRealmProperties.class, CacheProperties.class,
+        BCryptProperties.class, KeySnapshotProperties.class, SignatureProperties.class,
+        AuthorizationCodeProperties.class})
 public class Main {
 
     static {
@@ -5,7 +5,7 @@ import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 
 import static java.lang.String.format;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class Metric {
@@ -14,31 +14,41 @@ public class Metric {
 
     private final MetricRegistry metricRegistry;
 
-    private Long start;
+    private boolean started;
+
+    private long start;
 
     public Metric(final MetricRegistry metricRegistry) {
         this.metricRegistry = metricRegistry;
     }
 
     public Metric start() {
-        this.start = System.currentTimeMillis();
+        this.start = System.nanoTime();
+        this.started = true;
         return this;
     }
 
     public void finish(String key) {
-        if (started()) {
+        if (started) {
             try {
-                final long end = System.currentTimeMillis();
-                final Timer timer = metricRegistry.timer(key);
-                timer.update(end - start, MILLISECONDS);
+                finish(metricRegistry.timer(key));
             } catch (Exception e) {
                 LOG.warn(format("Unable to submit timer metric '%s'", key), e);
             }
         }
     }
 
-    private boolean started() {
-        return start != null;
+    /**
+     * Record the elapsed time to an already resolved timer (see {@link TokenMetrics}), does not allocate.
+     */
+    public void finish(Timer timer) {
+        if (started) {
+            try {
+                timer.update(System.nanoTime() - start, NANOSECONDS);
+            } catch (Exception e) {
+                LOG.warn("Unable to submit timer metric", e);
+            }
+        }
     }
 
     public static String trimSlash(String realm) {
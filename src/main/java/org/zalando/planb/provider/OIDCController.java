@@ -1,32 +1,46 @@
 package org.zalando.planb.provider;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.base.Joiner;
-import com.nimbusds.jose.JOSEException;
-import com.nimbusds.jose.jwk.JWK;
+import com.google.common.base.Splitter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.zalando.planb.provider.realms.*;
 
 import java.net.URI;
 import java.util.Base64;
-import java.util.List;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.zalando.planb.provider.Metric.trimSlash;
+import static org.zalando.planb.provider.CompletableFutures.combine;
+import static org.zalando.planb.provider.CompletableFutures.toDeferredResult;
+import static org.zalando.planb.provider.CompletableFutures.unchecked;
+import static org.zalando.planb.provider.CompletableFutures.unwrap;
+import static org.zalando.planb.provider.realms.ClientRealmAuthenticationException.clientNotFound;
 
 @RestController
 @Slf4j
 public class OIDCController {
 
-    private static final Joiner COMMA_SEPARATED = Joiner.on(",");
+    private static final Splitter COMMA_SEPARATED_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Splitter SEMICOLON_SEPARATED_SPLITTER = Splitter.on(';').trimResults();
+
+    // keys are reloaded every minute
+    private static final CacheControl KEYS_CACHE_CONTROL = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
 
     private static final Base64.Decoder BASE_64_DECODER = Base64.getDecoder();
 
@@ -47,11 +61,18 @@ public class OIDCController {
     @Autowired
     private MetricRegistry metricRegistry;
 
+    @Autowired
+    private TokenMetrics tokenMetrics;
+
     @Autowired
     private ScopeService scopeService;
 
     @Autowired
-    private CassandraAuthorizationCodeService cassandraAuthorizationCodeService;
+    private AuthorizationCodeService authorizationCodeService;
+
+    @Autowired
+    @Qualifier(AsyncConfig.WORKER_EXECUTOR)
+    private Executor workerExecutor;
 
     /**
      * Get client_id and client_secret from HTTP Basic Auth
@@ -112,56 +133,63 @@ public class OIDCController {
      */
     @RequestMapping(value = "/oauth2/access_token", method = RequestMethod.POST, params = "grant_type=authorization_code")
     @ResponseBody
-    OIDCCreateTokenResponse createTokenFromCode(
+    DeferredResult<OIDCCreateTokenResponse> createTokenFromCode(
             @RequestParam(value = "grant_type", required = true) String grantType,
             @RequestParam(value = "code", required = true) String code,
             @RequestParam(value = "client_id") Optional<String> clientIdParam,
             @RequestParam(value = "client_secret") Optional<String> clientSecretParam,
             @RequestParam(value = "redirect_uri", required = true) URI redirectUri,
-            @RequestHeader(name = "Authorization") Optional<String> authorization) throws JOSEException {
+            @RequestHeader(name = "Authorization") Optional<String> authorization) {
 
         final Metric metric = new Metric(metricRegistry).start();
-        final AuthorizationCode authCode = cassandraAuthorizationCodeService.invalidate(code)
-                .orElseThrow(() -> new BadRequestException("Invalid authorization code", "invalid_request", "Invalid authorization code"));
-
-        // Check that redirect_uri parameter matches the one from authorization request
-        // (required by RFC, see http://tools.ietf.org/html/rfc6749#section-4.1.3
-        // In order to prevent such an attack, the authorization server MUST
-        // ensure that the redirection URI used to obtain the authorization code
-        // is identical to the redirection URI provided when exchanging the
-        // authorization code for an access token.
-        if (!redirectUri.equals(authCode.getRedirectUri())) {
-            throw new BadRequestException("Invalid authorization code: redirect_uri mismatch", "invalid_request", "Invalid authorization code: redirect_uri mismatch");
-        }
+        return toDeferredResult(authorizationCodeService.invalidateAsync(code).thenCompose(authorizationCode -> {
+            final AuthorizationCode authCode = authorizationCode
+                    .orElseThrow(() -> new BadRequestException("Invalid authorization code", "invalid_request", "Invalid authorization code"));
+
+            // Check that redirect_uri parameter matches the one from authorization request
+            // (required by RFC, see http://tools.ietf.org/html/rfc6749#section-4.1.3
+            // In order to prevent such an attack, the authorization server MUST
+            // ensure that the redirection URI used to obtain the authorization code
+            // is identical to the redirection URI provided when exchanging the
+            // authorization code for an access token.
+            if (!redirectUri.equals(authCode.getRedirectUri())) {
+                throw new BadRequestException("Invalid authorization code: redirect_uri mismatch", "invalid_request", "Invalid authorization code: redirect_uri mismatch");
+            }
+
+            return createTokenFromCode(authCode, clientIdParam, clientSecretParam, authorization, metric);
+        }));
+    }
 
+    private CompletableFuture<OIDCCreateTokenResponse> createTokenFromCode(AuthorizationCode authCode,
+                                                                           Optional<String> clientIdParam,
+                                                                           Optional<String> clientSecretParam,
+                                                                           Optional<String> authorization,
+                                                                           Metric metric) {
         final String realmName = authCode.getRealm();
-        try {
+        return CompletableFutures.from(() -> {
 
             // retrieve realms for the given realm
             ClientRealm clientRealm = realms.getClientRealm(realmName);
             UserRealm userRealm = realms.getUserRealm(realmName);
 
             final ClientCredentials clientCredentials = getClientCredentials(authorization, clientIdParam, clientSecretParam);
-            clientRealm.authenticate(clientCredentials.getClientId(), clientCredentials.getClientSecret(), authCode.getScopes(), authCode.getScopes());
-
-            if (!clientCredentials.getClientId().equals(authCode.getClientId())) {
-                // authorization code can only be used by the client who requested it
-                throw new BadRequestException("Invalid authorization code: client mismatch", "invalid_request", "Invalid authorization code: client mismatch");
+            return clientRealm.authenticateAsync(clientCredentials.getClientId(), clientCredentials.getClientSecret(), authCode.getScopes(), authCode.getScopes(), workerExecutor)
+                    .thenApplyAsync(authenticated -> {
+                        if (!clientCredentials.getClientId().equals(authCode.getClientId())) {
+                            // authorization code can only be used by the client who requested it
+                            throw new BadRequestException("Invalid authorization code: client mismatch", "invalid_request", "Invalid authorization code: client mismatch");
+                        }
+
+                        final String rawJWT = unchecked(() -> jwtIssuer.issueAccessToken(userRealm, clientCredentials.getClientId(), authCode.getScopes(), authCode.getClaims()));
+                        metric.finish(tokenMetrics.accessTokenSuccess(realmName));
+
+                        return response(rawJWT, authCode.getScopes(), realmName);
+                    }, workerExecutor);
+        }).whenComplete((response, error) -> {
+            if (error != null) {
+                metric.finish(tokenMetrics.accessTokenError(realmName, unwrap(error)));
             }
-
-            final String rawJWT = jwtIssuer.issueAccessToken(userRealm, clientCredentials.getClientId(), authCode.getScopes(), authCode.getClaims());
-            metric.finish("planb.provider.access_token." + trimSlash(realmName) + ".success");
-
-            return response(rawJWT, authCode.getScopes(), realmName);
-        } catch (Throwable t) {
-            final String errorType = Optional.of(t)
-                    .filter(e -> e instanceof RestException)
-                    .map(e -> (RestException) e)
-                    .flatMap(RestException::getErrorLocation)
-                    .orElse("other");
-            metric.finish("planb.provider.access_token." + trimSlash(realmName) + ".error." + errorType);
-            throw t;
-        }
+        });
     }
 
     /**
@@ -169,22 +197,21 @@ public class OIDCController {
      */
     @RequestMapping(value = {"/oauth2/access_token", "/z/oauth2/access_token"}, method = RequestMethod.POST, params = "grant_type=password")
     @ResponseBody
-    OIDCCreateTokenResponse createToken(@RequestParam(value = "realm") Optional<String> realmNameParam,
-                                        @RequestParam(value = "grant_type", required = true) String grantType,
-                                        @RequestParam(value = "username", required = true) String username,
-                                        @RequestParam(value = "password", required = true) String password,
-
-                                        @RequestParam(value = "scope") Optional<String> scope,
-                                        @RequestParam(value = "client_id") Optional<String> clientIdParam,
-                                        @RequestParam(value = "client_secret") Optional<String> clientSecretParam,
-                                        @RequestHeader(name = "Authorization") Optional<String> authorization,
-                                        @RequestHeader(name = "Host") Optional<String> hostHeader)
-            throws RealmAuthenticationException, RealmAuthorizationException, JOSEException {
+    DeferredResult<OIDCCreateTokenResponse> createToken(@RequestParam(value = "realm") Optional<String> realmNameParam,
+                                                        @RequestParam(value = "grant_type", required = true) String grantType,
+                                                        @RequestParam(value = "username", required = true) String username,
+                                                        @RequestParam(value = "password", required = true) String password,
+
+                                                        @RequestParam(value = "scope") Optional<String> scope,
+                                                        @RequestParam(value = "client_id") Optional<String> clientIdParam,
+                                                        @RequestParam(value = "client_secret") Optional<String> clientSecretParam,
+                                                        @RequestHeader(name = "Authorization") Optional<String> authorization,
+                                                        @RequestHeader(name = "Host") Optional<String> hostHeader) {
         final Metric metric = new Metric(metricRegistry).start();
 
         final String realmName = getRealmName(realms, realmNameParam, hostHeader);
 
-        try {
+        return toDeferredResult(CompletableFutures.from(() -> {
             if (username.trim().isEmpty() || password.trim().isEmpty()) {
                 throw new BadRequestException(
                         "Username and password should be provided.",
@@ -197,32 +224,35 @@ public class OIDCController {
             UserRealm userRealm = realms.getUserRealm(realmName);
             final ClientCredentials clientCredentials = getClientCredentials(authorization, clientIdParam, clientSecretParam);
 
-            // parse requested scopes
-            final Set<String> scopes = ScopeService.split(scope);
-            final Set<String> defaultScopes = scopeService.getDefaultScopesForClient(clientRealm, clientCredentials.getClientId());
-            final Set<String> finalScopes = scopes.isEmpty() ? defaultScopes : scopes;
-
-            clientRealm.authenticate(clientCredentials.getClientId(), clientCredentials.getClientSecret(), finalScopes, defaultScopes);
-            final Map<String, String> extraClaims = userRealm.authenticate(username, password, finalScopes, defaultScopes);
-
-            // request authorized, create JWT
-            final String rawJWT = jwtIssuer.issueAccessToken(userRealm, clientCredentials.getClientId(), finalScopes, extraClaims);
-            metric.finish("planb.provider.access_token." + trimSlash(realmName) + ".success");
-
-            return response(rawJWT, finalScopes, realmName);
-        } catch (Throwable t) {
-            final String errorType = Optional.of(t)
-                    .filter(e -> e instanceof RestException)
-                    .map(e -> (RestException) e)
-                    .flatMap(RestException::getErrorLocation)
-                    .orElse("other");
-            if (t instanceof RealmNotFoundException) {
-                metric.finish("planb.provider.access_token.unknown-realm.error." + errorType);
-            } else {
-                metric.finish("planb.provider.access_token." + trimSlash(realmName) + ".error." + errorType);
+            return clientRealm.getAsync(clientCredentials.getClientId()).thenCompose(client -> {
+                // parse requested scopes
+                final Set<String> scopes = ScopeService.split(scope);
+                final Set<String> defaultScopes = scopeService.getDefaultScopesForClient(clientRealm, client);
+                final Set<String> finalScopes = scopes.isEmpty() ? defaultScopes : scopes;
+
+                // cheap checks of the client first, an unknown client or forbidden scopes must not cause a user login
+                final ClientData clientData = client.orElseThrow(() -> clientNotFound(clientCredentials.getClientId(), clientRealm.getName()));
+                clientRealm.validateScopes(clientCredentials.getClientId(), clientData, finalScopes, defaultScopes);
+
+                // client secret and user are checked concurrently, the client error still takes precedence if both fail
+                return combine(
+                        clientRealm.authenticateAsync(clientCredentials.getClientId(), client, clientCredentials.getClientSecret(), finalScopes, defaultScopes, workerExecutor),
+                        userRealm.authenticateAsync(username, password, finalScopes, defaultScopes, workerExecutor),
+                        (authenticated, extraClaims) -> extraClaims)
+                        // signing is CPU bound, it must not run on the I/O thread which completed the logins
+                        .thenApplyAsync(extraClaims -> {
+                            // request authorized, create JWT
+                            final String rawJWT = unchecked(() -> jwtIssuer.issueAccessToken(userRealm, clientCredentials.getClientId(), finalScopes, extraClaims));
+                            metric.finish(tokenMetrics.accessTokenSuccess(realmName));
+
+                            return response(rawJWT, finalScopes, realmName);
+                        }, workerExecutor);
+            });
+        }).whenComplete((response, error) -> {
+            if (error != null) {
+                metric.finish(tokenMetrics.accessTokenError(realmName, unwrap(error)));
             }
-            throw t;
-        }
+        }));
     }
 
     @RequestMapping("/.well-known/openid-configuration")
@@ -236,12 +266,86 @@ public class OIDCController {
         return new OIDCDiscoveryInformationResponse(proto, hostname);
     }
 
+    /**
+     * Resource servers poll this a lot, so the response is prepared by {@link OIDCKeyHolder} whenever the keys change
+     * and can be cached / revalidated by clients.
+     */
     @RequestMapping(value = OIDCDiscoveryInformationResponse.KEYS_PATH, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    String getSigningKeys() {
-        List<String> jwks = keyHolder.getCurrentPublicKeys().stream()
-                .map(JWK::toJSONString)
-                .collect(Collectors.toList());
+    ResponseEntity<byte[]> getSigningKeys(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        final JWKSDocument jwks = keyHolder.getCurrentJWKSDocument();
+        final boolean gzip = acceptsGzip(acceptEncoding);
+        final String etag = gzip ? jwks.getGzippedEtag() : jwks.getEtag();
+
+        if (matchesETag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(KEYS_CACHE_CONTROL)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(null);
+        }
 
-        return "{\"keys\": [" + COMMA_SEPARATED.join(jwks) + "]}";
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .eTag(etag)
+                .cacheControl(KEYS_CACHE_CONTROL)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(jwks.getGzipped());
+        }
+        return response.body(jwks.getJson());
+    }
+
+    /**
+     * @return whether the Accept-Encoding header allows gzip, i.e. lists "gzip" (or "x-gzip", or else "*")
+     * with a q-value above zero
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String element : COMMA_SEPARATED_SPLITTER.split(acceptEncoding)) {
+            final Iterator<String> parts = SEMICOLON_SEPARATED_SPLITTER.split(element).iterator();
+            final String coding = parts.next().toLowerCase(Locale.ENGLISH);
+            final double quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        final Double quality = gzipQuality != null ? gzipQuality : anyQuality;
+        return quality != null && quality > 0;
+    }
+
+    private static double quality(Iterator<String> parameters) {
+        while (parameters.hasNext()) {
+            final String parameter = parameters.next();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // not a valid q-value, do not rely on the coding then
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : COMMA_SEPARATED_SPLITTER.split(ifNoneMatch)) {
+            // If-None-Match uses the weak comparison
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -1,14 +1,19 @@
 package org.zalando.planb.provider;
 
-import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.Row;
-import com.datastax.driver.core.Session;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.crypto.ECDSASigner;
 import com.nimbusds.jose.crypto.RSASSASigner;
@@ -16,6 +21,7 @@ import com.nimbusds.jose.jwk.ECKey;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.KeyUse;
 import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.openssl.PEMKeyPair;
 import org.bouncycastle.openssl.PEMParser;
@@ -27,21 +33,34 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.StringReader;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
-import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Private keys must never leave this class!
@@ -51,20 +70,62 @@ public class OIDCKeyHolder {
     private static final Logger LOG = LoggerFactory.getLogger(OIDCKeyHolder.class);
 
     private static final long DELAY_IN_MS = 1000 * 60 * 1; // minutes
-    private static final String KEYPAIR_TABLE = "keypair";
+
+    private static final String METRIC_PREFIX = "planb.provider.keys.";
+
+    private static final Map<String, String> JCA_ALGORITHMS = ImmutableMap.<String, String>builder()
+            .put("RS256", "SHA256withRSA")
+            .put("RS384", "SHA384withRSA")
+            .put("RS512", "SHA512withRSA")
+            .put("ES256", "SHA256withECDSA")
+            .put("ES384", "SHA384withECDSA")
+            .put("ES512", "SHA512withECDSA")
+            .build();
+
+    private static final Map<String, Integer> EC_SIGNATURE_LENGTHS = ImmutableMap.of(
+            "ES256", 64,
+            "ES384", 96,
+            "ES512", 132);
 
     @Autowired
-    private CassandraProperties cassandraProperties;
+    private KeyPairService keyPairService;
 
     @Autowired
-    private Session session;
+    private KeySnapshotStore keySnapshotStore;
 
-    // set on post construct
-    private PreparedStatement fetchKeys;
+    @Autowired
+    private SignatureProperties signatureProperties;
 
     // those information are updated (swapped) during runtime in the background
     private final AtomicReference<List<JWK>> currentPublicKeys = new AtomicReference<>(new ArrayList<>());
     private final AtomicReference<Map<String, Signer>> currentSigner = new AtomicReference<>(new HashMap<>());
+    private final AtomicReference<JWKSDocument> currentJWKSDocument = new AtomicReference<>(JWKSDocument.EMPTY);
+
+    // parsed keys by fingerprint, only touched by loadKeys
+    private volatile Map<String, ParsedKey> parsedKeys = Collections.emptyMap();
+
+    // fingerprint of the key list in the snapshot, only touched by loadKeys
+    private String snapshotKeyState;
+
+    // all keys per realm, including the ones that are not valid yet
+    private Multimap<String, Key> realmKeys = ImmutableMultimap.of();
+
+    // swaps the signer of a realm as soon as a future key becomes valid, without waiting for the next reload,
+    // and reconciles a snapshot with the storage after startup
+    private final ScheduledExecutorService keyExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("oidc-keys-%d").setDaemon(true).build());
+    private ScheduledFuture<?> pendingPromotion;
+
+    private final Timer reloadTime = new Timer();
+    private final Counter parsedKeysCount = new Counter();
+    private final Counter reusedKeysCount = new Counter();
+
+    @Autowired
+    void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.register(METRIC_PREFIX + "reload", reloadTime);
+        metricRegistry.register(METRIC_PREFIX + "parsed", parsedKeysCount);
+        metricRegistry.register(METRIC_PREFIX + "reused", reusedKeysCount);
+    }
 
     Optional<Signer> getCurrentSigner(final String realm) {
         return Optional.ofNullable(currentSigner.get().get(realm));
@@ -74,9 +135,27 @@ public class OIDCKeyHolder {
         return currentPublicKeys.get();
     }
 
+    /**
+     * @return the current public keys, serialized for the keys endpoint
+     */
+    JWKSDocument getCurrentJWKSDocument() {
+        return currentJWKSDocument.get();
+    }
+
     @PostConstruct
     void initializeKeys() throws Exception {
-        prepareStatements();
+        // serve the keys of the local snapshot right away, the storage might be slow or unavailable
+        final Optional<List<KeyPairData>> snapshot = readSnapshot();
+        if (snapshot.isPresent()) {
+            try {
+                loadKeys(snapshot.get(), false);
+                keyExecutor.execute(this::checkKeys);
+                LOG.info("OIDC key holder initialized from snapshot.");
+                return;
+            } catch (Exception e) {
+                LOG.warn("Could not load keys from snapshot, falling back to storage.", e);
+            }
+        }
         loadKeys();
         LOG.info("OIDC key holder initialized.");
     }
@@ -91,111 +170,124 @@ public class OIDCKeyHolder {
         }
     }
 
-    void prepareStatements() {
-        fetchKeys = session.prepare(
-                select().from(cassandraProperties.getKeyspace(), KEYPAIR_TABLE));
+    @PreDestroy
+    void shutdown() {
+        keyExecutor.shutdownNow();
     }
 
     @VisibleForTesting
-    List<Row> getStoredKeys() {
-        return session.execute(fetchKeys.bind()).all();
+    List<KeyPairData> getStoredKeys() {
+        return keyPairService.getAll();
+    }
+
+    private Optional<List<KeyPairData>> readSnapshot() {
+        return keySnapshotStore != null ? keySnapshotStore.read() : Optional.empty();
     }
 
     private void loadKeys() throws JOSEException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, IOException {
-        // fetch list from cassandra
-        final List<Row> storedKeys = getStoredKeys();
+        // fetch list from storage
+        loadKeys(getStoredKeys(), true);
+    }
 
-        // transform results into proper JWKs
-        // http://connect2id.com/products/nimbus-jose-jwt/openssl-key-generation
-        final List<JWK> newPublicKeys = new ArrayList<>();
+    private synchronized void loadKeys(List<KeyPairData> storedKeys, boolean fromStorage) throws JOSEException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, IOException {
+        final Timer.Context reload = reloadTime.time();
+        try {
+            reloadKeys(storedKeys, fromStorage);
+        } finally {
+            reload.stop();
+        }
+    }
+
+    private void reloadKeys(List<KeyPairData> storedKeys, boolean fromStorage) throws JOSEException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, IOException {
+        // only parse keys we did not see before, the table rarely changes
+        final Map<String, ParsedKey> previouslyParsedKeys = this.parsedKeys;
+        final Map<String, ParsedKey> newParsedKeys = new LinkedHashMap<>();
         final Multimap<String, Key> realmKeys = ArrayListMultimap.create();
 
         // skip the whole run if an error occurs, do not allow inconsistent key list
-        for (final Row storedKey : storedKeys) {
-            // retrieve row values
-            final String kid = storedKey.getString("kid");
-            final Set<String> realms = storedKey.getSet("realms", String.class);
-            final String rawPrivateKeyPem = storedKey.getString("private_key_pem");
-            final String rawAlgorithm = storedKey.getString("algorithm");
-            final int rawValidFrom = storedKey.getInt("valid_from");
-
-            final JWSAlgorithm algorithm = JWSAlgorithm.parse(rawAlgorithm);
-
-            // parse key pair
-            final PEMParser pemParser = new PEMParser(new StringReader(rawPrivateKeyPem));
-
-            Object pemObject = pemParser.readObject();
-            if (pemObject instanceof ASN1ObjectIdentifier) {
-                /**
-                 * Skip EC parameter header, could be retrieved with following code:
-                 * ASN1ObjectIdentifier ecOID = (ASN1ObjectIdentifier) pemObject;
-                 * X9ECParameters ecSpec = ECNamedCurveTable.getByOID(ecOID);
-                 */
-                // next entry is supposed to be the real key pair
-                pemObject = pemParser.readObject();
+        for (final KeyPairData storedKey : storedKeys) {
+            final String fingerprint = fingerprint(storedKey);
+
+            ParsedKey parsedKey = previouslyParsedKeys.get(fingerprint);
+            if (parsedKey == null) {
+                parsedKey = parseKey(storedKey);
+                parsedKeysCount.inc();
+            } else {
+                reusedKeysCount.inc();
             }
-            pemParser.close();
-
-            final PEMKeyPair pemKeyPair = (PEMKeyPair) pemObject;
-            final KeyPair keyPair = new JcaPEMKeyConverter()
-                    .getKeyPair(pemKeyPair);
-
-            // create JWK from keypair
-            final JWK jwk;
-            switch (rawAlgorithm) {
-                case "RS256":
-                case "RS384":
-                case "RS512":
-                case "PS256":
-                case "PS384":
-                case "PS512":
-                    jwk = createRSAJWK(kid, keyPair.getPublic(), algorithm);
-                    break;
-                case "ES256":
-                    jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_256, algorithm);
-                    break;
-                case "ES384":
-                    jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_384, algorithm);
-                    break;
-                case "ES512":
-                    jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_521, algorithm);
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Algorithm not supported for key " + kid + ": " + rawAlgorithm);
-            }
-
-            newPublicKeys.add(jwk);
+            newParsedKeys.put(fingerprint, parsedKey);
 
             // enlist key on all realms that it could be used
-            for (String realm : realms) {
-                realmKeys.put(realm, new Key(kid, keyPair, algorithm, rawValidFrom));
+            for (String realm : storedKey.getRealms()) {
+                realmKeys.put(realm, new Key(parsedKey, storedKey.getValidFrom()));
             }
         }
 
+        // the public keys (and their serialized form) only change if some key was added, removed or replaced
+        if (!newParsedKeys.keySet().equals(previouslyParsedKeys.keySet())) {
+            final Set<String> currentPublicKeyNames = previouslyParsedKeys.values().stream()
+                    .map(ParsedKey::getKid)
+                    .collect(Collectors.toSet());
+            final Set<String> newPublicKeyNames = newParsedKeys.values().stream()
+                    .map(ParsedKey::getKid)
+                    .collect(Collectors.toSet());
+
+            for (String keyToBeRemoved : Sets.difference(currentPublicKeyNames, newPublicKeyNames)) {
+                LOG.info("Removing public key {}.", keyToBeRemoved);
+            }
+            for (String keyToBeAdded : Sets.difference(newPublicKeyNames, currentPublicKeyNames)) {
+                LOG.info("Adding public key {}.", keyToBeAdded);
+            }
+
+            final List<JWK> newPublicKeys = newParsedKeys.values().stream()
+                    .map(ParsedKey::getJwk)
+                    .collect(Collectors.toList());
+            this.currentPublicKeys.set(Collections.unmodifiableList(newPublicKeys));
+            this.currentJWKSDocument.set(JWKSDocument.of(newPublicKeys));
+        }
+
+        // the snapshot covers the realm assignments and validity of the keys as well, not only the keys themselves
+        final String keyState = keyState(storedKeys);
+        if (!fromStorage) {
+            this.snapshotKeyState = keyState;
+        } else if (keySnapshotStore != null && (!keyState.equals(snapshotKeyState) || keySnapshotStore.isDueForRefresh())
+                && keySnapshotStore.write(storedKeys)) {
+            this.snapshotKeyState = keyState;
+        }
+
+        // swap the current information, forget about all other private keys
+        this.parsedKeys = newParsedKeys;
+        this.realmKeys = realmKeys;
+        updateSigners();
+    }
+
+    private synchronized void promoteSigners() {
+        try {
+            updateSigners();
+        } catch (Exception e) {
+            LOG.error("Could not promote signing keys.", e);
+        }
+    }
+
+    /**
+     * Pick the signer of each realm from the keys that are valid now, and schedule the next update for the
+     * moment the next future key becomes valid.
+     */
+    private void updateSigners() {
+        final int now = (int) (System.currentTimeMillis() / 1000);
+
         // find youngest valid private key for each realm
         final Map<String,Signer> newSigners = new HashMap<>();
-        final int now = (int)(System.currentTimeMillis() / 1000);
         for (String realm : realmKeys.keySet()) {
             final Collection<Key> keys = realmKeys.get(realm);
             final Optional<Key> key = keys.stream()
-                    .filter(k -> k.getValidFrom() < now) // kicks out invalid (future) keys
+                    .filter(k -> k.getValidFrom() <= now) // kicks out invalid (future) keys
                     .sorted() // sorts youngest first
                     .findFirst();
 
             if (key.isPresent()) {
                 // use this signer for this realm
-                Key k = key.get();
-                JWSSigner signer;
-                switch (k.getAlgorithm().getName()) {
-                    case "ES256":
-                    case "ES384":
-                    case "ES512":
-                        signer = new ECDSASigner((ECPrivateKey) k.getKeyPair().getPrivate());
-                        break;
-                    default:
-                        signer = new RSASSASigner((RSAPrivateKey) k.getKeyPair().getPrivate());
-                }
-                newSigners.put(realm, new Signer(k.getKid(), signer, k.getAlgorithm()));
+                newSigners.put(realm, key.get().getParsedKey().getSigner());
             }
         }
 
@@ -215,27 +307,112 @@ public class OIDCKeyHolder {
             }
         }
 
-        // unfortunately, JWKs have no proper equals methods, so only work with their names
-        final Set<String> currentPublicKeyNames = this.currentPublicKeys.get().stream()
-                .map(JWK::getKeyID)
-                .collect(Collectors.toSet());
-        final Set<String> newPublicKeyNames = newPublicKeys.stream()
-                .map(JWK::getKeyID)
-                .collect(Collectors.toSet());
+        this.currentSigner.set(Collections.unmodifiableMap(newSigners));
 
-        Sets.SetView<String> keysToBeRemoved = Sets.difference(currentPublicKeyNames, newPublicKeyNames);
-        Sets.SetView<String> keysToBeAdded = Sets.difference(newPublicKeyNames, currentPublicKeyNames);
+        schedulePromotion(now);
+    }
 
-        for (String keyToBeRemoved: keysToBeRemoved) {
-            LOG.info("Removing public key {}.", keyToBeRemoved);
+    private void schedulePromotion(int now) {
+        if (pendingPromotion != null) {
+            pendingPromotion.cancel(false);
+            pendingPromotion = null;
         }
-        for (String keyToBeAdded: keysToBeAdded) {
-            LOG.info("Adding public key {}.", keyToBeAdded);
+
+        final Optional<Integer> nextValidFrom = realmKeys.values().stream()
+                .map(Key::getValidFrom)
+                .filter(validFrom -> validFrom > now)
+                .min(Integer::compare);
+
+        if (nextValidFrom.isPresent()) {
+            final long delay = Math.max(0, nextValidFrom.get() * 1000L - System.currentTimeMillis());
+            LOG.info("Next signing key becomes valid in {} ms.", delay);
+            pendingPromotion = keyExecutor.schedule(this::promoteSigners, delay, MILLISECONDS);
         }
+    }
 
-        // swap the current information, forget about all other private keys
-        this.currentPublicKeys.set(Collections.unmodifiableList(newPublicKeys));
-        this.currentSigner.set(Collections.unmodifiableMap(newSigners));
+    private static String fingerprint(KeyPairData storedKey) {
+        return storedKey.getKid() + ':' + storedKey.getAlgorithm() + ':'
+                + Hashing.sha256().hashString(storedKey.getPrivateKeyPem(), UTF_8);
+    }
+
+    /**
+     * @return everything the key holder reads from the stored keys (with the private keys hashed), independent of their order
+     */
+    private static String keyState(List<KeyPairData> storedKeys) {
+        return storedKeys.stream()
+                .map(storedKey -> fingerprint(storedKey) + ':' + storedKey.getValidFrom() + ':'
+                        + storedKey.getRealms().stream().sorted().collect(Collectors.joining(",")))
+                .sorted()
+                .collect(Collectors.joining("\n"));
+    }
+
+    private ParsedKey parseKey(KeyPairData storedKey) throws IOException, JOSEException {
+        // retrieve stored values
+        final String kid = storedKey.getKid();
+        final String rawPrivateKeyPem = storedKey.getPrivateKeyPem();
+        final String rawAlgorithm = storedKey.getAlgorithm();
+
+        final JWSAlgorithm algorithm = JWSAlgorithm.parse(rawAlgorithm);
+
+        // parse key pair
+        final PEMParser pemParser = new PEMParser(new StringReader(rawPrivateKeyPem));
+
+        Object pemObject = pemParser.readObject();
+        if (pemObject instanceof ASN1ObjectIdentifier) {
+            /**
+             * Skip EC parameter header, could be retrieved with following code:
+             * ASN1ObjectIdentifier ecOID = (ASN1ObjectIdentifier) pemObject;
+             * X9ECParameters ecSpec = ECNamedCurveTable.getByOID(ecOID);
+             */
+            // next entry is supposed to be the real key pair
+            pemObject = pemParser.readObject();
+        }
+        pemParser.close();
+
+        final PEMKeyPair pemKeyPair = (PEMKeyPair) pemObject;
+        final KeyPair keyPair = new JcaPEMKeyConverter()
+                .getKeyPair(pemKeyPair);
+
+        // create JWK and signer from keypair
+        // http://connect2id.com/products/nimbus-jose-jwt/openssl-key-generation
+        final JWK jwk;
+        final JWSSigner signer;
+        switch (rawAlgorithm) {
+            case "RS256":
+            case "RS384":
+            case "RS512":
+            case "PS256":
+            case "PS384":
+            case "PS512":
+                jwk = createRSAJWK(kid, keyPair.getPublic(), algorithm);
+                signer = new RSASSASigner((RSAPrivateKey) keyPair.getPrivate());
+                break;
+            case "ES256":
+                jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_256, algorithm);
+                signer = new ECDSASigner((ECPrivateKey) keyPair.getPrivate());
+                break;
+            case "ES384":
+                jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_384, algorithm);
+                signer = new ECDSASigner((ECPrivateKey) keyPair.getPrivate());
+                break;
+            case "ES512":
+                jwk = createECJWK(kid, keyPair.getPublic(), ECKey.Curve.P_521, algorithm);
+                signer = new ECDSASigner((ECPrivateKey) keyPair.getPrivate());
+                break;
+            default:
+                throw new UnsupportedOperationException("Algorithm not supported for key " + kid + ": " + rawAlgorithm);
+        }
+
+        return new ParsedKey(jwk, new Signer(kid, signer, algorithm, keyPair.getPrivate(), signatureProvider(algorithm)));
+    }
+
+    private Provider signatureProvider(JWSAlgorithm algorithm) {
+        if (signatureProperties == null) {
+            return null;
+        }
+        return SignatureProperties.getProvider(JWSAlgorithm.Family.EC.contains(algorithm)
+                ? signatureProperties.getEcProvider()
+                : signatureProperties.getRsaProvider());
     }
 
     private JWK createRSAJWK(final String kid, final PublicKey publicKey, final JWSAlgorithm algorithm) {
@@ -258,11 +435,38 @@ public class OIDCKeyHolder {
         private final String kid;
         private final JWSSigner signer;
         private final JWSAlgorithm algorithm;
-
-        private Signer(String kid, final JWSSigner signer, final JWSAlgorithm algorithm) {
+        private final JWSHeader header;
+        private final byte[] encodedHeader;
+
+        // JCA algorithm name if we sign without Nimbus (i.e. not for PS*)
+        private final String signatureAlgorithm;
+        // length of the JWS (R | S) signature for ES*, JCA produces DER
+        private final int ecSignatureLength;
+        private final PrivateKey privateKey;
+        private final Provider provider;
+        // Signature objects are not thread-safe, Nimbus looks up and initializes a new one for every token
+        private final ThreadLocal<Signature> signatures;
+
+        private Signer(String kid, final JWSSigner signer, final JWSAlgorithm algorithm, PrivateKey privateKey,
+                       Provider provider) {
             this.kid = kid;
             this.signer = signer;
             this.algorithm = algorithm;
+            // the header is the same for every token signed with this key, so serialize it only once
+            this.header = new JWSHeader(algorithm, null, null, null, null, null, null, null, null, null, kid, null, null);
+            this.encodedHeader = header.toBase64URL().toString().getBytes(US_ASCII);
+
+            this.signatureAlgorithm = privateKey != null ? JCA_ALGORITHMS.get(algorithm.getName()) : null;
+            this.ecSignatureLength = EC_SIGNATURE_LENGTHS.getOrDefault(algorithm.getName(), 0);
+            this.privateKey = provider != null && privateKey != null ? translateKey(privateKey, provider) : privateKey;
+            this.provider = provider;
+            if (signatureAlgorithm != null) {
+                // fail on reload already if the provider does not support the key
+                newSignature();
+                this.signatures = ThreadLocal.withInitial(this::newSignature);
+            } else {
+                this.signatures = null;
+            }
         }
 
         public String getKid() {
@@ -276,31 +480,161 @@ public class OIDCKeyHolder {
         public JWSAlgorithm getAlgorithm() {
             return algorithm;
         }
+
+        public JWSHeader getHeader() {
+            return header;
+        }
+
+        /**
+         * @return the base64url encoded header (ASCII), must not be modified
+         */
+        byte[] getEncodedHeader() {
+            return encodedHeader;
+        }
+
+        /**
+         * Same as {@code getJWSSigner().sign(getHeader(), signingInput)}, but with a pre-initialized
+         * Signature of the current thread.
+         */
+        Base64URL sign(byte[] signingInput) throws JOSEException {
+            if (signatures == null) {
+                return signer.sign(header, signingInput);
+            }
+            final Signature signature = signatures.get();
+            try {
+                signature.update(signingInput);
+                final byte[] result = signature.sign();
+                return Base64URL.encode(ecSignatureLength > 0 ? derToConcat(result, ecSignatureLength) : result);
+            } catch (SignatureException e) {
+                // the state of the Signature is undefined now
+                signatures.remove();
+                throw new JOSEException(e.getMessage(), e);
+            }
+        }
+
+        private Signature newSignature() {
+            try {
+                final Signature signature = provider != null
+                        ? Signature.getInstance(signatureAlgorithm, provider)
+                        : Signature.getInstance(signatureAlgorithm);
+                // sign() resets the Signature to this state, so it can be reused
+                signature.initSign(privateKey);
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot sign with key " + kid + " (" + signatureAlgorithm + ")", e);
+            }
+        }
+
+        /**
+         * The keys are parsed by BouncyCastle, other providers (e.g. SunEC) do not accept them as they are.
+         */
+        private PrivateKey translateKey(PrivateKey key, Provider provider) {
+            try {
+                final String keyAlgorithm = JWSAlgorithm.Family.EC.contains(algorithm) ? "EC" : "RSA";
+                return KeyFactory.getInstance(keyAlgorithm, provider)
+                        .generatePrivate(new PKCS8EncodedKeySpec(key.getEncoded()));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot use key " + kid + " with provider " + provider.getName(), e);
+            }
+        }
+
+        /**
+         * Transcode an ASN.1 DER encoded ECDSA signature to the concatenated R and S values of JWS.
+         */
+        static byte[] derToConcat(byte[] der, int length) throws JOSEException {
+            // SEQUENCE { INTEGER r, INTEGER s }, the sequence length is in long form for P-521
+            if (der.length < 8 || der[0] != 0x30) {
+                throw invalidSignature();
+            }
+            final int sequenceLength;
+            final int rOffset;
+            if ((der[1] & 0x80) == 0) {
+                sequenceLength = der[1];
+                rOffset = 2;
+            } else if (der[1] == (byte) 0x81) {
+                sequenceLength = der[2] & 0xFF;
+                rOffset = 3;
+            } else {
+                throw invalidSignature();
+            }
+            if (rOffset + sequenceLength != der.length) {
+                throw invalidSignature();
+            }
+            final byte[] concat = new byte[length];
+            final int sOffset = copyInteger(der, rOffset, concat, 0, length / 2);
+            if (copyInteger(der, sOffset, concat, length / 2, length / 2) != der.length) {
+                throw invalidSignature();
+            }
+            return concat;
+        }
+
+        /**
+         * @return the offset behind the integer
+         */
+        private static int copyInteger(byte[] der, int offset, byte[] dst, int dstOffset, int size) throws JOSEException {
+            if (offset + 2 > der.length || der[offset] != 0x02) {
+                throw invalidSignature();
+            }
+            // always short form, the integers of P-521 have 67 bytes at most
+            final int end = offset + 2 + der[offset + 1];
+            int length = der[offset + 1];
+            int start = offset + 2;
+            if (length <= 0 || end > der.length) {
+                throw invalidSignature();
+            }
+            // strip the sign byte (and any other leading zeros), pad on the left
+            while (length > size && der[start] == 0) {
+                start++;
+                length--;
+            }
+            if (length > size) {
+                throw invalidSignature();
+            }
+            System.arraycopy(der, start, dst, dstOffset + size - length, length);
+            return end;
+        }
+
+        private static JOSEException invalidSignature() {
+            return new JOSEException("Invalid ECDSA signature format");
+        }
     }
 
-    private static class Key implements Comparable<Key> {
-        private final String kid;
-        private final KeyPair keyPair;
-        private final JWSAlgorithm algorithm;
-        private final int validFrom;
+    /**
+     * A stored key pair after parsing, kept across reloads as long as the stored key does not change.
+     */
+    private static class ParsedKey {
+        private final JWK jwk;
+        private final Signer signer;
 
-        private Key(String kid, KeyPair keyPair, JWSAlgorithm algorithm, int validFrom) {
-            this.kid = kid;
-            this.keyPair = keyPair;
-            this.algorithm = algorithm;
-            this.validFrom = validFrom;
+        private ParsedKey(JWK jwk, Signer signer) {
+            this.jwk = jwk;
+            this.signer = signer;
         }
 
         public String getKid() {
-            return kid;
+            return signer.getKid();
         }
 
-        public KeyPair getKeyPair() {
-            return keyPair;
+        public JWK getJwk() {
+            return jwk;
         }
 
-        public JWSAlgorithm getAlgorithm() {
-            return algorithm;
+        public Signer getSigner() {
+            return signer;
+        }
+    }
+
+    private static class Key implements Comparable<Key> {
+        private final ParsedKey parsedKey;
+        private final int validFrom;
+
+        private Key(ParsedKey parsedKey, int validFrom) {
+            this.parsedKey = parsedKey;
+            this.validFrom = validFrom;
+        }
+
+        public ParsedKey getParsedKey() {
+            return parsedKey;
         }
 
         public int getValidFrom() {
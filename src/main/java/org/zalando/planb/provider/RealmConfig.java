@@ -1,6 +1,5 @@
 package org.zalando.planb.provider;
 
-import com.google.common.collect.ImmutableSet;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
@@ -16,8 +15,8 @@ import javax.validation.constraints.NotNull;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.regex.Pattern;
+
+import static java.util.Collections.emptySet;
 
 @Component
 public class RealmConfig implements BeanFactoryAware {
@@ -25,7 +24,8 @@ public class RealmConfig implements BeanFactoryAware {
     private final Map<String, UserRealm> userRealms = new HashMap<>();
     private BeanFactory beanFactory;
 
-    private static final Pattern HOST_WORD_BOUNDARY = Pattern.compile("[.-]");
+    // rebuilt after the realms were created
+    private volatile RealmIndex index = new RealmIndex(emptySet());
 
     private RealmProperties realmProperties;
 
@@ -64,29 +64,15 @@ public class RealmConfig implements BeanFactoryAware {
             Class<? extends UserRealm> userImpl = realmProperties.getUserImpl(realmName, CassandraUserRealm.class);
             newRealm(realmName, clientImpl, userImpl);
         }
-    }
-
-    static Optional<String> findRealmNameInHost(@NotNull final Set<String> realmNames, @NotNull final String host) {
-        Set<String> hostParts = ImmutableSet.copyOf(HOST_WORD_BOUNDARY.split(host));
-        return realmNames.stream()
-                .filter(realm -> hostParts.contains(stripLeadingSlash(realm)))
-                .sorted()
-                .findFirst();
-    }
-
-    static Optional<String> findRealmNameInRealm(@NotNull final Set<String> realmNames, @NotNull final String realm) {
-        return realmNames.stream()
-                .filter(r -> stripLeadingSlash(realm).equals(stripLeadingSlash(r)))
-                .sorted()
-                .findFirst();
+        index = new RealmIndex(clientRealms.keySet());
     }
 
     Optional<String> findRealmNameInHost(@NotNull final String host) {
-        return findRealmNameInHost(clientRealms.keySet(), host);
+        return index.findRealmNameInHost(host);
     }
 
     Optional<String> findRealmNameInRealm(@NotNull final String realm) {
-        return findRealmNameInRealm(clientRealms.keySet(), realm);
+        return index.findRealmNameInRealm(realm);
     }
 
     UserRealm getUserRealm(String name) {
@@ -0,0 +1,139 @@
+package org.zalando.planb.provider;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
+
+/**
+ * Immutable lookup structure for the configured realm names, so resolving the realm of a request neither scans nor
+ * sorts the realm names, and does not allocate.
+ *
+ * Realm names match without their leading slash, e.g. "/services" matches the realm parameter "services" and
+ * the host "planb-provider.services.example.org". If several realm names match, the first one in sort order wins.
+ */
+final class RealmIndex {
+
+    // there are only a few distinct hosts, but the Host header is sent by clients
+    private static final int MAX_CACHED_HOSTS = 1000;
+
+    // realm parameter ("services" or "/services") -> realm name
+    private final Map<String, Optional<String>> byName;
+
+    // realm names without leading slash, character by character, to match the labels of a host in place
+    private final Node hostLabels = new Node();
+
+    private final Cache<String, Optional<String>> hosts = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_HOSTS).build();
+
+    RealmIndex(Collection<String> realmNames) {
+        final Map<String, Optional<String>> names = new HashMap<>();
+        realmNames.stream().sorted().forEach(realm -> {
+            final Optional<String> result = Optional.of(realm);
+            final String name = stripLeadingSlash(realm);
+            if (!name.startsWith("/")) {
+                names.putIfAbsent(name, result);
+            }
+            names.putIfAbsent("/" + name, result);
+            if (!name.isEmpty() && name.chars().noneMatch(RealmIndex::isHostLabelBoundary)) {
+                hostLabels.add(name, result);
+            }
+        });
+        byName = ImmutableMap.copyOf(names);
+    }
+
+    private static boolean isHostLabelBoundary(int ch) {
+        return ch == '.' || ch == '-';
+    }
+
+    /**
+     * @return the realm whose name is one of the host's labels (separated by "." or "-"), memoized per host
+     */
+    Optional<String> findRealmNameInHost(String host) {
+        final Optional<String> cached = hosts.getIfPresent(host);
+        if (cached != null) {
+            return cached;
+        }
+        final Optional<String> found = matchHostLabels(host);
+        hosts.put(host, found);
+        return found;
+    }
+
+    private Optional<String> matchHostLabels(String host) {
+        Optional<String> found = null;
+        final int length = host.length();
+        for (int i = 0; i <= length; i++) {
+            Node node = hostLabels;
+            for (; i < length && !isHostLabelBoundary(host.charAt(i)); i++) {
+                if (node != null) {
+                    node = node.child(host.charAt(i));
+                }
+            }
+            if (node != null && node.realm != null && (found == null || node.realm.get().compareTo(found.get()) < 0)) {
+                found = node.realm;
+            }
+        }
+        return found != null ? found : Optional.empty();
+    }
+
+    /**
+     * @return the realm with the given name, the leading slash is optional
+     */
+    Optional<String> findRealmNameInRealm(String realm) {
+        return byName.getOrDefault(realm, Optional.empty());
+    }
+
+    private static final class Node {
+
+        // sorted, for binary search
+        private char[] chars = new char[0];
+        private Node[] children = new Node[0];
+
+        // the (first) realm whose name ends here
+        private Optional<String> realm;
+
+        void add(String name, Optional<String> result) {
+            Node node = this;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.getOrAddChild(name.charAt(i));
+            }
+            if (node.realm == null) {
+                node.realm = result;
+            }
+        }
+
+        Node child(char ch) {
+            final int index = Arrays.binarySearch(chars, ch);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrAddChild(char ch) {
+            final int index = Arrays.binarySearch(chars, ch);
+            if (index >= 0) {
+                return children[index];
+            }
+            final int insertAt = -index - 1;
+            final Node child = new Node();
+
+            final char[] newChars = new char[chars.length + 1];
+            System.arraycopy(chars, 0, newChars, 0, insertAt);
+            newChars[insertAt] = ch;
+            System.arraycopy(chars, insertAt, newChars, insertAt + 1, chars.length - insertAt);
+
+            final Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newChildren[insertAt] = child;
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            chars = newChars;
+            children = newChildren;
+            return child;
+        }
+    }
+}
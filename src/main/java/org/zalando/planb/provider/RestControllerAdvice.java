@@ -13,6 +13,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import static org.springframework.http.ResponseEntity.status;
 
@@ -38,6 +40,18 @@ public class RestControllerAdvice {
         return status(HttpStatus.SERVICE_UNAVAILABLE).body(errorBody("unavailable_dependency", "Dependency unavailable"));
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejectedExecutionExceptions(RejectedExecutionException e) {
+        log.warn("Request rejected, worker pool saturated: {}", e.getMessage());
+        return status(HttpStatus.SERVICE_UNAVAILABLE).body(errorBody("unavailable_dependency", "Dependency unavailable"));
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<Map<String, String>> handleTimeoutExceptions(TimeoutException e) {
+        log.warn("Dependency timed out: {}", e.getMessage());
+        return status(HttpStatus.SERVICE_UNAVAILABLE).body(errorBody("unavailable_dependency", "Dependency unavailable"));
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<Map<String, String>> handleRequestMethodNotSupportedExceptions(HttpRequestMethodNotSupportedException e) {
        return status(HttpStatus.METHOD_NOT_ALLOWED).header(HttpHeaders.ALLOW, e.getSupportedMethods()).body(errorBody("not_allowed", e.getMessage()));
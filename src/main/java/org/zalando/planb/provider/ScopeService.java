@@ -1,15 +1,18 @@
 package org.zalando.planb.provider;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.zalando.planb.provider.realms.ClientRealm;
 
+import javax.annotation.PostConstruct;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.joining;
 
 @Component
@@ -17,17 +20,38 @@ public class ScopeService {
 
     private static final String SPACE = " ";
 
+    // most clients send one of a few scope strings, but the strings are chosen by clients
+    private static final int MAX_CACHED_SCOPES = 10000;
+
+    // scope string -> parsed set, so the same request parameter always yields the same (immutable) instance
+    private static final Cache<String, ScopeSet> SCOPES = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCOPES).build();
+
     @Autowired
     private ScopeProperties scopeProperties;
 
+    @PostConstruct
+    void setup() {
+        boolean added = false;
+        for (String defaultScopes : scopeProperties.getDefaults().values()) {
+            added |= ScopeSet.register(asList(defaultScopes.trim().split(SPACE)));
+        }
+        if (added) {
+            // parse the default scopes again, now with all their bits set
+            SCOPES.invalidateAll();
+        }
+    }
+
     public Set<String> getDefaultScopesForClient(final ClientRealm clientRealm, final ClientData clientData) {
         return clientData.getDefaultScopes().isEmpty() ?
                 getDefaultScopesByRealm(clientRealm.getName()) : clientData.getDefaultScopes();
     }
 
     public Set<String> getDefaultScopesForClient(final ClientRealm clientRealm, final String clientId) {
-        return clientRealm
-                .get(clientId)
+        return getDefaultScopesForClient(clientRealm, clientRealm.get(clientId));
+    }
+
+    public Set<String> getDefaultScopesForClient(final ClientRealm clientRealm, final Optional<ClientData> client) {
+        return client
                 .map(clientData -> getDefaultScopesForClient(clientRealm, clientData))
                 .orElse(getDefaultScopesByRealm(clientRealm.getName()));
     }
@@ -43,18 +67,62 @@ public class ScopeService {
     }
 
     public static Set<String> split(String scope) {
-        return ImmutableSet.copyOf(scope.split(SPACE)).stream().sorted().collect(Collectors.toSet());
+        final ScopeSet cached = SCOPES.getIfPresent(scope);
+        if (cached != null) {
+            return cached;
+        }
+        final ScopeSet scopes = ScopeSet.of(scope.split(SPACE));
+        SCOPES.put(scope, scopes);
+        return scopes;
     }
 
     public static Set<String> split(Optional<String> scope) {
         return scope.map(String::trim)
                 .filter(s -> !s.isEmpty())
                 .map(ScopeService::split)
-                .orElseGet(Collections::emptySet);
+                .orElse(ScopeSet.EMPTY);
     }
 
     public static String join(Set<String> scopes) {
+        if (scopes instanceof ScopeSet) {
+            return ((ScopeSet) scopes).join();
+        }
         return scopes.stream().sorted().collect(joining(SPACE));
     }
 
+    /**
+     * @param requestedScopes the scopes to check
+     * @param defaultScopes   scopes everybody gets
+     * @param grantedScopes   scopes of the client or user
+     * @return the requested scopes that are neither default nor granted scopes, an empty set (without allocating
+     * anything) in the common case of a valid request
+     */
+    public static Set<String> getMissingScopes(Set<String> requestedScopes, Set<String> defaultScopes, Set<String> grantedScopes) {
+        if (requestedScopes instanceof ScopeSet) {
+            final ScopeSet requested = (ScopeSet) requestedScopes;
+            if (defaultScopes instanceof ScopeSet && requested.isMaskedSubsetOf((ScopeSet) defaultScopes)) {
+                return Collections.emptySet();
+            }
+            Set<String> missing = null;
+            for (int i = 0; i < requested.size(); i++) {
+                missing = addIfMissing(missing, requested.get(i), defaultScopes, grantedScopes);
+            }
+            return missing != null ? missing : Collections.emptySet();
+        }
+        Set<String> missing = null;
+        for (String scope : requestedScopes) {
+            missing = addIfMissing(missing, scope, defaultScopes, grantedScopes);
+        }
+        return missing != null ? missing : Collections.emptySet();
+    }
+
+    private static Set<String> addIfMissing(Set<String> missing, String scope, Set<String> defaultScopes, Set<String> grantedScopes) {
+        if (defaultScopes.contains(scope) || grantedScopes.contains(scope)) {
+            return missing;
+        }
+        final Set<String> result = missing != null ? missing : new HashSet<>();
+        result.add(scope);
+        return result;
+    }
+
 }
@@ -0,0 +1,145 @@
+package org.zalando.planb.provider;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable set of scopes in canonical (sorted) order, created by {@link ScopeService#split(String)}.
+ *
+ * The space separated form is computed once, and every scope of the registered vocabulary (the configured default
+ * scopes, see {@link #register(Collection)}) has a bit in {@link #mask}, so checking a requested set against the
+ * default scopes is a single mask operation. Scopes outside the vocabulary (sent by clients, granted to single
+ * clients or users) have no bit and are checked one by one.
+ */
+public final class ScopeSet extends AbstractSet<String> {
+
+    static final ScopeSet EMPTY = new ScopeSet(new String[0]);
+
+    private static final int MAX_VOCABULARY = Long.SIZE;
+
+    // scope -> bit, only ever grows (bits are never reused), so masks of existing sets stay valid
+    private static final Map<String, Integer> VOCABULARY = new ConcurrentHashMap<>();
+
+    private final String[] scopes;
+
+    private final String joined;
+
+    private final long mask;
+
+    // number of scopes without a bit in the vocabulary
+    private final int unmasked;
+
+    private int hashCode;
+
+    private ScopeSet(String[] scopes) {
+        this.scopes = scopes;
+        this.joined = String.join(" ", scopes);
+        long mask = 0;
+        int unmasked = 0;
+        for (String scope : scopes) {
+            final Integer bit = VOCABULARY.get(scope);
+            if (bit != null) {
+                mask |= 1L << bit;
+            } else {
+                unmasked++;
+            }
+        }
+        this.mask = mask;
+        this.unmasked = unmasked;
+    }
+
+    /**
+     * @param scopes scopes in any order, may contain duplicates
+     */
+    static ScopeSet of(String... scopes) {
+        final String[] sorted = scopes.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || !sorted[i].equals(sorted[distinct - 1])) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == 0 ? EMPTY : new ScopeSet(distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct));
+    }
+
+    /**
+     * Assign bits to the given scopes, as long as there are bits left. Sets created before keep their masks, they
+     * just do not profit from the new bits.
+     *
+     * @return true if any scope was added
+     */
+    static synchronized boolean register(Collection<String> scopes) {
+        boolean added = false;
+        for (String scope : scopes) {
+            if (!scope.isEmpty() && VOCABULARY.size() < MAX_VOCABULARY && !VOCABULARY.containsKey(scope)) {
+                VOCABULARY.put(scope, VOCABULARY.size());
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return true if every scope of this set is contained in the given set, known from the masks alone
+     */
+    boolean isMaskedSubsetOf(ScopeSet other) {
+        return unmasked == 0 && (mask & ~other.mask) == 0;
+    }
+
+    String get(int index) {
+        return scopes[index];
+    }
+
+    /**
+     * @return the scopes in sorted order separated by a space
+     */
+    String join() {
+        return joined;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && Arrays.binarySearch(scopes, o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return scopes.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < scopes.length;
+            }
+
+            @Override
+            public String next() {
+                if (index >= scopes.length) {
+                    throw new NoSuchElementException();
+                }
+                return scopes[index++];
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0 && scopes.length > 0) {
+            h = super.hashCode();
+            hashCode = h;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,133 @@
+package org.zalando.planb.provider;
+
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Keeps the codes in memory instead of Cassandra. Every code lives on exactly one instance, picked by a consistent
+ * hash of the code, so any instance can redeem a code created by any other instance with a single call to the owner.
+ * Codes of an instance which restarts are lost, the affected users have to log in again.
+ * If the owner of a new code is unavailable, another code is generated, until one is owned by an available instance
+ * (at the latest this one).
+ */
+@Component
+@ConditionalOnProperty(prefix = "authorizationCode", name = "sharded", havingValue = "true")
+public class ShardedAuthorizationCodeService implements AuthorizationCodeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedAuthorizationCodeService.class);
+
+    private final ShardedAuthorizationCodeStore store;
+
+    private final List<AuthorizationCodePeer> peers;
+
+    @Autowired
+    public ShardedAuthorizationCodeService(AuthorizationCodeProperties properties,
+                                           @Qualifier(AsyncConfig.WORKER_EXECUTOR) ExecutorService workerExecutor) {
+        this.store = new ShardedAuthorizationCodeStore(properties.getShards());
+        this.peers = peers(properties, store, workerExecutor);
+    }
+
+    /**
+     * @param peers all instances in the same order as on the other instances, including this one (using the store)
+     */
+    ShardedAuthorizationCodeService(ShardedAuthorizationCodeStore store, List<AuthorizationCodePeer> peers) {
+        this.store = store;
+        this.peers = peers;
+    }
+
+    private static List<AuthorizationCodePeer> peers(AuthorizationCodeProperties properties, ShardedAuthorizationCodeStore store,
+                                                     ExecutorService workerExecutor) {
+        if (properties.getPeers().isEmpty()) {
+            return singletonList(new LocalAuthorizationCodePeer(store));
+        }
+        checkState(properties.getPeers().contains(properties.getSelf()), "authorizationCode.self must be one of the authorizationCode.peers");
+        checkState(properties.getKey() != null, "authorizationCode.key is required for authorizationCode.peers");
+
+        final SecretKeySpec key = AesGcm.key(properties.getKey());
+        return properties.getPeers().stream()
+                .map(url -> url.equals(properties.getSelf())
+                        ? new LocalAuthorizationCodePeer(store)
+                        : new HttpAuthorizationCodePeer(url, key, properties.getPeerTimeout(),
+                                properties.getPeerMaxConnections(), workerExecutor))
+                .collect(toList());
+    }
+
+    ShardedAuthorizationCodeStore getStore() {
+        return store;
+    }
+
+    AuthorizationCodePeer getOwner(String code) {
+        return peers.get(Hashing.consistentHash(Hashing.murmur3_32().hashString(code, US_ASCII), peers.size()));
+    }
+
+    @Override
+    public String create(String state, String clientId, String realm, Set<String> scopes, Map<String, String> claims, URI redirectUri) {
+        final long expires = System.currentTimeMillis() / 1000 + LIFETIME.getSeconds();
+        final Set<AuthorizationCodePeer> unavailable = new HashSet<>();
+        RuntimeException lastError = null;
+        while (unavailable.size() < peers.size()) {
+            final String code = CassandraAuthorizationCodeService.getRandomCode();
+            final AuthorizationCodePeer owner = getOwner(code);
+            if (unavailable.contains(owner)) {
+                // no call needed, just try another code
+                continue;
+            }
+            final AuthorizationCode authorizationCode = AuthorizationCode.builder()
+                    .code(code)
+                    .state(state)
+                    .clientId(clientId)
+                    .realm(realm)
+                    .scopes(scopes)
+                    .claims(claims)
+                    .redirectUri(redirectUri)
+                    .build();
+            try {
+                if (owner.store(authorizationCode, expires)) {
+                    return code;
+                }
+                // the (random) code already exists, try another one
+            } catch (RuntimeException e) {
+                LOG.warn("Could not store authorization code on {}: {}", owner, e.toString());
+                unavailable.add(owner);
+                lastError = e;
+            }
+        }
+        throw new IllegalStateException("Authorization code was not stored", lastError);
+    }
+
+    @Override
+    public Optional<AuthorizationCode> invalidate(String code) {
+        return getOwner(code).consume(code);
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> invalidateAsync(String code) {
+        return getOwner(code).consumeAsync(code);
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void expireCodes() {
+        store.expire();
+    }
+}
@@ -0,0 +1,159 @@
+package org.zalando.planb.provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The authorization codes owned by this instance, in shards with a lock each, so concurrent logins rarely contend.
+ * Every shard drops expired codes with a timer wheel (one slot per second of the code lifetime), so expiring
+ * codes only costs work for the codes which actually expire.
+ */
+public class ShardedAuthorizationCodeStore {
+
+    // a code never expires more than LIFETIME in the future, so the wheel never wraps around a code
+    private static final int WHEEL_SLOTS = (int) AuthorizationCodeService.LIFETIME.getSeconds() + 2;
+
+    private final Shard[] shards;
+
+    public ShardedAuthorizationCodeStore(int shardCount) {
+        this(shardCount, now());
+    }
+
+    ShardedAuthorizationCodeStore(int shardCount, long now) {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(now);
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * @param expires expiry date in seconds since epoch
+     * @return false if the code is already known (or was used already) or the expiry is out of range
+     */
+    public boolean put(AuthorizationCode code, long expires) {
+        return put(code, expires, now());
+    }
+
+    boolean put(AuthorizationCode code, long expires, long now) {
+        return shard(code.getCode()).put(code, expires, now);
+    }
+
+    /**
+     * @return the code's data, only for the first caller and only if the code did not expire yet
+     */
+    public Optional<AuthorizationCode> consume(String code) {
+        return consume(code, now());
+    }
+
+    Optional<AuthorizationCode> consume(String code, long now) {
+        return shard(code).consume(code, now);
+    }
+
+    /**
+     * Drop all codes expired by now, meant to be called every second
+     */
+    public void expire() {
+        expire(now());
+    }
+
+    void expire(long now) {
+        for (Shard shard : shards) {
+            shard.expire(now);
+        }
+    }
+
+    /**
+     * @return number of codes held, including used ones which did not expire yet
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private Shard shard(String code) {
+        return shards[(code.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private static class Shard {
+
+        private final Map<String, Entry> codes = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private final List<String>[] wheel = new List[WHEEL_SLOTS];
+
+        private long expiredUntil;
+
+        Shard(long now) {
+            expiredUntil = now;
+        }
+
+        synchronized boolean put(AuthorizationCode code, long expires, long now) {
+            if (expires <= now || expires - now >= WHEEL_SLOTS || codes.containsKey(code.getCode())) {
+                return false;
+            }
+            codes.put(code.getCode(), new Entry(code, expires));
+            final int slot = (int) (expires % WHEEL_SLOTS);
+            if (wheel[slot] == null) {
+                wheel[slot] = new ArrayList<>();
+            }
+            wheel[slot].add(code.getCode());
+            return true;
+        }
+
+        synchronized Optional<AuthorizationCode> consume(String code, long now) {
+            final Entry entry = codes.get(code);
+            if (entry == null || entry.data == null || entry.expires <= now) {
+                return Optional.empty();
+            }
+            final AuthorizationCode data = entry.data;
+            // the entry stays until it expires, so the code can not be stored again
+            entry.data = null;
+            return Optional.of(data);
+        }
+
+        synchronized void expire(long now) {
+            // if we fell behind by more than a round, every slot is visited once
+            for (long second = Math.max(expiredUntil + 1, now - WHEEL_SLOTS + 1); second <= now; second++) {
+                final List<String> slot = wheel[(int) (second % WHEEL_SLOTS)];
+                if (slot != null) {
+                    slot.removeIf(code -> {
+                        final Entry entry = codes.get(code);
+                        if (entry != null && entry.expires > now) {
+                            return false;
+                        }
+                        codes.remove(code);
+                        return true;
+                    });
+                }
+            }
+            expiredUntil = Math.max(expiredUntil, now);
+        }
+
+        synchronized int size() {
+            return codes.size();
+        }
+    }
+
+    private static class Entry {
+
+        // null once the code was used
+        private AuthorizationCode data;
+
+        private final long expires;
+
+        Entry(AuthorizationCode data, long expires) {
+            this.data = data;
+            this.expires = expires;
+        }
+    }
+}
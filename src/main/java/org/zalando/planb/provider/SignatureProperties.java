@@ -0,0 +1,39 @@
+package org.zalando.planb.provider;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.security.Provider;
+import java.security.Security;
+
+/**
+ * JCA providers used to sign tokens, e.g. "SunEC" or "BC" (both are registered), compare them with
+ * the SigningBenchmark. If not set, the first provider supporting the key is used.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "signature")
+public class SignatureProperties {
+
+    /**
+     * Provider for RS* algorithms
+     */
+    private String rsaProvider;
+
+    /**
+     * Provider for ES* algorithms, BouncyCastle signs several times faster than SunEC on Java 8
+     */
+    private String ecProvider = "BC";
+
+    static Provider getProvider(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        final Provider provider = Security.getProvider(name);
+        if (provider == null) {
+            throw new IllegalArgumentException("Security provider not registered: " + name);
+        }
+        return provider;
+    }
+}
@@ -0,0 +1,95 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.Meter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coalesces concurrent calls with the same key: while a call is in flight, further callers wait for its outcome
+ * (value or exception) instead of starting their own. Completed calls are not remembered, the next caller starts
+ * a new one.
+ *
+ * Every caller gets its own future with its own timeout, so a caller which joins late still waits at most the
+ * timeout, and cancelling one future does not affect the other callers.
+ */
+public class SingleFlight<K, V> {
+
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("single-flight-timer").setDaemon(true).build());
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final long timeoutMillis;
+
+    private final Meter coalesced;
+
+    /**
+     * @param timeout   how long each caller waits at most, the call itself keeps running
+     * @param coalesced marked for every caller which joined a call in flight
+     */
+    public SingleFlight(Duration timeout, Meter coalesced) {
+        this.timeoutMillis = timeout.toMillis();
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * @param key  identifies calls which can share their outcome
+     * @param call starts the call, only invoked if no call with the same key is in flight
+     * @return the outcome of the call in flight or the new call, or a {@link TimeoutException}
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.mark();
+            return withTimeout(existing);
+        }
+
+        CompletableFutures.from(call).whenComplete((value, error) -> {
+            // remove first, callers arriving from now on must not get this outcome anymore
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(value);
+            }
+        });
+        return withTimeout(created);
+    }
+
+    /**
+     * @return number of calls in flight
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+    private CompletableFuture<V> withTimeout(CompletableFuture<V> shared) {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timeout = TIMER.schedule(
+                () -> result.completeExceptionally(new TimeoutException("No result after " + timeoutMillis + " ms")),
+                timeoutMillis, MILLISECONDS);
+        shared.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(CompletableFutures.unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+}
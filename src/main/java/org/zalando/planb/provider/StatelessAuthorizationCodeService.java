@@ -0,0 +1,136 @@
+package org.zalando.planb.provider;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * The code is the encrypted (and authenticated) code data itself, so creating a code needs no storage at all,
+ * and redeeming it only needs to record its ID in the {@link AuthorizationCodeReplayStore}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "authorizationCode", name = "stateless", havingValue = "true")
+public class StatelessAuthorizationCodeService implements AuthorizationCodeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StatelessAuthorizationCodeService.class);
+
+    // binds the ciphertext to its purpose and format version
+    private static final byte[] ASSOCIATED_DATA = "planb-authorization-code-v1".getBytes(US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SecretKeySpec key;
+
+    private final AuthorizationCodeReplayStore replayStore;
+
+    @Autowired
+    public StatelessAuthorizationCodeService(AuthorizationCodeProperties properties, AuthorizationCodeReplayStore replayStore) {
+        if (properties.getKey() == null) {
+            throw new IllegalStateException("authorizationCode.key is required for stateless authorization codes");
+        }
+        this.key = AesGcm.key(properties.getKey());
+        this.replayStore = replayStore;
+    }
+
+    @Override
+    public String create(String state, String clientId, String realm, Set<String> scopes, Map<String, String> claims, URI redirectUri) {
+        final CodeData data = new CodeData();
+        data.id = CassandraAuthorizationCodeService.getRandomCode();
+        data.state = state;
+        data.clientId = clientId;
+        data.realm = realm;
+        data.scopes = scopes;
+        data.claims = claims;
+        data.redirectUri = redirectUri.toString();
+        data.expires = Instant.now().plus(LIFETIME).getEpochSecond();
+        try {
+            final byte[] encrypted = AesGcm.encrypt(key, ASSOCIATED_DATA, objectMapper.writeValueAsBytes(data));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(encrypted);
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not create authorization code", e);
+        }
+    }
+
+    @Override
+    public Optional<AuthorizationCode> invalidate(String code) {
+        return decrypt(code)
+                .filter(data -> replayStore.markUsed(data.id, Instant.ofEpochSecond(data.expires)))
+                .map(data -> toAuthorizationCode(code, data));
+    }
+
+    @Override
+    public CompletableFuture<Optional<AuthorizationCode>> invalidateAsync(String code) {
+        final Optional<CodeData> data = decrypt(code);
+        if (!data.isPresent()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return replayStore.markUsedAsync(data.get().id, Instant.ofEpochSecond(data.get().expires))
+                .thenApply(firstUse -> firstUse ? Optional.of(toAuthorizationCode(code, data.get())) : Optional.empty());
+    }
+
+    /**
+     * @return the code's data, if it was issued by us and did not expire yet
+     */
+    private Optional<CodeData> decrypt(String code) {
+        try {
+            final byte[] json = AesGcm.decrypt(key, ASSOCIATED_DATA, Base64.getUrlDecoder().decode(code));
+            return Optional.of(objectMapper.readValue(json, CodeData.class))
+                    .filter(data -> data.expires > Instant.now().getEpochSecond());
+        } catch (IllegalArgumentException | GeneralSecurityException | IOException e) {
+            LOG.debug("Invalid authorization code: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static AuthorizationCode toAuthorizationCode(String code, CodeData data) {
+        return AuthorizationCode.builder()
+                .code(code)
+                .state(data.state)
+                .clientId(data.clientId)
+                .realm(data.realm)
+                .scopes(data.scopes)
+                .claims(data.claims)
+                .redirectUri(URI.create(data.redirectUri))
+                .build();
+    }
+
+    /**
+     * The encrypted part, short names keep the code (an URL parameter) small
+     */
+    static class CodeData {
+        @JsonProperty("i")
+        public String id;
+        @JsonProperty("st")
+        public String state;
+        @JsonProperty("c")
+        public String clientId;
+        @JsonProperty("r")
+        public String realm;
+        @JsonProperty("sc")
+        public Set<String> scopes;
+        @JsonProperty("cl")
+        public Map<String, String> claims;
+        @JsonProperty("u")
+        public String redirectUri;
+        @JsonProperty("e")
+        public long expires;
+    }
+}
@@ -0,0 +1,111 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
+
+/**
+ * Timers of the token endpoint, resolved once per realm, outcome and error location, so recording a request
+ * neither builds a metric name nor looks it up in the {@link MetricRegistry}.
+ *
+ * Names are unchanged: "planb.provider.access_token.{realm}.success", "planb.provider.access_token.{realm}.error.{client,user,other}"
+ * and "planb.provider.jwt.signing.{algorithm}".
+ */
+@Component
+public class TokenMetrics {
+
+    static final String ACCESS_TOKEN_PREFIX = "planb.provider.access_token.";
+    static final String SIGNING_PREFIX = "planb.provider.jwt.signing.";
+    static final String UNKNOWN_REALM = "unknown-realm";
+    static final String OTHER_ERROR = "other";
+
+    private final MetricRegistry metricRegistry;
+
+    private final RealmProperties realmProperties;
+
+    private final ConcurrentHashMap<String, Timer> signingTimers = new ConcurrentHashMap<>();
+
+    private final RealmTimers unknownRealm;
+
+    // keyed by realm name with and without leading slash
+    private volatile Map<String, RealmTimers> realmTimers = ImmutableMap.of();
+
+    @Autowired
+    public TokenMetrics(MetricRegistry metricRegistry, RealmProperties realmProperties) {
+        this.metricRegistry = metricRegistry;
+        this.realmProperties = realmProperties;
+        this.unknownRealm = new RealmTimers(metricRegistry, UNKNOWN_REALM);
+    }
+
+    @PostConstruct
+    void setup() {
+        final Map<String, RealmTimers> timers = new HashMap<>();
+        for (String realmName : realmProperties.getNames()) {
+            final String name = stripLeadingSlash(realmName);
+            final RealmTimers realm = timers.computeIfAbsent(name, n -> new RealmTimers(metricRegistry, n));
+            timers.putIfAbsent("/" + name, realm);
+        }
+        realmTimers = ImmutableMap.copyOf(timers);
+    }
+
+    public Timer accessTokenSuccess(String realmName) {
+        return realm(realmName).success;
+    }
+
+    /**
+     * @param error the (unwrapped) cause of the failed token request, a {@link RealmNotFoundException} is counted for
+     *              the "unknown-realm" pseudo realm
+     */
+    public Timer accessTokenError(String realmName, Throwable error) {
+        final RealmTimers realm = error instanceof RealmNotFoundException ? unknownRealm : realm(realmName);
+        final String location = error instanceof RestException
+                ? ((RestException) error).getErrorLocation().orElse(OTHER_ERROR)
+                : OTHER_ERROR;
+        switch (location) {
+            case RestException.CLIENT_ERROR:
+                return realm.clientError;
+            case RestException.USER_ERROR:
+                return realm.userError;
+            case OTHER_ERROR:
+                return realm.otherError;
+            default:
+                return metricRegistry.timer(realm.prefix + ".error." + location);
+        }
+    }
+
+    public Timer signing(String algorithm) {
+        final Timer timer = signingTimers.get(algorithm);
+        return timer != null ? timer : signingTimers.computeIfAbsent(algorithm, a -> metricRegistry.timer(SIGNING_PREFIX + a));
+    }
+
+    private RealmTimers realm(String realmName) {
+        final RealmTimers realm = realmName != null ? realmTimers.get(realmName) : null;
+        // realms are fixed at startup, this is only hit by tests or misconfiguration
+        return realm != null ? realm : new RealmTimers(metricRegistry, stripLeadingSlash(String.valueOf(realmName)));
+    }
+
+    private static final class RealmTimers {
+        private final String prefix;
+        private final Timer success;
+        private final Timer clientError;
+        private final Timer userError;
+        private final Timer otherError;
+
+        private RealmTimers(MetricRegistry metricRegistry, String name) {
+            this.prefix = ACCESS_TOKEN_PREFIX + name;
+            this.success = metricRegistry.timer(prefix + ".success");
+            this.clientError = metricRegistry.timer(prefix + ".error." + RestException.CLIENT_ERROR);
+            this.userError = metricRegistry.timer(prefix + ".error." + RestException.USER_ERROR);
+            this.otherError = metricRegistry.timer(prefix + ".error." + OTHER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.zalando.planb.provider;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.zalando.planb.provider.realms.UpstreamAuthenticationCache;
+
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.http.HttpStatus.OK;
+
+/**
+ * Purge cached upstream logins (see {@link UpstreamAuthenticationCache}), e.g. after an employee account was
+ * compromised. Only affects this instance, so it has to be called on every instance.
+ */
+@RestController
+@RequestMapping(path = "/raw-sync/upstream-cache")
+public class UpstreamCacheController {
+
+    private final Logger log = getLogger(getClass());
+
+    private final UpstreamAuthenticationCache authenticationCache;
+
+    @Autowired
+    public UpstreamCacheController(UpstreamAuthenticationCache authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
+
+    @RequestMapping(path = "/{realm}", method = RequestMethod.DELETE)
+    public ResponseEntity<Void> purgeRealm(@PathVariable("realm") String realm) {
+        log.info("Purge cached upstream logins of /{}", realm);
+        authenticationCache.invalidate(RealmConfig.ensureLeadingSlash(realm));
+        return new ResponseEntity<>(OK);
+    }
+
+    @RequestMapping(path = "/{realm}/{id}", method = RequestMethod.DELETE)
+    public ResponseEntity<Void> purgeUser(@PathVariable("realm") String realm, @PathVariable("id") String id) {
+        log.info("Purge cached upstream logins of /{}/{}", realm, id);
+        authenticationCache.invalidate(RealmConfig.ensureLeadingSlash(realm), id);
+        return new ResponseEntity<>(OK);
+    }
+}
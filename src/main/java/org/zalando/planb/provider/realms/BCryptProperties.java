@@ -0,0 +1,22 @@
+package org.zalando.planb.provider.realms;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bcrypt")
+public class BCryptProperties {
+
+    /**
+     * Number of threads doing BCrypt checks, BCrypt is pure CPU work so there is no point in more threads than cores
+     */
+    private int poolSize = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of BCrypt checks allowed to wait for a free thread, further requests are rejected with 503
+     */
+    private int queueSize = 100;
+
+}
@@ -0,0 +1,140 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.CompletableFutures;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs BCrypt checks on a dedicated, bounded thread pool, so a login storm cannot pin all request threads.
+ *
+ * If all threads are busy and the queue is full, the check is rejected immediately with a
+ * {@link RejectedExecutionException} (mapped to 503 by the RestControllerAdvice).
+ */
+@Component
+public class BCryptVerifier {
+
+    private static final String METRIC_PREFIX = "planb.provider.bcrypt.";
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer waitTime;
+    private final Meter rejections;
+
+    @Autowired
+    public BCryptVerifier(BCryptProperties bcryptProperties, MetricRegistry metricRegistry) {
+        this.executor = new ThreadPoolExecutor(bcryptProperties.getPoolSize(), bcryptProperties.getPoolSize(),
+                0, MILLISECONDS,
+                new ArrayBlockingQueue<>(bcryptProperties.getQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("bcrypt-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.waitTime = metricRegistry.timer(METRIC_PREFIX + "wait");
+        this.rejections = metricRegistry.meter(METRIC_PREFIX + "rejected");
+        metricRegistry.register(METRIC_PREFIX + "queue", (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register(METRIC_PREFIX + "active", (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    /**
+     * Same as {@link Realm#checkBCryptPassword(String, String)}, but executed on the BCrypt thread pool.
+     *
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public boolean check(String password, String passwordHash) {
+        return execute(() -> Realm.checkBCryptPassword(password, passwordHash));
+    }
+
+    /**
+     * Non-blocking variant of {@link #check(String, String)}, the calling thread does not wait for BCrypt.
+     * The future completes on the given executor, so that following steps do not occupy a BCrypt thread.
+     *
+     * @return a future failed with {@link RejectedExecutionException} if the pool is saturated
+     */
+    public CompletableFuture<Boolean> checkAsync(String password, String passwordHash, Executor executor) {
+        return executeAsync(() -> Realm.checkBCryptPassword(password, passwordHash), executor);
+    }
+
+    <T> CompletableFuture<T> executeAsync(Callable<T> task, Executor completionExecutor) {
+        final long enqueued = System.nanoTime();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                waitTime.update(System.nanoTime() - enqueued, NANOSECONDS);
+                T value = null;
+                Throwable error = null;
+                try {
+                    value = task.call();
+                } catch (Throwable t) {
+                    error = t;
+                }
+                completeOn(completionExecutor, result, value, error);
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            return CompletableFutures.failed(e);
+        }
+        return result;
+    }
+
+    private static <T> void completeOn(Executor executor, CompletableFuture<T> result, T value, Throwable error) {
+        try {
+            executor.execute(() -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the check is done anyway, but nobody could continue with its result
+            result.completeExceptionally(e);
+        }
+    }
+
+    <T> T execute(Callable<T> task) {
+        final long enqueued = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTime.update(System.nanoTime() - enqueued, NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.mark();
+            throw e;
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for BCrypt check", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
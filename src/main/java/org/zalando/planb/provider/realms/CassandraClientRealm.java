@@ -1,20 +1,31 @@
 package org.zalando.planb.provider.realms;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
+import org.zalando.planb.provider.CacheMetrics;
+import org.zalando.planb.provider.CacheProperties;
 import org.zalando.planb.provider.CassandraProperties;
 import org.zalando.planb.provider.ClientData;
 import org.zalando.planb.provider.CurrentUser;
 import org.zalando.planb.provider.NotFoundException;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
@@ -22,6 +33,8 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import static java.lang.String.format;
 import static org.hibernate.validator.internal.util.CollectionHelper.newHashSet;
+import static org.zalando.planb.provider.CompletableFutures.toCompletableFuture;
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
 
 @Component
 @Scope("prototype")
@@ -51,8 +64,23 @@ public class CassandraClientRealm implements ClientManagedRealm {
     @Autowired
     private CurrentUser currentUser;
 
+    @Autowired
+    private PasswordVerificationCache passwordVerificationCache;
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     private String realmName;
 
+    // read-through cache, writes on this instance invalidate, writes on other instances become visible after refresh
+    private LoadingCache<String, Optional<ClientData>> clients;
+
+    // incremented by every write, loads which overlap with a write do not end up in the cache
+    private final AtomicLong writeGeneration = new AtomicLong();
+
     private PreparedStatement deleteOne;
     private PreparedStatement findOne;
     private PreparedStatement upsert;
@@ -62,6 +90,27 @@ public class CassandraClientRealm implements ClientManagedRealm {
         Assert.hasText(realmName, "realmName must not be blank");
         this.realmName = realmName;
         prepareStatements();
+
+        clients = cacheProperties.getClient().toCacheBuilder().build(new CacheLoader<String, Optional<ClientData>>() {
+            @Override
+            public Optional<ClientData> load(String clientId) {
+                return find(clientId);
+            }
+
+            @Override
+            public ListenableFuture<Optional<ClientData>> reload(String clientId, Optional<ClientData> oldValue) {
+                // do not block the request which happens to hit the stale entry
+                final long generation = writeGeneration.get();
+                return Futures.transform(findAsync(clientId), (Function<Optional<ClientData>, Optional<ClientData>>) client -> {
+                    if (writeGeneration.get() != generation) {
+                        // a failed refresh stores nothing, the entry invalidated by the write stays removed
+                        throw new IllegalStateException(format("Client %s in realm %s changed during refresh", clientId, realmName));
+                    }
+                    return client;
+                });
+            }
+        });
+        CacheMetrics.register(metricRegistry, "planb.provider.client_cache." + stripLeadingSlash(realmName), clients);
     }
 
     private void prepareStatements() {
@@ -112,7 +161,7 @@ public class CassandraClientRealm implements ClientManagedRealm {
 
     @Override
     public void update(String clientId, ClientData data) throws NotFoundException {
-        final ClientData existing = get(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, getName())));
+        final ClientData existing = find(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, getName())));
 
         session.execute(upsert.bind()
                 .setString(CLIENT_ID, clientId)
@@ -127,18 +176,20 @@ public class CassandraClientRealm implements ClientManagedRealm {
                 .setString(HOMEPAGE_URL, Optional.ofNullable(data.getHomepageUrl()).orElseGet(existing::getHomepageUrl))
                 .setString(CREATED_BY, existing.getCreatedBy())
                 .setString(LAST_MODIFIED_BY, currentUser.get()));
+        invalidate(clientId);
     }
 
     @Override
     public void delete(String clientId) {
-        get(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, realmName)));
+        find(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, realmName)));
 
         session.execute(deleteOne.bind().setString(CLIENT_ID, clientId));
+        invalidate(clientId);
     }
 
     @Override
     public void createOrReplace(String clientId, ClientData client) {
-        final Optional<String> existingCreatedBy = get(clientId).map(ClientData::getCreatedBy);
+        final Optional<String> existingCreatedBy = find(clientId).map(ClientData::getCreatedBy);
 
         session.execute(upsert.bind()
                 .setString(CLIENT_ID, clientId)
@@ -153,16 +204,71 @@ public class CassandraClientRealm implements ClientManagedRealm {
                 .setString(HOMEPAGE_URL, client.getHomepageUrl())
                 .setString(CREATED_BY, existingCreatedBy.orElseGet(currentUser))
                 .setString(LAST_MODIFIED_BY, currentUser.get()));
+        invalidate(clientId);
+    }
+
+    private void invalidate(String clientId) {
+        writeGeneration.incrementAndGet();
+        clients.invalidate(clientId);
+        passwordVerificationCache.invalidate(realmName, clientId);
+    }
+
+    @Override
+    public boolean checkPassword(String clientId, String clientSecret, String clientSecretHash) {
+        return passwordVerificationCache.check(realmName, clientId, clientSecret, clientSecretHash);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(String clientId, String clientSecret, String clientSecretHash, Executor executor) {
+        return passwordVerificationCache.checkAsync(realmName, clientId, clientSecret, clientSecretHash, executor);
     }
 
     @Override
     public Optional<ClientData> get(String clientId) {
+        final Optional<ClientData> cached = clients.getIfPresent(clientId);
+        if (cached != null) {
+            return cached;
+        }
+        final long generation = writeGeneration.get();
+        return remember(clientId, generation, find(clientId));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ClientData>> getAsync(String clientId) {
+        final Optional<ClientData> cached = clients.getIfPresent(clientId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        final long generation = writeGeneration.get();
+        return toCompletableFuture(findAsync(clientId)).thenApply(client -> remember(clientId, generation, client));
+    }
+
+    /**
+     * Cache the loaded client unless a write happened since the load started (the result may be stale then),
+     * checked again after the put, in case the write's invalidation ran in between.
+     */
+    private Optional<ClientData> remember(String clientId, long generation, Optional<ClientData> client) {
+        if (writeGeneration.get() == generation) {
+            clients.asMap().putIfAbsent(clientId, client);
+            if (writeGeneration.get() != generation) {
+                clients.invalidate(clientId);
+            }
+        }
+        return client;
+    }
+
+    private Optional<ClientData> find(String clientId) {
         return Optional.ofNullable(findOne.bind().setString(CLIENT_ID, clientId))
                 .map(session::execute)
                 .map(ResultSet::one)
                 .map(CassandraClientRealm::toClient);
     }
 
+    private ListenableFuture<Optional<ClientData>> findAsync(String clientId) {
+        return Futures.transform(session.executeAsync(findOne.bind().setString(CLIENT_ID, clientId)),
+                (Function<ResultSet, Optional<ClientData>>) resultSet -> Optional.ofNullable(resultSet.one()).map(CassandraClientRealm::toClient));
+    }
+
     private static ClientData toClient(Row row) {
         return ClientData.builder()
                 .clientSecretHash(row.getString(CLIENT_SECRET_HASH))
@@ -1,11 +1,13 @@
 package org.zalando.planb.provider.realms;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.mapping.MappingManager;
+import com.google.common.cache.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -15,11 +17,16 @@ import org.zalando.planb.provider.*;
 import java.time.ZonedDateTime;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
 import static java.lang.String.format;
 import static java.util.Collections.singleton;
 import static java.util.stream.Collectors.toSet;
+import static org.zalando.planb.provider.CompletableFutures.executeAsync;
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
 
 @Component
 @Scope("prototype")
@@ -42,8 +49,24 @@ public class CassandraUserRealm implements UserManagedRealm {
     @Autowired
     private CurrentUser currentUser;
 
+    @Autowired
+    private PasswordVerificationCache passwordVerificationCache;
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     private String realmName;
 
+    // read-through caches, writes on this instance invalidate, writes on other instances become visible after TTL
+    private Cache<String, UserData> users;
+    private Cache<String, Boolean> unknownUsers;
+
+    // incremented by every write, loads which overlap with a write do not end up in the caches
+    private final AtomicLong writeGeneration = new AtomicLong();
+
     private PreparedStatement findOne;
     private PreparedStatement deleteOne;
     private PreparedStatement upsert;
@@ -89,6 +112,11 @@ public class CassandraUserRealm implements UserManagedRealm {
         new MappingManager(session).udtCodec(UserPasswordHash.class);
 
         prepareStatements();
+
+        users = cacheProperties.getUser().toCacheBuilder().build();
+        unknownUsers = cacheProperties.getUnknownUser().toCacheBuilder().build();
+        CacheMetrics.register(metricRegistry, "planb.provider.user_cache." + stripLeadingSlash(realmName), users);
+        CacheMetrics.register(metricRegistry, "planb.provider.unknown_user_cache." + stripLeadingSlash(realmName), unknownUsers);
     }
 
     @Override
@@ -98,7 +126,7 @@ public class CassandraUserRealm implements UserManagedRealm {
 
     @Override
     public void update(String username, UserData data) throws NotFoundException {
-        final UserData existing = get(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
+        final UserData existing = find(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
 
         session.execute(upsert.bind()
                 .setString(USERNAME, username)
@@ -106,23 +134,26 @@ public class CassandraUserRealm implements UserManagedRealm {
                 .setMap(SCOPES, Optional.ofNullable(data.getScopes()).filter(scopes -> !scopes.isEmpty()).orElseGet(existing::getScopes))
                 .setString(CREATED_BY, existing.getCreatedBy())
                 .setString(LAST_MODIFIED_BY, currentUser.get()));
+        invalidate(username);
     }
 
     @Override
     public void delete(String username) throws NotFoundException {
         assertExists(username);
         session.execute(deleteOne.bind().setString(USERNAME, username));
+        invalidate(username);
     }
 
     @Override
     public void createOrReplace(String username, UserData user) {
-        final Optional<String> existingCreatedBy = get(username).map(UserData::getCreatedBy);
+        final Optional<String> existingCreatedBy = find(username).map(UserData::getCreatedBy);
         session.execute(upsert.bind()
                 .setString(USERNAME, username)
                 .setSet(PASSWORD_HASHES, withAuditing(user.getPasswordHashes()))
                 .setMap(SCOPES, user.getScopes())
                 .setString(CREATED_BY, existingCreatedBy.orElseGet(currentUser))
                 .setString(LAST_MODIFIED_BY, currentUser.get()));
+        invalidate(username);
     }
 
     @Override
@@ -131,10 +162,81 @@ public class CassandraUserRealm implements UserManagedRealm {
         session.execute(addPassword.bind()
                 .setString(USERNAME, username)
                 .setSet(PASSWORD_HASHES, singleton(withAuditing(password))));
+        invalidate(username);
+    }
+
+    private void invalidate(String username) {
+        writeGeneration.incrementAndGet();
+        users.invalidate(username);
+        unknownUsers.invalidate(username);
+        passwordVerificationCache.invalidate(realmName, username);
+    }
+
+    @Override
+    public boolean checkPassword(String username, String password, String passwordHash) {
+        return passwordVerificationCache.check(realmName, username, password, passwordHash);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(String username, String password, String passwordHash, Executor executor) {
+        return passwordVerificationCache.checkAsync(realmName, username, password, passwordHash, executor);
     }
 
     @Override
     public Optional<UserData> get(String username) {
+        final Optional<UserData> cached = getIfCached(username);
+        if (cached != null) {
+            return cached;
+        }
+        final long generation = writeGeneration.get();
+        return remember(username, generation, find(username));
+    }
+
+    @Override
+    public CompletableFuture<Optional<UserData>> getAsync(String username) {
+        final Optional<UserData> cached = getIfCached(username);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        final long generation = writeGeneration.get();
+        return executeAsync(session, findOne.bind().setString(USERNAME, username))
+                .thenApply(resultSet -> remember(username, generation, Optional.ofNullable(resultSet.one()).map(this::toUser)));
+    }
+
+    /**
+     * @return the cached (possibly negative) lookup result, or null if there is none
+     */
+    private Optional<UserData> getIfCached(String username) {
+        final UserData cached = users.getIfPresent(username);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (unknownUsers.getIfPresent(username) != null) {
+            return Optional.empty();
+        }
+        return null;
+    }
+
+    /**
+     * Cache the lookup result unless a write happened since the load started (the result may be stale then),
+     * checked again after the put, in case the write's invalidation ran in between.
+     */
+    private Optional<UserData> remember(String username, long generation, Optional<UserData> user) {
+        if (writeGeneration.get() == generation) {
+            if (user.isPresent()) {
+                users.asMap().putIfAbsent(username, user.get());
+            } else {
+                unknownUsers.asMap().putIfAbsent(username, Boolean.TRUE);
+            }
+            if (writeGeneration.get() != generation) {
+                users.invalidate(username);
+                unknownUsers.invalidate(username);
+            }
+        }
+        return user;
+    }
+
+    private Optional<UserData> find(String username) {
         return Optional.of(findOne.bind().setString(USERNAME, username))
                 .map(session::execute)
                 .map(ResultSet::one)
@@ -152,7 +254,7 @@ public class CassandraUserRealm implements UserManagedRealm {
     }
 
     private void assertExists(String username) {
-        get(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
+        find(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
     }
 
     private UserData toUser(Row row) {
@@ -2,7 +2,10 @@ package org.zalando.planb.provider.realms;
 
 import org.zalando.planb.provider.*;
 
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.util.stream.Collectors.toSet;
 import static org.zalando.planb.provider.realms.ClientRealmAuthenticationException.*;
@@ -12,14 +15,51 @@ public interface ClientManagedRealm extends ClientRealm {
     @Override
     default void authenticate(String clientId, String clientSecret, Set<String> scopes, Set<String> defaultScopes)
             throws ClientRealmAuthenticationException, ClientRealmAuthorizationException {
-        final ClientData client = get(clientId).orElseThrow(() -> clientNotFound(clientId, getName()));
+        authenticate(clientId, get(clientId), clientSecret, scopes, defaultScopes);
+    }
+
+    @Override
+    default CompletableFuture<Void> authenticateAsync(String clientId, String clientSecret, Set<String> scopes,
+                                                      Set<String> defaultScopes, Executor executor) {
+        return getAsync(clientId).thenCompose(client -> authenticateAsync(clientId, client, clientSecret, scopes, defaultScopes, executor));
+    }
+
+    /**
+     * Non-blocking variant of {@link #authenticate(String, Optional, String, Set, Set)}, no thread waits for BCrypt.
+     */
+    @Override
+    default CompletableFuture<Void> authenticateAsync(String clientId, Optional<ClientData> maybeClient, String clientSecret,
+                                                      Set<String> scopes, Set<String> defaultScopes, Executor executor) {
+        if (!maybeClient.isPresent()) {
+            return CompletableFutures.failed(clientNotFound(clientId, getName()));
+        }
+        final ClientData client = maybeClient.get();
+
+        if (!client.getConfidential()) {
+            return CompletableFutures.from(() -> {
+                validateScopes(clientId, client, scopes, defaultScopes);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+
+        return checkPasswordAsync(clientId, clientSecret, client.getClientSecretHash(), executor).thenAccept(valid -> {
+            if (!valid) {
+                throw wrongClientSecret(clientId, getName());
+            }
+            validateScopes(clientId, client, scopes, defaultScopes);
+        });
+    }
+
+    default void authenticate(String clientId, Optional<ClientData> maybeClient, String clientSecret, Set<String> scopes, Set<String> defaultScopes)
+            throws ClientRealmAuthenticationException, ClientRealmAuthorizationException {
+        final ClientData client = maybeClient.orElseThrow(() -> clientNotFound(clientId, getName()));
 
         if (!client.getConfidential()) {
             // TODO: non-confidential clients have no client secret,
             // i.e. we do not really authenticate anything here
             // Consider linking clients to users for the Resource Owner Password Credentials flow?
 
-        } else if (!Realm.checkBCryptPassword(clientSecret, client.getClientSecretHash())) {
+        } else if (!checkPassword(clientId, clientSecret, client.getClientSecretHash())) {
             throw wrongClientSecret(clientId, getName());
         }
 
@@ -1,19 +1,18 @@
 package org.zalando.planb.provider.realms;
 
 import org.zalando.planb.provider.ClientData;
+import org.zalando.planb.provider.CompletableFutures;
+import org.zalando.planb.provider.ScopeService;
 
 import java.util.Optional;
 import java.util.Set;
-
-import static java.util.stream.Collectors.toSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface ClientRealm extends Realm {
 
     default void validateScopes(String clientId, ClientData client, Set<String> requestedScopes, Set<String> defaultScopes) {
-        final Set<String> missingScopes = requestedScopes.stream()
-                .filter(scope -> !defaultScopes.contains(scope))
-                .filter(scope -> !client.getScopes().contains(scope))
-                .collect(toSet());
+        final Set<String> missingScopes = ScopeService.getMissingScopes(requestedScopes, defaultScopes, client.getScopes());
 
         if (!missingScopes.isEmpty()) {
             throw new ClientRealmAuthorizationException(clientId, getName(), missingScopes);
@@ -23,5 +22,32 @@ public interface ClientRealm extends Realm {
     void authenticate(String clientId, String clientSecret, Set<String> scopes, Set<String> defaultScopes)
             throws ClientRealmAuthenticationException, ClientRealmAuthorizationException;
 
+    /**
+     * Same as {@link #authenticate(String, String, Set, Set)}, but without blocking the calling thread,
+     * blocking steps (e.g. the password check) run on the given executor.
+     * The default calls {@link #authenticate} on this instance, bypassing any proxy, so realms which guard it with a
+     * {@link com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand} must override this (see {@link RealmLoginCommand}).
+     */
+    default CompletableFuture<Void> authenticateAsync(String clientId, String clientSecret, Set<String> scopes,
+                                                      Set<String> defaultScopes, Executor executor) {
+        return CompletableFuture.runAsync(() -> authenticate(clientId, clientSecret, scopes, defaultScopes), executor);
+    }
+
+    /**
+     * Variant of {@link #authenticateAsync(String, String, Set, Set, Executor)} for callers which already looked up
+     * the client, managed realms use it to skip the second lookup.
+     */
+    default CompletableFuture<Void> authenticateAsync(String clientId, Optional<ClientData> client, String clientSecret,
+                                                      Set<String> scopes, Set<String> defaultScopes, Executor executor) {
+        return authenticateAsync(clientId, clientSecret, scopes, defaultScopes, executor);
+    }
+
     Optional<ClientData> get(String clientId);
+
+    /**
+     * Non-blocking variant of {@link #get(String)}, the future may complete on an I/O thread.
+     */
+    default CompletableFuture<Optional<ClientData>> getAsync(String clientId) {
+        return CompletableFutures.from(() -> CompletableFuture.completedFuture(get(clientId)));
+    }
 }
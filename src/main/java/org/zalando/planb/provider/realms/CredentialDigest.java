@@ -0,0 +1,69 @@
+package org.zalando.planb.provider.realms;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Cache keys for credentials: they only contain an HMAC of the secrets (with a random key which never leaves this
+ * process), never the secrets themselves.
+ */
+class CredentialDigest {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> hmac;
+
+    CredentialDigest() {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final SecretKeySpec keySpec = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.hmac = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(keySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize " + HMAC_ALGORITHM, e);
+            }
+        });
+    }
+
+    /**
+     * @param id      client ID or username, kept in clear text to allow invalidation
+     * @param secrets password, hash and whatever else has to match exactly
+     */
+    Key key(String realm, String id, String... secrets) {
+        final Mac mac = hmac.get();
+        update(mac, realm);
+        update(mac, id);
+        for (String secret : secrets) {
+            update(mac, secret);
+        }
+        return new Key(realm, id, mac.doFinal());
+    }
+
+    private static void update(Mac mac, String value) {
+        final byte[] bytes = value.getBytes(UTF_8);
+        // length prefix makes sure that ("ab", "c") and ("a", "bc") do not collide
+        mac.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        mac.update(bytes);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    static class Key {
+        private final String realm;
+        private final String id;
+        private final byte[] digest;
+    }
+}
@@ -2,11 +2,20 @@ package org.zalando.planb.provider.realms;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "customerRealm")
 public class CustomerRealmProperties {
 
     private String serviceUrl;
 
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Should not exceed the Hystrix timeout, otherwise timed out logins keep their worker thread
+     */
+    private Duration receiveTimeout = Duration.ofSeconds(2);
+
     public String getServiceUrl() {
         return serviceUrl;
     }
@@ -14,4 +23,20 @@ public class CustomerRealmProperties {
     public void setServiceUrl(String serviceUrl) {
         this.serviceUrl = serviceUrl;
     }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReceiveTimeout() {
+        return receiveTimeout;
+    }
+
+    public void setReceiveTimeout(Duration receiveTimeout) {
+        this.receiveTimeout = receiveTimeout;
+    }
 }
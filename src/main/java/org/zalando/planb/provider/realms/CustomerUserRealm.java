@@ -1,14 +1,19 @@
 package org.zalando.planb.provider.realms;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashCode;
+import com.netflix.hystrix.HystrixObservableCommand;
 import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
 import org.bouncycastle.jcajce.provider.digest.SHA256;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.SingleFlight;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,11 +33,15 @@ public class CustomerUserRealm implements UserRealm {
     private static final String USERNAME_MASK = "$1***$2";
 
     private CustomerRealmWebService customerRealmWebService;
+    private final LoginCoalescing loginCoalescing;
     private String realmName;
+    private SingleFlight<HashCode, Map<String, String>> logins;
+    private HystrixObservableCommand.Setter loginCommand;
 
     @Autowired
-    public CustomerUserRealm(CustomerRealmWebService customerRealmWebService) {
+    public CustomerUserRealm(CustomerRealmWebService customerRealmWebService, LoginCoalescing loginCoalescing) {
         this.customerRealmWebService = customerRealmWebService;
+        this.loginCoalescing = loginCoalescing;
     }
 
     @Override
@@ -45,9 +54,23 @@ public class CustomerUserRealm implements UserRealm {
         return singletonMap(SUB, response.getCustomerNumber());
     }
 
+    /**
+     * Concurrent logins with the same credentials share one call of the customer service.
+     * The shared call runs as {@link RealmLoginCommand}, without occupying a Hystrix thread.
+     */
+    @Override
+    public CompletableFuture<Map<String, String>> authenticateAsync(String username, String password, Set<String> scopes,
+                                                                    Set<String> defaultScopes, Executor executor) {
+        return logins.execute(LoginCoalescing.fingerprint(username, password),
+                () -> RealmLoginCommand.execute(loginCommand,
+                        () -> CompletableFuture.supplyAsync(() -> authenticate(username, password, scopes, defaultScopes), executor)));
+    }
+
     @Override
     public void initialize(String realmName) {
         this.realmName = realmName;
+        this.logins = loginCoalescing.forRealm(realmName);
+        this.loginCommand = RealmLoginCommand.setter(CustomerUserRealm.class, realmName);
     }
 
     @Override
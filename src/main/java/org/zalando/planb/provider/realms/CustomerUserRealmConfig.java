@@ -1,8 +1,11 @@
 package org.zalando.planb.provider.realms;
 
 import org.apache.cxf.interceptor.LoggingInInterceptor;
+import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.interceptor.LoggingOutInterceptor;
 import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,7 +38,15 @@ public class CustomerUserRealmConfig {
             factory.getOutInterceptors().add(loggingOutInterceptor);
         }
 
-        return (CustomerRealmWebService) factory.create();
+        final CustomerRealmWebService webService = (CustomerRealmWebService) factory.create();
+
+        // CXF waits up to a minute by default, way longer than the Hystrix timeout of the logins
+        final HTTPClientPolicy clientPolicy = new HTTPClientPolicy();
+        clientPolicy.setConnectionTimeout(customerRealmProperties.getConnectTimeout().toMillis());
+        clientPolicy.setReceiveTimeout(customerRealmProperties.getReceiveTimeout().toMillis());
+        ((HTTPConduit) ClientProxy.getClient(webService).getConduit()).setClient(clientPolicy);
+
+        return webService;
 
     }
 
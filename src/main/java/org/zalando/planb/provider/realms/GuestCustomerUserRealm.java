@@ -1,12 +1,17 @@
 package org.zalando.planb.provider.realms;
 
+import com.google.common.hash.HashCode;
+import com.netflix.hystrix.HystrixObservableCommand;
 import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.SingleFlight;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonMap;
@@ -19,11 +24,15 @@ import static org.zalando.planb.provider.realms.CustomerUserRealm.maskUsername;
 public class GuestCustomerUserRealm implements UserRealm {
 
     private CustomerRealmWebService customerRealmWebService;
+    private final LoginCoalescing loginCoalescing;
     private String realmName;
+    private SingleFlight<HashCode, Map<String, String>> logins;
+    private HystrixObservableCommand.Setter loginCommand;
 
     @Autowired
-    public GuestCustomerUserRealm(CustomerRealmWebService customerRealmWebService) {
+    public GuestCustomerUserRealm(CustomerRealmWebService customerRealmWebService, LoginCoalescing loginCoalescing) {
         this.customerRealmWebService = customerRealmWebService;
+        this.loginCoalescing = loginCoalescing;
     }
 
     @Override
@@ -42,9 +51,23 @@ public class GuestCustomerUserRealm implements UserRealm {
         return singletonMap(SUB, response.getCustomerNumber());
     }
 
+    /**
+     * Concurrent logins with the same credentials share one call of the customer service.
+     * The shared call runs as {@link RealmLoginCommand}, without occupying a Hystrix thread.
+     */
+    @Override
+    public CompletableFuture<Map<String, String>> authenticateAsync(String username, String password, Set<String> scopes,
+                                                                    Set<String> defaultScopes, Executor executor) {
+        return logins.execute(LoginCoalescing.fingerprint(username, password),
+                () -> RealmLoginCommand.execute(loginCommand,
+                        () -> CompletableFuture.supplyAsync(() -> authenticate(username, password, scopes, defaultScopes), executor)));
+    }
+
     @Override
     public void initialize(String realmName) {
         this.realmName = realmName;
+        this.logins = loginCoalescing.forRealm(realmName);
+        this.loginCommand = RealmLoginCommand.setter(GuestCustomerUserRealm.class, realmName);
     }
 
     @Override
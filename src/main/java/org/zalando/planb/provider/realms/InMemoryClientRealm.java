@@ -0,0 +1,136 @@
+package org.zalando.planb.provider.realms;
+
+import com.google.common.collect.ImmutableSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.zalando.planb.provider.ClientData;
+import org.zalando.planb.provider.CurrentUser;
+import org.zalando.planb.provider.InMemoryProperties;
+import org.zalando.planb.provider.InMemoryStorage;
+import org.zalando.planb.provider.NotFoundException;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import static java.lang.String.format;
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
+
+/**
+ * Client realm of the "in-memory" profile, there is no cache in front as every lookup is a local one anyway.
+ */
+@Component
+@Scope("prototype")
+public class InMemoryClientRealm implements ClientManagedRealm {
+
+    @Autowired
+    private InMemoryStorage storage;
+
+    @Autowired
+    private InMemoryProperties inMemoryProperties;
+
+    @Autowired
+    private CurrentUser currentUser;
+
+    @Autowired
+    private PasswordVerificationCache passwordVerificationCache;
+
+    private String realmName;
+
+    private final ConcurrentMap<String, ClientData> clients = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize(String realmName) {
+        Assert.hasText(realmName, "realmName must not be blank");
+        this.realmName = realmName;
+
+        inMemoryProperties.getClients().stream()
+                .filter(client -> stripLeadingSlash(client.getRealm()).equals(stripLeadingSlash(realmName)))
+                .forEach(client -> clients.put(client.getId(), ClientData.builder()
+                        .clientSecretHash(client.getSecretHash())
+                        .scopes(ImmutableSet.copyOf(client.getScopes()))
+                        .defaultScopes(ImmutableSet.copyOf(client.getDefaultScopes()))
+                        .confidential(client.isConfidential())
+                        .name(client.getName())
+                        .description(client.getDescription())
+                        .redirectUris(ImmutableSet.copyOf(client.getRedirectUris()))
+                        .build()));
+    }
+
+    @Override
+    public String getName() {
+        return realmName;
+    }
+
+    @Override
+    public void update(String clientId, ClientData data) throws NotFoundException {
+        final ClientData existing = get(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, getName())));
+
+        storage.execute(() -> clients.put(clientId, ClientData.builder()
+                .clientSecretHash(Optional.ofNullable(data.getClientSecretHash()).orElseGet(existing::getClientSecretHash))
+                .scopes(Optional.ofNullable(data.getScopes()).filter(set -> !set.isEmpty()).orElseGet(existing::getScopes))
+                .defaultScopes(Optional.ofNullable(data.getDefaultScopes()).filter(set -> !set.isEmpty()).orElseGet(existing::getDefaultScopes))
+                .confidential(Optional.ofNullable(data.getConfidential()).orElseGet(existing::getConfidential))
+                .name(Optional.ofNullable(data.getName()).orElseGet(existing::getName))
+                .description(Optional.ofNullable(data.getDescription()).orElseGet(existing::getDescription))
+                .redirectUris(Optional.ofNullable(data.getRedirectUris()).filter(set -> !set.isEmpty()).orElseGet(existing::getRedirectUris))
+                .imageUri(Optional.ofNullable(data.getImageUri()).orElseGet(existing::getImageUri))
+                .homepageUrl(Optional.ofNullable(data.getHomepageUrl()).orElseGet(existing::getHomepageUrl))
+                .createdBy(existing.getCreatedBy())
+                .lastModifiedBy(currentUser.get())
+                .build()));
+        passwordVerificationCache.invalidate(realmName, clientId);
+    }
+
+    @Override
+    public void delete(String clientId) throws NotFoundException {
+        get(clientId).orElseThrow(() -> new NotFoundException(format("Could not find client %s in realm %s", clientId, realmName)));
+
+        storage.execute(() -> clients.remove(clientId));
+        passwordVerificationCache.invalidate(realmName, clientId);
+    }
+
+    @Override
+    public void createOrReplace(String clientId, ClientData client) {
+        final Optional<String> existingCreatedBy = get(clientId).map(ClientData::getCreatedBy);
+
+        storage.execute(() -> clients.put(clientId, ClientData.builder()
+                .clientSecretHash(client.getClientSecretHash())
+                .scopes(ImmutableSet.copyOf(client.getScopes()))
+                .defaultScopes(ImmutableSet.copyOf(client.getDefaultScopes()))
+                .confidential(client.getConfidential())
+                .name(client.getName())
+                .description(client.getDescription())
+                .redirectUris(ImmutableSet.copyOf(client.getRedirectUris()))
+                .imageUri(client.getImageUri())
+                .homepageUrl(client.getHomepageUrl())
+                .createdBy(existingCreatedBy.orElseGet(currentUser))
+                .lastModifiedBy(currentUser.get())
+                .build()));
+        passwordVerificationCache.invalidate(realmName, clientId);
+    }
+
+    @Override
+    public boolean checkPassword(String clientId, String clientSecret, String clientSecretHash) {
+        return passwordVerificationCache.check(realmName, clientId, clientSecret, clientSecretHash);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(String clientId, String clientSecret, String clientSecretHash, Executor executor) {
+        return passwordVerificationCache.checkAsync(realmName, clientId, clientSecret, clientSecretHash, executor);
+    }
+
+    @Override
+    public Optional<ClientData> get(String clientId) {
+        return storage.execute(() -> Optional.ofNullable(clients.get(clientId)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<ClientData>> getAsync(String clientId) {
+        return storage.executeAsync(() -> Optional.ofNullable(clients.get(clientId)));
+    }
+}
@@ -0,0 +1,150 @@
+package org.zalando.planb.provider.realms;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.zalando.planb.provider.CurrentUser;
+import org.zalando.planb.provider.InMemoryProperties;
+import org.zalando.planb.provider.InMemoryStorage;
+import org.zalando.planb.provider.NotFoundException;
+import org.zalando.planb.provider.UserData;
+import org.zalando.planb.provider.UserPasswordHash;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toSet;
+import static org.zalando.planb.provider.RealmConfig.stripLeadingSlash;
+
+/**
+ * User realm of the "in-memory" profile, there is no cache in front as every lookup is a local one anyway.
+ */
+@Component
+@Scope("prototype")
+public class InMemoryUserRealm implements UserManagedRealm {
+
+    @Autowired
+    private InMemoryStorage storage;
+
+    @Autowired
+    private InMemoryProperties inMemoryProperties;
+
+    @Autowired
+    private CurrentUser currentUser;
+
+    @Autowired
+    private PasswordVerificationCache passwordVerificationCache;
+
+    private String realmName;
+
+    private final ConcurrentMap<String, UserData> users = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize(String realmName) {
+        Assert.hasText(realmName, "realmName must not be blank");
+        this.realmName = realmName;
+
+        inMemoryProperties.getUsers().stream()
+                .filter(user -> stripLeadingSlash(user.getRealm()).equals(stripLeadingSlash(realmName)))
+                .forEach(user -> users.put(user.getUsername(), UserData.builder()
+                        .passwordHashes(UserData.toUserPasswordHashSet(user.getPasswordHashes()))
+                        .scopes(ImmutableMap.copyOf(user.getScopes()))
+                        .build()));
+    }
+
+    @Override
+    public String getName() {
+        return realmName;
+    }
+
+    @Override
+    public void update(String username, UserData data) throws NotFoundException {
+        final UserData existing = get(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
+
+        storage.execute(() -> users.put(username, UserData.builder()
+                .passwordHashes(Optional.ofNullable(data.getPasswordHashes()).filter(set -> !set.isEmpty()).map(this::withAuditing).orElseGet(existing::getPasswordHashes))
+                .scopes(Optional.ofNullable(data.getScopes()).filter(scopes -> !scopes.isEmpty()).orElseGet(existing::getScopes))
+                .createdBy(existing.getCreatedBy())
+                .lastModifiedBy(currentUser.get())
+                .build()));
+        passwordVerificationCache.invalidate(realmName, username);
+    }
+
+    @Override
+    public void delete(String username) throws NotFoundException {
+        assertExists(username);
+        storage.execute(() -> users.remove(username));
+        passwordVerificationCache.invalidate(realmName, username);
+    }
+
+    @Override
+    public void createOrReplace(String username, UserData user) {
+        final Optional<String> existingCreatedBy = get(username).map(UserData::getCreatedBy);
+
+        storage.execute(() -> users.put(username, UserData.builder()
+                .passwordHashes(withAuditing(user.getPasswordHashes()))
+                .scopes(user.getScopes())
+                .createdBy(existingCreatedBy.orElseGet(currentUser))
+                .lastModifiedBy(currentUser.get())
+                .build()));
+        passwordVerificationCache.invalidate(realmName, username);
+    }
+
+    @Override
+    public void addPassword(String username, UserPasswordHash password) {
+        assertExists(username);
+        storage.execute(() -> users.computeIfPresent(username, (name, existing) -> UserData.builder()
+                .passwordHashes(ImmutableSet.<UserPasswordHash>builder()
+                        .addAll(existing.getPasswordHashes())
+                        .add(withAuditing(password))
+                        .build())
+                .scopes(existing.getScopes())
+                .createdBy(existing.getCreatedBy())
+                .lastModifiedBy(existing.getLastModifiedBy())
+                .build()));
+        passwordVerificationCache.invalidate(realmName, username);
+    }
+
+    @Override
+    public boolean checkPassword(String username, String password, String passwordHash) {
+        return passwordVerificationCache.check(realmName, username, password, passwordHash);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(String username, String password, String passwordHash, Executor executor) {
+        return passwordVerificationCache.checkAsync(realmName, username, password, passwordHash, executor);
+    }
+
+    @Override
+    public Optional<UserData> get(String username) {
+        return storage.execute(() -> Optional.ofNullable(users.get(username)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<UserData>> getAsync(String username) {
+        return storage.executeAsync(() -> Optional.ofNullable(users.get(username)));
+    }
+
+    private Set<UserPasswordHash> withAuditing(Set<UserPasswordHash> set) {
+        return set.stream().map(this::withAuditing).collect(toSet());
+    }
+
+    private UserPasswordHash withAuditing(UserPasswordHash userPasswordHash) {
+        userPasswordHash.setCreated((int) ZonedDateTime.now().toEpochSecond());
+        userPasswordHash.setCreatedBy(currentUser.get());
+        return userPasswordHash;
+    }
+
+    private void assertExists(String username) {
+        get(username).orElseThrow(() -> new NotFoundException(format("Could not find user %s in realm %s", username, getName())));
+    }
+}
@@ -0,0 +1,60 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.RealmConfig;
+import org.zalando.planb.provider.SingleFlight;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Lets concurrent identical logins of remote realms (same credentials, and scopes if they matter upstream) share
+ * one upstream call, e.g. when many pods of the same application start at once.
+ */
+@Component
+public class LoginCoalescing {
+
+    private final Duration timeout;
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     * @param timeoutMillis how long a login waits for the shared call, same as the Hystrix timeout by default
+     */
+    @Autowired
+    public LoginCoalescing(@Value("${hystrix.command.default.execution.isolation.thread.timeoutInMilliseconds:2000}") long timeoutMillis,
+                           MetricRegistry metricRegistry) {
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * @return a new coalescing scope for the logins of the given realm,
+     * exporting "planb.provider.login_coalescing.{realm}.coalesced"
+     */
+    SingleFlight<HashCode, Map<String, String>> forRealm(String realmName) {
+        return new SingleFlight<>(timeout, metricRegistry.meter("planb.provider.login_coalescing." +
+                RealmConfig.stripLeadingSlash(realmName) + ".coalesced"));
+    }
+
+    /**
+     * @return a fingerprint of the given credentials, so that the keys of logins in flight do not hold passwords
+     */
+    static HashCode fingerprint(String... values) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        for (String value : values) {
+            // length prefix makes sure that ("ab", "c") and ("a", "bc") do not collide
+            final byte[] bytes = value == null ? new byte[0] : value.getBytes(UTF_8);
+            hasher.putInt(bytes.length).putBytes(bytes);
+        }
+        return hasher.hash();
+    }
+}
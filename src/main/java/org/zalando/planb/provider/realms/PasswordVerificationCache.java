@@ -0,0 +1,103 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.CacheProperties;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Remembers successful BCrypt verifications so that repeated logins with the same credentials
+ * do not have to pay for BCrypt again.
+ *
+ * Cache keys only contain an HMAC of the secret (see {@link CredentialDigest}), never the secret itself.
+ * Failed verifications are never cached.
+ */
+@Component
+public class PasswordVerificationCache {
+
+    private static final String METRIC_PREFIX = "planb.provider.password_cache.";
+
+    private final BCryptVerifier bcryptVerifier;
+    private final boolean enabled;
+    private final Cache<CredentialDigest.Key, Boolean> verified;
+    private final CredentialDigest credentialDigest = new CredentialDigest();
+
+    private final Meter hits;
+    private final Meter misses;
+
+    @Autowired
+    public PasswordVerificationCache(CacheProperties cacheProperties, BCryptVerifier bcryptVerifier, MetricRegistry metricRegistry) {
+        final CacheProperties.Spec spec = cacheProperties.getPassword();
+        this.bcryptVerifier = bcryptVerifier;
+        this.enabled = spec.isEnabled();
+        this.verified = spec.toCacheBuilder().build();
+
+        this.hits = metricRegistry.meter(METRIC_PREFIX + "hit");
+        this.misses = metricRegistry.meter(METRIC_PREFIX + "miss");
+        metricRegistry.register(METRIC_PREFIX + "size", (Gauge<Long>) verified::size);
+    }
+
+    /**
+     * Same as {@link BCryptVerifier#check(String, String)}, but skips BCrypt if the very same
+     * combination was successfully verified before.
+     */
+    public boolean check(String realm, String id, String password, String passwordHash) {
+        if (!enabled) {
+            return bcryptVerifier.check(password, passwordHash);
+        }
+
+        final CredentialDigest.Key key = credentialDigest.key(realm, id, password, passwordHash);
+        if (verified.getIfPresent(key) != null) {
+            hits.mark();
+            return true;
+        }
+
+        misses.mark();
+        final boolean valid = bcryptVerifier.check(password, passwordHash);
+        if (valid) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return valid;
+    }
+
+    /**
+     * Non-blocking variant of {@link #check(String, String, String, String)}, see
+     * {@link BCryptVerifier#checkAsync(String, String, Executor)}. Hits complete immediately.
+     */
+    public CompletableFuture<Boolean> checkAsync(String realm, String id, String password, String passwordHash, Executor executor) {
+        if (!enabled) {
+            return bcryptVerifier.checkAsync(password, passwordHash, executor);
+        }
+
+        final CredentialDigest.Key key = credentialDigest.key(realm, id, password, passwordHash);
+        if (verified.getIfPresent(key) != null) {
+            hits.mark();
+            return CompletableFuture.completedFuture(true);
+        }
+
+        misses.mark();
+        return bcryptVerifier.checkAsync(password, passwordHash, executor).thenApply(valid -> {
+            if (valid) {
+                verified.put(key, Boolean.TRUE);
+            }
+            return valid;
+        });
+    }
+
+    /**
+     * Forget all verifications for the given client or user, must be called whenever its hashes change.
+     */
+    public void invalidate(String realm, String id) {
+        verified.asMap().keySet().removeIf(key -> key.getRealm().equals(realm) && key.getId().equals(id));
+    }
+
+    long size() {
+        return verified.size();
+    }
+}
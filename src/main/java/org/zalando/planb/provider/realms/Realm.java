@@ -4,6 +4,8 @@ import com.google.common.collect.Lists;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface Realm {
 
@@ -29,6 +31,23 @@ public interface Realm {
         checkBCryptPassword("notused", passwordHash);
     }
 
+    /**
+     * Verify the given password of a client or user against one of its stored BCrypt hashes,
+     * realms may override this to avoid repeated BCrypt checks.
+     */
+    default boolean checkPassword(final String id, final String password, final String passwordHash) {
+        return checkBCryptPassword(password, passwordHash);
+    }
+
+    /**
+     * Non-blocking variant of {@link #checkPassword(String, String, String)}, BCrypt runs on the given executor
+     * unless the realm has a better place for it.
+     */
+    default CompletableFuture<Boolean> checkPasswordAsync(final String id, final String password, final String passwordHash,
+                                                          final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> checkPassword(id, password, passwordHash), executor);
+    }
+
     void initialize(String realmName);
 
     String getName();
@@ -0,0 +1,86 @@
+package org.zalando.planb.provider.realms;
+
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixObservableCommand;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import org.zalando.planb.provider.CompletableFutures;
+import org.zalando.planb.provider.RealmConfig;
+import rx.Observable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Login of a remote realm as Hystrix command with semaphore isolation (the default of observable commands): the
+ * circuit breaker, the timeout and the limit of concurrent logins (bulkhead) apply, but no Hystrix thread waits for
+ * the login.
+ *
+ * Hystrix releases its semaphore as soon as the command times out, while the blocking call of the login still runs
+ * on its worker thread. So the limit is also enforced on the logins in flight, which only count as done when their
+ * future completes. Logins over the limit fail with a {@link RejectedExecutionException} as cause.
+ *
+ * Failed logins ({@link RealmAuthenticationException}) do not count as errors and are passed on unwrapped, like
+ * the "ignoreExceptions" of the {@link com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand} annotation.
+ * Everything else fails with a {@link com.netflix.hystrix.exception.HystrixRuntimeException}.
+ */
+class RealmLoginCommand extends HystrixObservableCommand<Map<String, String>> {
+
+    // command key -> logins whose future has not completed yet (Hystrix keeps its semaphores per key the same way)
+    private static final ConcurrentMap<String, AtomicInteger> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private final Supplier<CompletableFuture<Map<String, String>>> login;
+
+    private RealmLoginCommand(Setter setter, Supplier<CompletableFuture<Map<String, String>>> login) {
+        super(setter);
+        this.login = login;
+    }
+
+    /**
+     * @return the command settings of the given realm, configurable as "hystrix.command.{realm}.*"
+     * (e.g. "hystrix.command.employees.execution.isolation.semaphore.maxConcurrentRequests")
+     */
+    static Setter setter(Class<? extends Realm> realmClass, String realmName) {
+        return Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey(realmClass.getSimpleName()))
+                .andCommandKey(HystrixCommandKey.Factory.asKey(RealmConfig.stripLeadingSlash(realmName)));
+    }
+
+    /**
+     * @param login starts the login, only invoked if the circuit is closed and the concurrency limit not reached
+     */
+    static CompletableFuture<Map<String, String>> execute(Setter setter, Supplier<CompletableFuture<Map<String, String>>> login) {
+        final CompletableFuture<Map<String, String>> result = new CompletableFuture<>();
+        new RealmLoginCommand(setter, login).toObservable().subscribe(
+                result::complete,
+                error -> result.completeExceptionally(error instanceof HystrixBadRequestException && error.getCause() != null
+                        ? error.getCause()
+                        : error));
+        return result;
+    }
+
+    @Override
+    protected Observable<Map<String, String>> construct() {
+        final AtomicInteger inFlight = IN_FLIGHT.computeIfAbsent(getCommandKey().name(), key -> new AtomicInteger());
+        if (inFlight.incrementAndGet() > getProperties().executionIsolationSemaphoreMaxConcurrentRequests().get()) {
+            inFlight.decrementAndGet();
+            return Observable.error(new RejectedExecutionException("Too many logins of " + getCommandKey().name() + " in flight"));
+        }
+        return Observable.create(subscriber -> CompletableFutures.from(login).whenComplete((value, error) -> {
+            inFlight.decrementAndGet();
+            if (error != null) {
+                final Throwable cause = CompletableFutures.unwrap(error);
+                subscriber.onError(cause instanceof RealmAuthenticationException
+                        ? new HystrixBadRequestException(cause.getMessage(), cause)
+                        : cause);
+            } else {
+                subscriber.onNext(value);
+                subscriber.onCompleted();
+            }
+        }));
+    }
+}
@@ -0,0 +1,110 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zalando.planb.provider.CacheProperties;
+import org.zalando.planb.provider.ScopeService;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers successful logins of upstream realms, so that clients logging in with the same credentials over and
+ * over again (e.g. CI jobs) do not need the two upstream calls every time.
+ *
+ * As in {@link PasswordVerificationCache}, keys only contain an HMAC of the password (see {@link CredentialDigest}).
+ * An entry is dropped after the configured TTL or when the upstream token expires, whichever comes first. Failed
+ * logins are never cached.
+ */
+@Component
+public class UpstreamAuthenticationCache {
+
+    private static final String METRIC_PREFIX = "planb.provider.upstream_cache.";
+
+    private final boolean enabled;
+    private final Cache<CredentialDigest.Key, Entry> authentications;
+    private final CredentialDigest credentialDigest = new CredentialDigest();
+
+    private final Meter hits;
+    private final Meter misses;
+
+    @Autowired
+    public UpstreamAuthenticationCache(CacheProperties cacheProperties, MetricRegistry metricRegistry) {
+        final CacheProperties.Spec spec = cacheProperties.getUpstream();
+        this.enabled = spec.isEnabled();
+        this.authentications = spec.toCacheBuilder().build();
+
+        this.hits = metricRegistry.meter(METRIC_PREFIX + "hit");
+        this.misses = metricRegistry.meter(METRIC_PREFIX + "miss");
+        metricRegistry.register(METRIC_PREFIX + "size", (Gauge<Long>) authentications::size);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the token info of an earlier successful login with exactly the same credentials and scopes,
+     * if its token is still valid
+     */
+    public Optional<UpstreamTokenResponse> get(String realm, String username, String password, Set<String> scopes) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        final CredentialDigest.Key key = key(realm, username, password, scopes);
+        final Entry entry = authentications.getIfPresent(key);
+        if (entry != null && entry.expires > System.currentTimeMillis()) {
+            hits.mark();
+            return Optional.of(entry.tokenInfo);
+        }
+        if (entry != null) {
+            authentications.invalidate(key);
+        }
+        misses.mark();
+        return Optional.empty();
+    }
+
+    public void put(String realm, String username, String password, Set<String> scopes, UpstreamTokenResponse tokenInfo) {
+        if (!enabled) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long expires = Optional.ofNullable(tokenInfo.getExpiresIn()).map(seconds -> now + seconds * 1000).orElse(Long.MAX_VALUE);
+        if (expires > now) {
+            authentications.put(key(realm, username, password, scopes), new Entry(tokenInfo, expires));
+        }
+    }
+
+    /**
+     * Forget all logins of the given user
+     */
+    public void invalidate(String realm, String username) {
+        authentications.asMap().keySet().removeIf(key -> key.getRealm().equals(realm) && key.getId().equals(username));
+    }
+
+    /**
+     * Forget all logins of the given realm
+     */
+    public void invalidate(String realm) {
+        authentications.asMap().keySet().removeIf(key -> key.getRealm().equals(realm));
+    }
+
+    long size() {
+        return authentications.size();
+    }
+
+    private CredentialDigest.Key key(String realm, String username, String password, Set<String> scopes) {
+        return credentialDigest.key(realm, username, password, scopes == null ? "" : ScopeService.join(scopes));
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final UpstreamTokenResponse tokenInfo;
+        private final long expires;
+    }
+}
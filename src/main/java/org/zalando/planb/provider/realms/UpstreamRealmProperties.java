@@ -4,6 +4,8 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "upstreamRealm")
@@ -13,4 +15,29 @@ public class UpstreamRealmProperties {
 
     private String tokenInfoUrl;
 
+    /**
+     * Maximum number of pooled connections (per upstream realm)
+     */
+    private int maxConnections = 80;
+
+    /**
+     * Maximum number of pooled connections per host, i.e. to the token service and to the token info endpoint.
+     * Should be at least the number of concurrent logins ("hystrix.command.*.execution.isolation.semaphore.maxConcurrentRequests").
+     */
+    private int maxConnectionsPerRoute = 40;
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Duration readTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How long to wait for a pooled connection if all are in use
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * How long to keep idle connections open, if the server does not say so in a "Keep-Alive" header
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
 }
@@ -1,12 +1,23 @@
 package org.zalando.planb.provider.realms;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 
 @Getter
+@NoArgsConstructor
+@AllArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class UpstreamTokenResponse {
 
     private String uid;
 
+    /**
+     * Remaining lifetime of the token in seconds
+     */
+    @JsonProperty("expires_in")
+    private Long expiresIn;
+
 }
@@ -1,6 +1,15 @@
 package org.zalando.planb.provider.realms;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.hash.HashCode;
+import com.netflix.hystrix.HystrixObservableCommand;
 import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.RequestEntity;
@@ -10,12 +19,18 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.zalando.planb.provider.CacheProperties;
+import org.zalando.planb.provider.RealmConfig;
 import org.zalando.planb.provider.ScopeService;
+import org.zalando.planb.provider.SingleFlight;
 
 import java.net.URI;
 import java.util.Base64;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -26,14 +41,56 @@ import static org.springframework.web.util.UriComponentsBuilder.fromHttpUrl;
 @Scope("prototype")
 public class UpstreamUserRealm implements UserRealm {
 
+    // check pooled connections which were idle for a while, the server might have closed them in between
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
     private UpstreamRealmProperties upstreamRealmProperties;
+    private final MetricRegistry metricRegistry;
+    private final UpstreamAuthenticationCache authenticationCache;
+    private final LoginCoalescing loginCoalescing;
     private String realmName;
+    private SingleFlight<HashCode, Map<String, String>> logins;
+    private HystrixObservableCommand.Setter loginCommand;
 
-    private final RestTemplate rest = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final RestTemplate rest;
 
-    @Autowired
     public UpstreamUserRealm(UpstreamRealmProperties upstreamRealmProperties) {
+        this(upstreamRealmProperties, new MetricRegistry(), new UpstreamAuthenticationCache(new CacheProperties(), new MetricRegistry()),
+                new LoginCoalescing(2000, new MetricRegistry()));
+    }
+
+    @Autowired
+    public UpstreamUserRealm(UpstreamRealmProperties upstreamRealmProperties, MetricRegistry metricRegistry,
+                             UpstreamAuthenticationCache authenticationCache, LoginCoalescing loginCoalescing) {
         this.upstreamRealmProperties = upstreamRealmProperties;
+        this.metricRegistry = metricRegistry;
+        this.authenticationCache = authenticationCache;
+        this.loginCoalescing = loginCoalescing;
+
+        // both calls of a login (token and token info) reuse kept-alive connections of this pool
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(upstreamRealmProperties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(upstreamRealmProperties.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) upstreamRealmProperties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) upstreamRealmProperties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) upstreamRealmProperties.getConnectionRequestTimeout().toMillis())
+                .build();
+
+        final long keepAliveMillis = upstreamRealmProperties.getKeepAlive().toMillis();
+        final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            final long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+        };
+
+        rest = new RestTemplate(new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .build()));
     }
 
     String getAccessToken(String username, String password, Set<String> scopes) {
@@ -66,13 +123,38 @@ public class UpstreamUserRealm implements UserRealm {
     @Override
     @HystrixCommand(ignoreExceptions = {RealmAuthenticationException.class})
     public Map<String, String> authenticate(String username, String password, Set<String> scopes, Set<String> defaultScopes) throws UserRealmAuthenticationException, UserRealmAuthorizationException {
+        final Optional<UpstreamTokenResponse> cached = authenticationCache.get(realmName, username, password, scopes);
+        if (cached.isPresent()) {
+            return singletonMap(SUB, cached.get().getUid());
+        }
+
         final String token = getAccessToken(username, password, scopes);
 
         UpstreamTokenResponse response = getTokenInfo(username, token);
+        authenticationCache.put(realmName, username, password, scopes, response);
 
         return singletonMap(SUB, response.getUid());
     }
 
+    /**
+     * Concurrent logins with the same credentials and scopes share one upstream call, cached logins are answered
+     * without waiting for the executor.
+     * The shared call runs as {@link RealmLoginCommand}, without occupying a Hystrix thread.
+     */
+    @Override
+    public CompletableFuture<Map<String, String>> authenticateAsync(String username, String password, Set<String> scopes,
+                                                                    Set<String> defaultScopes, Executor executor) {
+        final Optional<UpstreamTokenResponse> cached = authenticationCache.get(realmName, username, password, scopes);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(singletonMap(SUB, cached.get().getUid()));
+        }
+
+        final String joinedScopes = scopes == null ? "" : ScopeService.join(scopes);
+        return logins.execute(LoginCoalescing.fingerprint(username, password, joinedScopes),
+                () -> RealmLoginCommand.execute(loginCommand,
+                        () -> CompletableFuture.supplyAsync(() -> authenticate(username, password, scopes, defaultScopes), executor)));
+    }
+
     UpstreamTokenResponse getTokenInfo(String username, String token) {
         RequestEntity<Void> request = RequestEntity
                 .get(URI.create(upstreamRealmProperties.getTokenInfoUrl()))
@@ -94,6 +176,14 @@ public class UpstreamUserRealm implements UserRealm {
     @Override
     public void initialize(String realmName) {
         this.realmName = realmName;
+        this.logins = loginCoalescing.forRealm(realmName);
+        this.loginCommand = RealmLoginCommand.setter(UpstreamUserRealm.class, realmName);
+
+        final String prefix = "planb.provider.upstream_pool." + RealmConfig.stripLeadingSlash(realmName);
+        metricRegistry.register(prefix + ".leased", (Gauge<Integer>) () -> connectionManager.getTotalStats().getLeased());
+        metricRegistry.register(prefix + ".pending", (Gauge<Integer>) () -> connectionManager.getTotalStats().getPending());
+        metricRegistry.register(prefix + ".available", (Gauge<Integer>) () -> connectionManager.getTotalStats().getAvailable());
+        metricRegistry.register(prefix + ".max", (Gauge<Integer>) () -> connectionManager.getTotalStats().getMax());
     }
 
     @Override
@@ -5,10 +5,10 @@ import org.zalando.planb.provider.*;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.util.Collections.singletonMap;
-import static java.util.stream.Collectors.toSet;
-import static org.zalando.planb.provider.realms.Realm.checkBCryptPassword;
 import static org.zalando.planb.provider.realms.UserRealmAuthenticationException.userNotFound;
 import static org.zalando.planb.provider.realms.UserRealmAuthenticationException.wrongUserSecret;
 
@@ -17,17 +17,56 @@ public interface UserManagedRealm extends UserRealm {
     @Override
     default Map<String, String> authenticate(String username, String password, Set<String> scopes, Set<String> defaultScopes)
             throws UserRealmAuthenticationException, UserRealmAuthorizationException {
-        final UserData user = get(username).orElseThrow(() -> userNotFound(username, getName()));
+        return authenticate(username, get(username), password, scopes, defaultScopes);
+    }
+
+    @Override
+    default CompletableFuture<Map<String, String>> authenticateAsync(String username, String password, Set<String> scopes,
+                                                                     Set<String> defaultScopes, Executor executor) {
+        return getAsync(username).thenCompose(user -> authenticateAsync(username, user, password, scopes, defaultScopes, executor));
+    }
+
+    /**
+     * Non-blocking variant of {@link #authenticate(String, Optional, String, Set, Set)}, no thread waits for BCrypt.
+     * The password hashes are checked one after another, like in the blocking variant.
+     */
+    default CompletableFuture<Map<String, String>> authenticateAsync(String username, Optional<UserData> maybeUser, String password,
+                                                                     Set<String> scopes, Set<String> defaultScopes, Executor executor) {
+        if (!maybeUser.isPresent()) {
+            return CompletableFutures.failed(userNotFound(username, getName()));
+        }
+        final UserData user = maybeUser.get();
+
+        CompletableFuture<Boolean> valid = CompletableFuture.completedFuture(false);
+        for (UserPasswordHash passwordHash : user.getPasswordHashes()) {
+            valid = valid.thenCompose(found -> found
+                    ? CompletableFuture.completedFuture(true)
+                    : checkPasswordAsync(username, password, passwordHash.getPasswordHash(), executor));
+        }
 
-        if (!user.getPasswordHashes().stream().map(UserPasswordHash::getPasswordHash).anyMatch(passwordHash -> checkBCryptPassword(password, passwordHash))) {
+        return valid.thenApply(found -> {
+            if (!found) {
+                throw wrongUserSecret(username, getName());
+            }
+            return authorize(username, user, scopes, defaultScopes);
+        });
+    }
+
+    default Map<String, String> authenticate(String username, Optional<UserData> maybeUser, String password, Set<String> scopes, Set<String> defaultScopes)
+            throws UserRealmAuthenticationException, UserRealmAuthorizationException {
+        final UserData user = maybeUser.orElseThrow(() -> userNotFound(username, getName()));
+
+        if (!user.getPasswordHashes().stream().map(UserPasswordHash::getPasswordHash).anyMatch(passwordHash -> checkPassword(username, password, passwordHash))) {
             throw wrongUserSecret(username, getName());
         }
 
-        final Set userScopes = ((Map) user.getScopes()).keySet();
-        final Set<String> missingScopes = scopes.stream()
-                .filter(scope -> !defaultScopes.contains(scope))
-                .filter(scope -> !userScopes.contains(scope))
-                .collect(toSet());
+        return authorize(username, user, scopes, defaultScopes);
+    }
+
+    default Map<String, String> authorize(String username, UserData user, Set<String> scopes, Set<String> defaultScopes)
+            throws UserRealmAuthorizationException {
+        final Set<String> userScopes = user.getScopes().keySet();
+        final Set<String> missingScopes = ScopeService.getMissingScopes(scopes, defaultScopes, userScopes);
 
         if (!missingScopes.isEmpty()) {
             throw new UserRealmAuthorizationException(username, getName(), missingScopes);
@@ -46,4 +85,11 @@ public interface UserManagedRealm extends UserRealm {
 
     Optional<UserData> get(String username);
 
+    /**
+     * Non-blocking variant of {@link #get(String)}, the future may complete on an I/O thread.
+     */
+    default CompletableFuture<Optional<UserData>> getAsync(String username) {
+        return CompletableFutures.from(() -> CompletableFuture.completedFuture(get(username)));
+    }
+
 }
@@ -2,9 +2,22 @@ package org.zalando.planb.provider.realms;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface UserRealm extends Realm {
 
     Map<String, String> authenticate(String username, String password, Set<String> scopes, Set<String> defaultScopes)
             throws UserRealmAuthenticationException, UserRealmAuthorizationException;
+
+    /**
+     * Same as {@link #authenticate(String, String, Set, Set)}, but without blocking the calling thread,
+     * blocking steps (e.g. the password check or remote calls) run on the given executor.
+     * The default calls {@link #authenticate} on this instance, bypassing any proxy, so realms which guard it with a
+     * {@link com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand} must override this (see {@link RealmLoginCommand}).
+     */
+    default CompletableFuture<Map<String, String>> authenticateAsync(String username, String password, Set<String> scopes,
+                                                                     Set<String> defaultScopes, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> authenticate(username, password, scopes, defaultScopes), executor);
+    }
 }
@@ -0,0 +1,43 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncConfigTest {
+
+    private static final String KEY = "requestInfo";
+
+    @After
+    public void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    public void testWorkerTasksSeeTheMDCOfTheSubmitter() throws Exception {
+        final AsyncConfig.AsyncProperties properties = new AsyncConfig.AsyncProperties();
+        properties.setPoolSize(1);
+        final ExecutorService executor = new AsyncConfig().workerExecutor(properties, new MetricRegistry());
+        try {
+            MDC.put(KEY, "first");
+            final CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> MDC.get(KEY), executor);
+            MDC.put(KEY, "second");
+            final CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> MDC.get(KEY), executor);
+            MDC.clear();
+            final CompletableFuture<String> none = CompletableFuture.supplyAsync(() -> MDC.get(KEY), executor);
+
+            assertThat(first.get()).isEqualTo("first");
+            assertThat(second.get()).isEqualTo("second");
+            // the worker thread does not keep the context of its previous task
+            assertThat(none.get()).isNull();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
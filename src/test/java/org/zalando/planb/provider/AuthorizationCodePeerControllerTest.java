@@ -0,0 +1,100 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.CONSUME;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.STORE;
+import static org.zalando.planb.provider.AuthorizationCodePeerMessage.consumed;
+
+public class AuthorizationCodePeerControllerTest {
+
+    private static final String KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String OTHER_KEY = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private final SecretKeySpec key = AesGcm.key(KEY);
+
+    private AuthorizationCodePeerController controller;
+
+    @Before
+    public void setUp() {
+        final ShardedAuthorizationCodeStore store = new ShardedAuthorizationCodeStore(4);
+        final AuthorizationCodeProperties properties = new AuthorizationCodeProperties();
+        properties.setKey(KEY);
+        properties.setPeers(asList("http://a", "http://b"));
+        properties.setSelf("http://a");
+        controller = new AuthorizationCodePeerController(
+                new ShardedAuthorizationCodeService(store, asList(new LocalAuthorizationCodePeer(store))), properties);
+    }
+
+    private static AuthorizationCode code() {
+        return AuthorizationCode.builder()
+                .code("mycode")
+                .state("mystate")
+                .clientId("myclient")
+                .realm("/services")
+                .scopes(ImmutableSet.of("uid"))
+                .claims(ImmutableMap.of("sub", "foo"))
+                .redirectUri(URI.create("https://myapp.example.org/callback"))
+                .build();
+    }
+
+    private static long expires() {
+        return System.currentTimeMillis() / 1000 + 60;
+    }
+
+    @Test
+    public void testStoreAndConsume() {
+        final byte[] store = AuthorizationCodePeerMessage.of(code(), expires()).encrypt(key, STORE);
+        assertThat(controller.store(store).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(controller.store(store).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+        final ResponseEntity<byte[]> response = controller.consume(AuthorizationCodePeerMessage.of("mycode").encrypt(key, CONSUME));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        final AuthorizationCode authorizationCode = AuthorizationCodePeerMessage.decrypt(key, consumed("mycode"), response.getBody())
+                .get().toAuthorizationCode();
+        assertThat(authorizationCode.getState()).isEqualTo("mystate");
+        assertThat(authorizationCode.getScopes()).containsExactly("uid");
+        assertThat(authorizationCode.getClaims()).isEqualTo(ImmutableMap.of("sub", "foo"));
+
+        assertThat(controller.consume(AuthorizationCodePeerMessage.of("mycode").encrypt(key, CONSUME)).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void testMessagesMustBeEncryptedWithTheKey() {
+        assertForbidden(() -> controller.store(AuthorizationCodePeerMessage.of(code(), expires()).encrypt(AesGcm.key(OTHER_KEY), STORE)));
+        assertForbidden(() -> controller.consume(AuthorizationCodePeerMessage.of("mycode").encrypt(AesGcm.key(OTHER_KEY), CONSUME)));
+        assertForbidden(() -> controller.store("{}".getBytes()));
+    }
+
+    @Test
+    public void testMessagesAreBoundToTheirType() {
+        assertForbidden(() -> controller.store(AuthorizationCodePeerMessage.of(code()).encrypt(key, consumed("mycode"))));
+        assertForbidden(() -> controller.consume(AuthorizationCodePeerMessage.of(code(), expires()).encrypt(key, STORE)));
+    }
+
+    @Test
+    public void testExpiredMessagesAreRejected() {
+        assertForbidden(() -> controller.store(AuthorizationCodePeerMessage.of(code(), expires() - 60).encrypt(key, STORE)));
+    }
+
+    private static void assertForbidden(Runnable request) {
+        try {
+            request.run();
+            fail("request should have been rejected");
+        } catch (RestException e) {
+            assertThat(e.getStatusCode()).isEqualTo(403);
+        }
+    }
+}
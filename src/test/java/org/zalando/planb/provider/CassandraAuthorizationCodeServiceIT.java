@@ -0,0 +1,85 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import exclude.from.component.scan.CassandraTestAddressTranslatorConfig;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringApplicationConfiguration(classes = {Main.class, CassandraTestAddressTranslatorConfig.class})
+@WebIntegrationTest(randomPort = true)
+@ActiveProfiles("it")
+public class CassandraAuthorizationCodeServiceIT extends AbstractSpringTest {
+
+    @Autowired
+    CassandraAuthorizationCodeService cassandraAuthorizationCodeService;
+
+    private String createCode() {
+        return cassandraAuthorizationCodeService.create("mystate", "myclient", "/services", ImmutableSet.of("uid"),
+                ImmutableMap.of("sub", "foo"), URI.create("https://myapp.example.org/callback"));
+    }
+
+    @Test
+    public void codeCanOnlyBeUsedOnce() {
+        final String code = createCode();
+
+        final Optional<AuthorizationCode> authorizationCode = cassandraAuthorizationCodeService.invalidate(code);
+        assertThat(authorizationCode).isPresent();
+        assertThat(authorizationCode.get().getCode()).isEqualTo(code);
+        assertThat(authorizationCode.get().getState()).isEqualTo("mystate");
+        assertThat(authorizationCode.get().getScopes()).containsExactly("uid");
+
+        assertThat(cassandraAuthorizationCodeService.invalidate(code)).isEmpty();
+        assertThat(cassandraAuthorizationCodeService.invalidateAsync(code).join()).isEmpty();
+    }
+
+    @Test
+    public void codeCanOnlyBeUsedOnceAsync() {
+        final String code = createCode();
+        assertThat(cassandraAuthorizationCodeService.invalidateAsync(code).join()).isPresent();
+        assertThat(cassandraAuthorizationCodeService.invalidateAsync(code).join()).isEmpty();
+        assertThat(cassandraAuthorizationCodeService.invalidate(code)).isEmpty();
+    }
+
+    @Test
+    public void unknownCode() {
+        final String code = CassandraAuthorizationCodeService.getRandomCode();
+        assertThat(cassandraAuthorizationCodeService.invalidate(code)).isEmpty();
+        assertThat(cassandraAuthorizationCodeService.invalidateAsync(code).join()).isEmpty();
+    }
+
+    @Test
+    public void concurrentRedemptionsOnlyOneWins() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final String code = createCode();
+            final List<Future<Optional<AuthorizationCode>>> results = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> i % 2 == 0
+                            ? cassandraAuthorizationCodeService.invalidate(code)
+                            : cassandraAuthorizationCodeService.invalidateAsync(code).join()))
+                    .collect(Collectors.toList());
+
+            int redeemed = 0;
+            for (Future<Optional<AuthorizationCode>> result : results) {
+                redeemed += result.get().isPresent() ? 1 : 0;
+            }
+            assertThat(redeemed).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
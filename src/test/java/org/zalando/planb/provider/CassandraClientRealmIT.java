@@ -0,0 +1,149 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Session;
+import com.google.common.collect.ImmutableMap;
+import exclude.from.component.scan.CassandraTestAddressTranslatorConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.test.context.ActiveProfiles;
+import org.zalando.planb.provider.realms.ClientManagedRealm;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringApplicationConfiguration(classes = {Main.class, CassandraTestAddressTranslatorConfig.class})
+@WebIntegrationTest(randomPort = true)
+@ActiveProfiles("it")
+public class CassandraClientRealmIT extends AbstractSpringTest {
+
+    private static final String REALM = "/services";
+
+    @Autowired
+    private RealmConfig realmConfig;
+
+    @Autowired
+    private Session session;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    private ClientManagedRealm realm;
+
+    private String clientId;
+
+    static void authenticateAs(String realm, String uid) {
+        final UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken(uid, "N/A");
+        user.setDetails(ImmutableMap.of("realm", realm, "uid", uid));
+        final OAuth2Request request = new OAuth2Request(emptyMap(), "test", emptyList(), true, emptySet(), emptySet(), null, emptySet(), emptyMap());
+        SecurityContextHolder.getContext().setAuthentication(new OAuth2Authentication(request, user));
+    }
+
+    @Before
+    public void setUp() {
+        realm = (ClientManagedRealm) realmConfig.getClientRealm(REALM);
+        clientId = "cached-client-" + UUID.randomUUID();
+        authenticateAs(REALM, "user1");
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private long cacheMetric(String name) {
+        return (Long) metricRegistry.getGauges().get("planb.provider.client_cache.services." + name).getValue();
+    }
+
+    private static ClientData client(String... scopes) {
+        return ClientData.builder()
+                .clientSecretHash("qwertz")
+                .scopes(newHashSet(scopes))
+                .defaultScopes(emptySet())
+                .confidential(true)
+                .redirectUris(emptySet())
+                .build();
+    }
+
+    private void insertDirectly(ClientData client) {
+        session.execute(insertInto("client")
+                .value("client_id", clientId)
+                .value("realm", REALM)
+                .value("client_secret_hash", client.getClientSecretHash())
+                .value("scopes", client.getScopes())
+                .value("is_confidential", client.getConfidential())
+                .value("created_by", USER1)
+                .value("last_modified_by", USER1));
+    }
+
+    @Test
+    public void testRepeatedReadsHitTheCache() {
+        insertDirectly(client("foo"));
+
+        final long misses = cacheMetric("miss");
+        final long hits = cacheMetric("hit");
+        assertThat(realm.get(clientId).map(ClientData::getScopes)).contains(newHashSet("foo"));
+        assertThat(cacheMetric("miss")).isEqualTo(misses + 1);
+
+        assertThat(realm.get(clientId).map(ClientData::getScopes)).contains(newHashSet("foo"));
+        assertThat(realm.getAsync(clientId).join().map(ClientData::getScopes)).contains(newHashSet("foo"));
+        assertThat(cacheMetric("miss")).isEqualTo(misses + 1);
+        assertThat(cacheMetric("hit")).isEqualTo(hits + 2);
+    }
+
+    @Test
+    public void testUnknownClientIsCached() {
+        assertThat(realm.get(clientId)).isEmpty();
+
+        // not written through the realm, so the cached "not found" still applies
+        insertDirectly(client("foo"));
+        final long hits = cacheMetric("hit");
+        assertThat(realm.get(clientId)).isEmpty();
+        assertThat(cacheMetric("hit")).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void testCreateOfUnknownClientInvalidates() {
+        assertThat(realm.get(clientId)).isEmpty();
+
+        realm.createOrReplace(clientId, client("foo"));
+        assertThat(realm.get(clientId).map(ClientData::getScopes)).contains(newHashSet("foo"));
+    }
+
+    @Test
+    public void testUpdateInvalidates() {
+        realm.createOrReplace(clientId, client("foo"));
+        assertThat(realm.get(clientId).map(ClientData::getScopes)).contains(newHashSet("foo"));
+
+        realm.update(clientId, ClientData.builder().scopes(newHashSet("foo", "bar")).build());
+        assertThat(realm.get(clientId).map(ClientData::getScopes)).contains(newHashSet("foo", "bar"));
+
+        realm.createOrReplace(clientId, client("baz"));
+        assertThat(realm.getAsync(clientId).join().map(ClientData::getScopes)).contains(newHashSet("baz"));
+    }
+
+    @Test
+    public void testDeleteInvalidates() {
+        realm.createOrReplace(clientId, client("foo"));
+        assertThat(realm.get(clientId)).isPresent();
+
+        realm.delete(clientId);
+        assertThat(realm.get(clientId)).isEmpty();
+        assertThat(realm.getAsync(clientId).join()).isEqualTo(Optional.empty());
+    }
+}
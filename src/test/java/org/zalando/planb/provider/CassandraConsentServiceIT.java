@@ -13,11 +13,18 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.boot.test.WebIntegrationTest;
 
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 @SpringApplicationConfiguration(classes = {Main.class, CassandraTestAddressTranslatorConfig.class})
 @WebIntegrationTest(randomPort = true)
+@TestPropertySource(properties = {
+        "cache.consent.enabled=true",
+        // separate application context, must not clash with the other ones
+        "management.port=0"})
 @ActiveProfiles("it")
 public class CassandraConsentServiceIT extends AbstractSpringTest {
 
@@ -31,6 +38,13 @@ public class CassandraConsentServiceIT extends AbstractSpringTest {
     @Autowired
     CassandraConsentService cassandraConsentService;
 
+    @Autowired
+    MetricRegistry metricRegistry;
+
+    private long cacheMetric(String name) {
+        return (Long) metricRegistry.getGauges().get("planb.provider.consent_cache." + name).getValue();
+    }
+
     @Test
     public void storeAndReadConsent() {
         cassandraConsentService.store(TEST_USERNAME, TEST_REALM, TEST_CLIENT, SCOPES);
@@ -40,6 +54,15 @@ public class CassandraConsentServiceIT extends AbstractSpringTest {
         assertThat(scopes).containsExactly(SCOPE_1, SCOPE_2);
     }
 
+    @Test
+    public void storeAsyncAndReadConsent() {
+        final String username = "async-user";
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).isEmpty();
+
+        cassandraConsentService.storeAsync(username, TEST_REALM, TEST_CLIENT, SCOPES).join();
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).containsOnly(SCOPE_1, SCOPE_2);
+    }
+
     @Test
     public void readEmptyConsent() {
         Set<String> scopes = cassandraConsentService.getConsentedScopes(TEST_USERNAME, TEST_REALM, "nonexistingclient");
@@ -58,6 +81,63 @@ public class CassandraConsentServiceIT extends AbstractSpringTest {
         assertThat(scopes).isEmpty();
     }
 
+    @Test
+    public void otherClientsOfTheSameUserAreReadFromCache() {
+        final String username = "cached-user";
+        cassandraConsentService.store(username, TEST_REALM, TEST_CLIENT, SCOPES);
+        cassandraConsentService.store(username, TEST_REALM, "otherclient", ImmutableSet.of(SCOPE_1));
+
+        final long misses = cacheMetric("miss");
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).containsOnly(SCOPE_1, SCOPE_2);
+        assertThat(cacheMetric("miss")).isEqualTo(misses + 1);
+
+        final long hits = cacheMetric("hit");
+        assertThat(cassandraConsentService.getConsentedScopesAsync(username, TEST_REALM, "otherclient").join()).containsOnly(SCOPE_1);
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, "unknownclient")).isEmpty();
+        assertThat(cacheMetric("hit")).isEqualTo(hits + 2);
+        assertThat(cacheMetric("miss")).isEqualTo(misses + 1);
+    }
+
+    @Test
+    public void writesInvalidateTheCachedConsents() {
+        final String username = "write-through-user";
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).isEmpty();
+
+        cassandraConsentService.store(username, TEST_REALM, TEST_CLIENT, SCOPES);
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).containsOnly(SCOPE_1, SCOPE_2);
+
+        cassandraConsentService.store(username, TEST_REALM, TEST_CLIENT, ImmutableSet.of(SCOPE_2));
+        assertThat(cassandraConsentService.getConsentedScopesAsync(username, TEST_REALM, TEST_CLIENT).join()).containsOnly(SCOPE_2);
+
+        cassandraConsentService.withdraw(username, TEST_REALM, TEST_CLIENT);
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).isEmpty();
+    }
+
+    @Test
+    public void withdrawWinsOverConcurrentLoad() {
+        final String username = "withdraw-race-user";
+        cassandraConsentService.store(username, TEST_REALM, TEST_CLIENT, SCOPES);
+
+        // a load reads the partition, then the consent is withdrawn before the load puts it into the (empty) cache
+        final long generation = cassandraConsentService.getWriteGeneration();
+        cassandraConsentService.withdraw(username, TEST_REALM, TEST_CLIENT);
+        assertThat(cassandraConsentService.remember(username, TEST_REALM, generation, ImmutableMap.of(TEST_CLIENT, SCOPES)))
+                .containsKey(TEST_CLIENT);
+
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).isEmpty();
+        assertThat(cassandraConsentService.getConsentedScopesAsync(username, TEST_REALM, TEST_CLIENT).join()).isEmpty();
+    }
+
+    @Test
+    public void storeWinsOverConcurrentLoad() {
+        final String username = "store-race-user";
+        final long generation = cassandraConsentService.getWriteGeneration();
+        cassandraConsentService.store(username, TEST_REALM, TEST_CLIENT, SCOPES);
+        cassandraConsentService.remember(username, TEST_REALM, generation, ImmutableMap.of());
+
+        assertThat(cassandraConsentService.getConsentedScopes(username, TEST_REALM, TEST_CLIENT)).containsOnly(SCOPE_1, SCOPE_2);
+    }
+
     @Test
     public void storeAndWithdrawlSingleConsent() {
         cassandraConsentService.store(TEST_USERNAME, TEST_REALM, TEST_CLIENT, SCOPES);
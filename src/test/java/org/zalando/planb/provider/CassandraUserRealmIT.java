@@ -0,0 +1,142 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Session;
+import exclude.from.component.scan.CassandraTestAddressTranslatorConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.context.ActiveProfiles;
+import org.zalando.planb.provider.realms.UserManagedRealm;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringApplicationConfiguration(classes = {Main.class, CassandraTestAddressTranslatorConfig.class})
+@WebIntegrationTest(randomPort = true)
+@ActiveProfiles("it")
+public class CassandraUserRealmIT extends AbstractSpringTest {
+
+    private static final String REALM = "/services";
+    private static final String PASSWORD = "secret";
+    private static final String PASSWORD_HASH = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+
+    @Autowired
+    private RealmConfig realmConfig;
+
+    @Autowired
+    private Session session;
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+
+    private UserManagedRealm realm;
+
+    private String username;
+
+    @Before
+    public void setUp() {
+        realm = (UserManagedRealm) realmConfig.getUserRealm(REALM);
+        username = "cached-user-" + UUID.randomUUID();
+        CassandraClientRealmIT.authenticateAs(REALM, "user1");
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private long cacheMetric(String cache, String name) {
+        return (Long) metricRegistry.getGauges().get("planb.provider." + cache + ".services." + name).getValue();
+    }
+
+    private static UserData user(Map<String, String> scopes) {
+        return UserData.builder()
+                .passwordHashes(newHashSet(new UserPasswordHash(PASSWORD_HASH)))
+                .scopes(scopes)
+                .build();
+    }
+
+    private void insertDirectly(Map<String, String> scopes) {
+        session.execute(insertInto("user")
+                .value("username", username)
+                .value("realm", REALM)
+                .value("password_hashes", singleton(new UserPasswordHash(PASSWORD_HASH, "test")))
+                .value("scopes", scopes)
+                .value("created_by", USER1)
+                .value("last_modified_by", USER1));
+    }
+
+    @Test
+    public void testRepeatedReadsHitTheCache() {
+        insertDirectly(singletonMap("read", "true"));
+
+        final long misses = cacheMetric("user_cache", "miss");
+        final long hits = cacheMetric("user_cache", "hit");
+        assertThat(realm.get(username).map(UserData::getScopes)).contains(singletonMap("read", "true"));
+        assertThat(cacheMetric("user_cache", "miss")).isEqualTo(misses + 1);
+
+        assertThat(realm.get(username)).isPresent();
+        assertThat(realm.getAsync(username).join()).isPresent();
+        assertThat(cacheMetric("user_cache", "miss")).isEqualTo(misses + 1);
+        assertThat(cacheMetric("user_cache", "hit")).isEqualTo(hits + 2);
+    }
+
+    @Test
+    public void testUnknownUserIsCached() {
+        assertThat(realm.get(username)).isEmpty();
+
+        // not written through the realm, so the cached "not found" still applies
+        insertDirectly(singletonMap("read", "true"));
+        final long hits = cacheMetric("unknown_user_cache", "hit");
+        assertThat(realm.get(username)).isEmpty();
+        assertThat(realm.getAsync(username).join()).isEmpty();
+        assertThat(cacheMetric("unknown_user_cache", "hit")).isEqualTo(hits + 2);
+    }
+
+    @Test
+    public void testCreateOfUnknownUserInvalidates() {
+        assertThat(realm.get(username)).isEmpty();
+
+        realm.createOrReplace(username, user(singletonMap("read", "true")));
+        assertThat(realm.get(username).map(UserData::getScopes)).contains(singletonMap("read", "true"));
+        assertThat(realm.authenticate(username, PASSWORD, singleton("read"), emptySet())).containsEntry("sub", username);
+    }
+
+    @Test
+    public void testUpdateInvalidates() {
+        realm.createOrReplace(username, user(singletonMap("read", "true")));
+        assertThat(realm.get(username).map(UserData::getScopes)).contains(singletonMap("read", "true"));
+
+        realm.update(username, UserData.builder().scopes(singletonMap("write", "true")).build());
+        assertThat(realm.get(username).map(UserData::getScopes)).contains(singletonMap("write", "true"));
+
+        final String otherHash = BCrypt.hashpw("other", BCrypt.gensalt(4));
+        realm.addPassword(username, new UserPasswordHash(otherHash));
+        assertThat(realm.getAsync(username).join().get().getPasswordHashes())
+                .extracting(UserPasswordHash::getPasswordHash)
+                .containsOnly(PASSWORD_HASH, otherHash);
+    }
+
+    @Test
+    public void testDeleteInvalidates() {
+        realm.createOrReplace(username, user(singletonMap("read", "true")));
+        assertThat(realm.get(username)).isPresent();
+
+        realm.delete(username);
+        assertThat(realm.get(username)).isEmpty();
+        assertThat(realm.getAsync(username).join()).isEmpty();
+    }
+}
@@ -0,0 +1,115 @@
+package org.zalando.planb.provider;
+
+import org.junit.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class CompletableFuturesTest {
+
+    @Test
+    public void testUnwrap() {
+        final BadRequestException cause = new BadRequestException("msg", "type", "description");
+        assertThat(CompletableFutures.unwrap(new CompletionException(new ExecutionException(cause)))).isSameAs(cause);
+        assertThat(CompletableFutures.unwrap(cause)).isSameAs(cause);
+        assertThat(CompletableFutures.unwrap(null)).isNull();
+    }
+
+    @Test
+    public void testFromCatchesExceptions() {
+        final CompletableFuture<String> future = CompletableFutures.from(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThat(future.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void testUncheckedWrapsCheckedExceptions() {
+        try {
+            CompletableFutures.unchecked(() -> {
+                throw new IOException("boom");
+            });
+            fail("exception expected");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void testDeferredResultGetsUnwrappedError() {
+        final BadRequestException cause = new BadRequestException("msg", "type", "description");
+        final CompletableFuture<String> future = CompletableFuture.<String>completedFuture("x").thenApply(x -> {
+            throw cause;
+        });
+
+        final DeferredResult<String> result = CompletableFutures.toDeferredResult(future);
+        assertThat(result.getResult()).isSameAs(cause);
+    }
+
+    @Test
+    public void testDeferredResultGetsValue() {
+        final DeferredResult<String> result = CompletableFutures.toDeferredResult(CompletableFuture.completedFuture("x"));
+        assertThat(result.getResult()).isEqualTo("x");
+    }
+
+    @Test
+    public void testCombine() {
+        final CompletableFuture<String> result = CompletableFutures.combine(
+                CompletableFuture.completedFuture("a"), CompletableFuture.completedFuture("b"), (a, b) -> a + b);
+        assertThat(result.join()).isEqualTo("ab");
+    }
+
+    @Test
+    public void testCombineCancelsSecondIfFirstFails() {
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final CompletableFuture<String> second = new CompletableFuture<>();
+        final CompletableFuture<String> result = CompletableFutures.combine(first, second, (a, b) -> a + b);
+
+        final BadRequestException error = new BadRequestException("msg", "type", "description");
+        first.completeExceptionally(error);
+
+        assertThat(second.isCancelled()).isTrue();
+        assertThat(CompletableFutures.unwrap(catchError(result))).isSameAs(error);
+    }
+
+    @Test
+    public void testCombinePrefersErrorOfFirst() {
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final CompletableFuture<String> second = new CompletableFuture<>();
+        final CompletableFuture<String> result = CompletableFutures.combine(first, second, (a, b) -> a + b);
+
+        second.completeExceptionally(new IllegalStateException("second"));
+        assertThat(result.isDone()).isFalse();
+
+        final BadRequestException error = new BadRequestException("msg", "type", "description");
+        first.completeExceptionally(error);
+        assertThat(CompletableFutures.unwrap(catchError(result))).isSameAs(error);
+    }
+
+    @Test
+    public void testCombineFailsWithSecondIfFirstSucceeds() {
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final CompletableFuture<String> second = new CompletableFuture<>();
+        final CompletableFuture<String> result = CompletableFutures.combine(first, second, (a, b) -> a + b);
+
+        final IllegalStateException error = new IllegalStateException("second");
+        second.completeExceptionally(error);
+        first.complete("a");
+        assertThat(CompletableFutures.unwrap(catchError(result))).isSameAs(error);
+    }
+
+    private static Throwable catchError(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            return e;
+        }
+        throw new AssertionError("future did not fail");
+    }
+}
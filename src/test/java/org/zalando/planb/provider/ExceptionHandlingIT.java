@@ -1,6 +1,7 @@
 package org.zalando.planb.provider;
 
 import org.junit.Test;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
@@ -31,4 +32,32 @@ public class ExceptionHandlingIT extends AbstractOauthTest {
         assertThat(response.getBody()).doesNotContain("Caused by");
     }
 
+    @Test
+    public void rejectedExecutionException() {
+        RequestEntity request = RequestEntity.get(getUriWithPathAsUri("/rejected")).build();
+        getRestTemplate().setErrorHandler(new PassThroughResponseErrorHandler());
+        ResponseEntity<String> response = getRestTemplate().exchange(request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getBody()).contains("unavailable_dependency");
+        assertThat(response.getBody()).doesNotContain("TEST_REJECTED");
+    }
+
+    @Test
+    public void asyncRejectedExecutionException() {
+        RequestEntity request = RequestEntity.get(getUriWithPathAsUri("/asyncRejected")).build();
+        getRestTemplate().setErrorHandler(new PassThroughResponseErrorHandler());
+        ResponseEntity<String> response = getRestTemplate().exchange(request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getBody()).contains("unavailable_dependency");
+    }
+
+    @Test
+    public void asyncRestException() {
+        RequestEntity request = RequestEntity.get(getUriWithPathAsUri("/asyncBadRequest")).build();
+        getRestTemplate().setErrorHandler(new PassThroughResponseErrorHandler());
+        ResponseEntity<String> response = getRestTemplate().exchange(request, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).contains("invalid_request");
+        assertThat(response.getBody()).doesNotContain("CompletionException");
+    }
 }
@@ -4,6 +4,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 public class ExceptionHandlingITController {
@@ -18,4 +22,22 @@ public class ExceptionHandlingITController {
         throw new HttpRequestMethodNotSupportedException(HttpMethod.GET.name(), new String[]{"POST"}, "Request method 'GET' not supported");
     }
 
+    @RequestMapping(value = "/rejected")
+    public void rejected() {
+        throw new RejectedExecutionException("TEST_REJECTED");
+    }
+
+    @RequestMapping(value = "/asyncRejected")
+    public DeferredResult<String> asyncRejected() {
+        return CompletableFutures.toDeferredResult(CompletableFuture.supplyAsync(() -> {
+            throw new RejectedExecutionException("TEST_REJECTED");
+        }));
+    }
+
+    @RequestMapping(value = "/asyncBadRequest")
+    public DeferredResult<String> asyncBadRequest() {
+        return CompletableFutures.toDeferredResult(CompletableFuture.supplyAsync(() -> {
+            throw new BadRequestException("TEST_BAD_REQUEST", "invalid_request", "Test bad request");
+        }));
+    }
 }
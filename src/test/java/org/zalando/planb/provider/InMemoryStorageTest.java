@@ -0,0 +1,50 @@
+package org.zalando.planb.provider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InMemoryStorageTest {
+
+    private InMemoryStorage storage;
+
+    @After
+    public void tearDown() {
+        storage.shutdown();
+    }
+
+    @Test
+    public void testWithoutLatency() {
+        storage = new InMemoryStorage(Duration.ZERO);
+        assertThat(storage.execute(() -> "x")).isEqualTo("x");
+        assertThat(storage.executeAsync(() -> "x").getNow(null)).isEqualTo("x");
+    }
+
+    @Test
+    public void testLatency() {
+        storage = new InMemoryStorage(Duration.ofMillis(50));
+
+        final long start = System.nanoTime();
+        assertThat(storage.execute(() -> "x")).isEqualTo("x");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(50).toNanos());
+
+        final String caller = Thread.currentThread().getName();
+        final CompletableFuture<String> future = storage.executeAsync(() -> Thread.currentThread().getName());
+        assertThat(future.isDone()).isFalse();
+        assertThat(future.join()).startsWith("in-memory-io-").isNotEqualTo(caller);
+    }
+
+    @Test
+    public void testAsyncFailure() {
+        storage = new InMemoryStorage(Duration.ofMillis(1));
+        final CompletableFuture<String> future = storage.executeAsync(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThat(CompletableFutures.unwrap(future.handle((value, error) -> error).join()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
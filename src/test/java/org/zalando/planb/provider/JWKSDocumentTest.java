@@ -0,0 +1,64 @@
+package org.zalando.planb.provider;
+
+import com.google.common.io.ByteStreams;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JWKSDocumentTest {
+
+    private static JWK rsaKey(String kid) throws NoSuchAlgorithmException {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return new RSAKey.Builder((RSAPublicKey) generator.generateKeyPair().getPublic())
+                .keyID(kid)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .build();
+    }
+
+    @Test
+    public void testEmpty() {
+        assertThat(new String(JWKSDocument.EMPTY.getJson(), UTF_8)).isEqualTo("{\"keys\": []}");
+    }
+
+    @Test
+    public void testDocument() throws Exception {
+        final JWK key = rsaKey("mykey");
+        final JWKSDocument document = JWKSDocument.of(Collections.singletonList(key));
+
+        assertThat(new String(document.getJson(), UTF_8)).isEqualTo("{\"keys\": [" + key.toJSONString() + "]}");
+        assertThat(gunzip(document.getGzipped())).isEqualTo(document.getJson());
+    }
+
+    @Test
+    public void testETags() throws Exception {
+        final JWK key = rsaKey("mykey");
+        final JWKSDocument document = JWKSDocument.of(Collections.singletonList(key));
+
+        assertThat(document.getEtag()).startsWith("\"").endsWith("\"");
+        assertThat(document.getGzippedEtag()).isNotEqualTo(document.getEtag());
+        // same content, same validator (e.g. across instances)
+        assertThat(JWKSDocument.of(Collections.singletonList(key)).getEtag()).isEqualTo(document.getEtag());
+        assertThat(JWKSDocument.of(Collections.singletonList(rsaKey("otherkey"))).getEtag()).isNotEqualTo(document.getEtag());
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import net.minidev.json.JSONStyle;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JWTClaimsWriterTest {
+
+    private static final long NOW = 1458000000L;
+
+    private static Map<String, Object> accessTokenClaims() {
+        final Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", "B");
+        claims.put("exp", NOW + 3600);
+        claims.put("iat", NOW);
+        claims.put("realm", "/services");
+        claims.put("scope", ImmutableSet.of("uid", "cn", "openid"));
+        claims.put("sub", "stups_my-app");
+        return claims;
+    }
+
+    private static void assertSameAsNimbus(Map<String, Object> claims) {
+        final JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+        final JWTClaimsWriter writer = JWTClaimsWriter.get();
+        claims.forEach((name, value) -> {
+            // Nimbus takes dates for the time claims
+            builder.claim(name, value instanceof Long ? new Date((Long) value * 1000) : value);
+            writer.claim(name, value);
+        });
+
+        final String expected = builder.build().toJSONObject().toJSONString(JSONStyle.LT_COMPRESS);
+        // compare what ends up in the token (Nimbus' Payload uses UTF-8, unpaired surrogates become '?')
+        assertThat(writer.toJSONString()).isEqualTo(new String(expected.getBytes(UTF_8), UTF_8));
+    }
+
+    @Test
+    public void testAccessToken() {
+        assertSameAsNimbus(accessTokenClaims());
+    }
+
+    @Test
+    public void testAccessTokenWithAuthorizedParty() {
+        final Map<String, Object> claims = accessTokenClaims();
+        claims.put("scope", ImmutableSet.of("uid", "azp"));
+        claims.put("azp", "myclient");
+        assertSameAsNimbus(claims);
+    }
+
+    @Test
+    public void testManyClaims() {
+        // more than 12 and 24 members make HashMap resize
+        for (int count : new int[]{10, 13, 25, 50}) {
+            final Map<String, Object> claims = accessTokenClaims();
+            for (int i = 0; i < count; i++) {
+                claims.put("https://identity.zalando.com/claim" + i, "value" + i);
+            }
+            assertSameAsNimbus(claims);
+        }
+    }
+
+    @Test
+    public void testCollidingNames() {
+        // "Aa" and "BB" have the same hash code
+        final Map<String, Object> claims = new LinkedHashMap<>();
+        for (String name : new String[]{"BBBB", "AaAa", "AaBB", "BBAa", "AaAaAa", "AaAaBB", "AaBBAa", "BBAaAa",
+                "AaBBBB", "BBAaBB", "BBBBAa", "BBBBBB"}) {
+            claims.put(name, name);
+        }
+        assertSameAsNimbus(claims);
+    }
+
+    @Test
+    public void testEscaping() {
+        final StringBuilder allChars = new StringBuilder();
+        for (char ch = 0; ch < Character.MAX_VALUE; ch++) {
+            allChars.append(ch);
+        }
+        final Map<String, Object> claims = accessTokenClaims();
+        claims.put("sub", allChars.toString());
+        claims.put("emoji", "\uD83D\uDE00 and a lone \uD83D surrogate");
+        claims.put("slash", "/bar\\\"");
+        assertSameAsNimbus(claims);
+    }
+
+    @Test
+    public void testReplacedClaimKeepsPosition() {
+        final JWTClaimsWriter writer = JWTClaimsWriter.get().claim("sub", "a").claim("realm", "/x").claim("sub", "b");
+        assertThat(writer.toJSONString()).contains("\"sub\":\"b\"").doesNotContain("\"sub\":\"a\"");
+    }
+
+    @Test
+    public void testOtherValues() {
+        final Map<String, Object> claims = accessTokenClaims();
+        claims.put("flag", true);
+        claims.put("nested", ImmutableMap.of("key", "value"));
+        claims.put("negative", -42L);
+        assertSameAsNimbus(claims);
+    }
+
+    @Test
+    public void testNullValuesAreLeftOut() {
+        final Map<String, Object> claims = accessTokenClaims();
+        claims.put("sub", null);
+        claims.put("https://identity.zalando.com/realm", null);
+        claims.put("list", Arrays.asList("a", null));
+        assertSameAsNimbus(claims);
+
+        // the remaining members are ordered like a HashMap without the null ones
+        final Map<String, Object> colliding = new LinkedHashMap<>();
+        for (String name : new String[]{"BBBB", "AaAa", "AaBB", "BBAa", "AaAaAa", "AaAaBB", "AaBBAa", "BBAaAa",
+                "AaBBBB", "BBAaBB", "BBBBAa", "BBBBBB"}) {
+            colliding.put(name, name.startsWith("Aa") ? null : name);
+        }
+        assertSameAsNimbus(colliding);
+    }
+
+    @Test
+    public void testSigningInput() {
+        final byte[] header = "eyJhbGciOiJFUzI1NiJ9".getBytes(US_ASCII);
+        // cover all three base64 padding cases
+        for (String sub : new String[]{"user", "userx", "userxy"}) {
+            final JWTClaimsWriter writer = JWTClaimsWriter.get().claim("sub", sub);
+            final String json = writer.toJSONString();
+            final String signingInput = new String(writer.signingInput(header), US_ASCII);
+
+            assertThat(signingInput).isEqualTo("eyJhbGciOiJFUzI1NiJ9." + Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes()));
+        }
+    }
+
+    @Test
+    public void testWriterIsReset() {
+        JWTClaimsWriter.get().claim("sub", "a");
+        assertThat(JWTClaimsWriter.get().claim("realm", "/x").toJSONString()).isEqualTo("{\"realm\":\"/x\"}");
+    }
+}
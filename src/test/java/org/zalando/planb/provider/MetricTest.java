@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.longThat;
@@ -61,7 +62,7 @@ public class MetricTest {
         metric.finish("hello");
 
         verify(mockRegistry).timer(eq("hello"));
-        verify(mockTimer).update(longThat(is(greaterThan(0L))), eq(MILLISECONDS));
+        verify(mockTimer).update(longThat(is(greaterThan(0L))), eq(NANOSECONDS));
     }
 
     @Test
@@ -75,7 +76,23 @@ public class MetricTest {
         metric.finish("hello");
 
         verify(mockRegistry).timer(eq("hello"));
-        verify(mockTimer).update(longThat(is(greaterThan(0L))), eq(MILLISECONDS));
+        verify(mockTimer).update(longThat(is(greaterThan(0L))), eq(NANOSECONDS));
 
     }
+
+    @Test
+    public void testFinishResolvedTimer() throws Exception {
+        metric.start();
+
+        Thread.sleep(50);
+
+        metric.finish(mockTimer);
+
+        verify(mockTimer).update(longThat(is(greaterThan(MILLISECONDS.toNanos(50) - 1))), eq(NANOSECONDS));
+    }
+
+    @Test
+    public void testFinishResolvedTimerButNotStarted() throws Exception {
+        metric.finish(mockTimer);
+    }
 }
@@ -4,6 +4,8 @@ import org.junit.Test;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class OIDCControllerTest {
 
@@ -42,4 +44,33 @@ public class OIDCControllerTest {
         assertEquals(cred2.getClientId(), "");
         assertEquals(cred2.getClientSecret(), "");
     }
+
+    @Test
+    public void matchesETag() {
+        assertTrue(OIDCController.matchesETag("\"abc\"", "\"abc\""));
+        assertTrue(OIDCController.matchesETag("W/\"abc\"", "\"abc\""));
+        assertTrue(OIDCController.matchesETag("\"xyz\", \"abc\"", "\"abc\""));
+        assertTrue(OIDCController.matchesETag("*", "\"abc\""));
+        assertFalse(OIDCController.matchesETag(null, "\"abc\""));
+        assertFalse(OIDCController.matchesETag("\"abc-gzip\"", "\"abc\""));
+    }
+
+    @Test
+    public void acceptsGzip() {
+        assertTrue(OIDCController.acceptsGzip("gzip"));
+        assertTrue(OIDCController.acceptsGzip("deflate, GZIP"));
+        assertTrue(OIDCController.acceptsGzip("gzip;q=0.5, identity"));
+        assertTrue(OIDCController.acceptsGzip("x-gzip"));
+        assertTrue(OIDCController.acceptsGzip("*"));
+        assertTrue(OIDCController.acceptsGzip("identity;q=1, *;q=0.1"));
+        assertFalse(OIDCController.acceptsGzip(null));
+        assertFalse(OIDCController.acceptsGzip(""));
+        assertFalse(OIDCController.acceptsGzip("identity"));
+        assertFalse(OIDCController.acceptsGzip("gzip;q=0"));
+        assertFalse(OIDCController.acceptsGzip("gzip; Q=0.000"));
+        assertFalse(OIDCController.acceptsGzip("gzip;q=0, *"));
+        assertFalse(OIDCController.acceptsGzip("*;q=0"));
+        assertFalse(OIDCController.acceptsGzip("gzip;q=invalid"));
+        assertFalse(OIDCController.acceptsGzip("x-gzipped, notgzip"));
+    }
 }
@@ -28,6 +28,9 @@ import java.io.IOException;
 import java.util.Base64;
 import java.util.Map;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
@@ -207,7 +210,7 @@ public class OIDCCreateTokenIT extends AbstractOauthTest {
         assertThat(jwt.getJWTClaimsSet().getClaims()).containsOnlyKeys("sub", "realm", "iss", "iat", "exp", "scope");
         assertThat(jwt.getJWTClaimsSet().getStringClaim("realm")).isEqualTo("/customers");
         assertThat(jwt.getJWTClaimsSet().getStringClaim("iss")).isEqualTo("B");
-        assertThat(jwt.getJWTClaimsSet().getStringListClaim("scope")).containsExactly("uid", "openid");
+        assertThat(jwt.getJWTClaimsSet().getStringListClaim("scope")).containsExactly("openid", "uid"); // same order as in "scope"
     }
 
     @Test
@@ -269,6 +272,8 @@ public class OIDCCreateTokenIT extends AbstractOauthTest {
             assertThat(e.getStatusCode()).isEqualTo(BAD_REQUEST);
             assertThat(getErrorResponseMap(e)).contains(entry("error", "invalid_scope"));
         }
+        // the client is checked first, no customer login was started
+        verify(0, postRequestedFor(urlMatching("/ws/customerService.*")));
     }
 
     @Test
@@ -1,8 +1,10 @@
 package org.zalando.planb.provider;
 
 import org.junit.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -22,5 +24,43 @@ public class OIDCJWKsIT extends AbstractOauthTest {
         assertThat(response.getHeaders().getContentType().toString()).isEqualTo(MediaType.APPLICATION_JSON_UTF8_VALUE);
 
         // TODO check the actual expected keys
+        assertThat(response.getHeaders().getETag()).isNotEmpty();
+        assertThat(response.getHeaders().getCacheControl()).contains("max-age=60");
+    }
+
+    @Test
+    public void notModified() {
+        final URI uri = URI.create(getHttpPublicKeysUri());
+        final ResponseEntity<String> response = getRestTemplate().getForEntity(uri, String.class);
+
+        final ResponseEntity<String> revalidated = getRestTemplate().exchange(RequestEntity.get(uri)
+                .ifNoneMatch(response.getHeaders().getETag())
+                .build(), String.class);
+
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getHeaders().getETag()).isEqualTo(response.getHeaders().getETag());
+        assertThat(revalidated.getBody()).isNull();
+    }
+
+    @Test
+    public void uncompressed() {
+        final ResponseEntity<String> response = getRestTemplate().exchange(
+                RequestEntity.get(URI.create(getHttpPublicKeysUri())).header(HttpHeaders.ACCEPT_ENCODING, "identity").build(),
+                String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getBody()).startsWith("{\"keys\": [");
+    }
+
+    @Test
+    public void gzipRefused() {
+        final ResponseEntity<String> response = getRestTemplate().exchange(
+                RequestEntity.get(URI.create(getHttpPublicKeysUri())).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity").build(),
+                String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getBody()).startsWith("{\"keys\": [");
     }
 }
@@ -5,7 +5,6 @@ import org.junit.Test;
 import org.springframework.beans.factory.BeanFactory;
 import org.zalando.planb.provider.realms.*;
 
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -39,14 +38,42 @@ public class RealmConfigTest {
 
     @Test
     public void testFindRealmInHost() {
-        Set<String> realmNames = ImmutableSet.of("/foo", "/bar");
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "somethingelse")).isEmpty();
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "foobar")).isEmpty();
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "xfoox")).isEmpty();
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "provider.foo.example.org")).contains("/foo");
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "provider-bar.example.org")).contains("/bar");
+        RealmIndex index = new RealmIndex(ImmutableSet.of("/foo", "/bar"));
+        assertThat(index.findRealmNameInHost("somethingelse")).isEmpty();
+        assertThat(index.findRealmNameInHost("foobar")).isEmpty();
+        assertThat(index.findRealmNameInHost("xfoox")).isEmpty();
+        assertThat(index.findRealmNameInHost("fo")).isEmpty();
+        assertThat(index.findRealmNameInHost("")).isEmpty();
+        assertThat(index.findRealmNameInHost("provider.foo.example.org")).contains("/foo");
+        assertThat(index.findRealmNameInHost("provider-bar.example.org")).contains("/bar");
+        assertThat(index.findRealmNameInHost("foo")).contains("/foo");
+        assertThat(index.findRealmNameInHost("..foo-")).contains("/foo");
         // we sort the realm names, so it will return the first one if both match
-        assertThat(RealmConfig.findRealmNameInHost(realmNames, "foo.bar")).contains("/bar");
+        assertThat(index.findRealmNameInHost("foo.bar")).contains("/bar");
+    }
+
+    @Test
+    public void testFindRealmInHostWithCommonPrefixes() {
+        RealmIndex index = new RealmIndex(ImmutableSet.of("/services", "/service", "/my-realm", "customers"));
+        assertThat(index.findRealmNameInHost("planb.service.example.org")).contains("/service");
+        assertThat(index.findRealmNameInHost("planb.services.example.org")).contains("/services");
+        assertThat(index.findRealmNameInHost("planb.servic.example.org")).isEmpty();
+        assertThat(index.findRealmNameInHost("planb.customers.example.org")).contains("customers");
+        // labels never contain separators
+        assertThat(index.findRealmNameInHost("planb.my-realm.example.org")).isEmpty();
+    }
+
+    @Test
+    public void testFindRealmInRealm() {
+        RealmIndex index = new RealmIndex(ImmutableSet.of("/foo", "bar", "/baz", "baz"));
+        assertThat(index.findRealmNameInRealm("/foo")).contains("/foo");
+        assertThat(index.findRealmNameInRealm("foo")).contains("/foo");
+        assertThat(index.findRealmNameInRealm("/bar")).contains("bar");
+        assertThat(index.findRealmNameInRealm("bar")).contains("bar");
+        assertThat(index.findRealmNameInRealm("baz")).contains("/baz");
+        assertThat(index.findRealmNameInRealm("//foo")).isEmpty();
+        assertThat(index.findRealmNameInRealm("fo")).isEmpty();
+        assertThat(index.findRealmNameInRealm("")).isEmpty();
     }
 
     @Test(expected = RealmNotFoundException.class)
@@ -82,5 +109,7 @@ public class RealmConfigTest {
         assertThat(config.getClientRealm("/myrealm")).isSameAs(mockClientRealm);
         assertThat(config.getUserRealm("/upstreamrealm")).isSameAs(mockUpstreamUserRealm);
         assertThat(config.getClientRealm("/upstreamrealm")).isSameAs(mockClientRealm);
+        assertThat(config.findRealmNameInRealm("myrealm")).contains("/myrealm");
+        assertThat(config.findRealmNameInHost("planb.upstreamrealm.example.org")).contains("/upstreamrealm");
     }
 }
@@ -0,0 +1,63 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScopeServiceTest {
+
+    @Test
+    public void testSplit() {
+        assertThat(ScopeService.split("uid cn uid openid")).containsExactly("cn", "openid", "uid");
+        assertThat(ScopeService.split(Optional.of(" uid "))).containsExactly("uid");
+        assertThat(ScopeService.split(Optional.of("  "))).isEmpty();
+        assertThat(ScopeService.split(Optional.empty())).isEmpty();
+    }
+
+    @Test
+    public void testSplitIsCanonical() {
+        final Set<String> scopes = ScopeService.split("uid cn");
+        assertThat(ScopeService.split("uid cn")).isSameAs(scopes);
+        assertThat(ScopeService.split("cn uid")).isEqualTo(scopes);
+        assertThat(scopes.hashCode()).isEqualTo(new HashSet<>(asList("uid", "cn")).hashCode());
+        assertThat(scopes).isEqualTo(ImmutableSet.of("cn", "uid"));
+    }
+
+    @Test
+    public void testJoin() {
+        assertThat(ScopeService.join(ScopeService.split("uid cn openid"))).isEqualTo("cn openid uid");
+        assertThat(ScopeService.join(ImmutableSet.of("uid", "cn", "openid"))).isEqualTo("cn openid uid");
+        assertThat(ScopeService.get(Optional.empty())).isEmpty();
+    }
+
+    @Test
+    public void testMissingScopes() {
+        ScopeSet.register(asList("uid", "cn"));
+        final Set<String> defaults = ScopeSet.of("uid", "cn");
+
+        assertThat(ScopeService.getMissingScopes(ScopeSet.of("cn"), defaults, ImmutableSet.of())).isEmpty();
+        assertThat(ScopeService.getMissingScopes(ScopeSet.of(), defaults, ImmutableSet.of())).isEmpty();
+        assertThat(ScopeService.getMissingScopes(ScopeSet.of("cn", "write"), defaults, ImmutableSet.of("write"))).isEmpty();
+        assertThat(ScopeService.getMissingScopes(ScopeSet.of("cn", "write", "read"), defaults, ImmutableSet.of("write")))
+                .containsOnly("read");
+        assertThat(ScopeService.getMissingScopes(ImmutableSet.of("uid", "read"), ImmutableSet.of("uid"), ImmutableSet.of()))
+                .containsOnly("read");
+    }
+
+    @Test
+    public void testMissingScopesWithSetsCreatedBeforeRegistration() {
+        final Set<String> requested = ScopeSet.of("scope-before-registration");
+        final Set<String> defaults = ScopeSet.of("scope-before-registration", "other");
+        ScopeSet.register(asList("scope-before-registration", "other"));
+
+        assertThat(ScopeService.getMissingScopes(requested, defaults, ImmutableSet.of())).isEmpty();
+        assertThat(ScopeService.getMissingScopes(ScopeSet.of("other", "unknown"), defaults, ImmutableSet.of()))
+                .containsOnly("unknown");
+    }
+}
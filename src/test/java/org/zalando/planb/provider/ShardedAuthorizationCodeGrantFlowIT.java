@@ -0,0 +1,57 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Same flows, with codes kept in memory by their owning instance
+ */
+@TestPropertySource(properties = {
+        "authorizationCode.sharded=true",
+        "authorizationCode.peers=http://self",
+        "authorizationCode.self=http://self",
+        "authorizationCode.key=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=",
+        // separate application context, must not clash with the cached one
+        "management.port=0"})
+public class ShardedAuthorizationCodeGrantFlowIT extends AuthorizationCodeGrantFlowIT {
+
+    @Autowired
+    private AuthorizationCodeService authorizationCodeService;
+
+    @Test
+    public void shardedCodesAreUsed() {
+        assertThat(authorizationCodeService).isInstanceOf(ShardedAuthorizationCodeService.class);
+    }
+
+    @Test
+    public void peerCanStoreAndConsumeOverHttp() {
+        final HttpAuthorizationCodePeer peer = new HttpAuthorizationCodePeer("http://localhost:" + getPort(),
+                AesGcm.key("MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="), Duration.ofSeconds(2), 2, Runnable::run);
+        final String code = CassandraAuthorizationCodeService.getRandomCode();
+        final AuthorizationCode authorizationCode = AuthorizationCode.builder()
+                .code(code)
+                .state("mystate")
+                .clientId("myclient")
+                .realm("/services")
+                .scopes(ImmutableSet.of("uid"))
+                .claims(ImmutableMap.of("sub", "foo"))
+                .redirectUri(URI.create("https://myapp.example.org/callback"))
+                .build();
+
+        assertThat(peer.store(authorizationCode, System.currentTimeMillis() / 1000 + 60)).isTrue();
+        assertThat(peer.store(authorizationCode, System.currentTimeMillis() / 1000 + 60)).isFalse();
+
+        // the code was stored on this instance, so it can be redeemed here
+        assertThat(peer.consumeAsync(code).join().get().getClaims()).isEqualTo(ImmutableMap.of("sub", "foo"));
+        assertThat(peer.consume(code)).isEmpty();
+        assertThat(authorizationCodeService.invalidate(code)).isEmpty();
+    }
+}
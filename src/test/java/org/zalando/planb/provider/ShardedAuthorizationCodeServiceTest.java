@@ -0,0 +1,133 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ShardedAuthorizationCodeServiceTest {
+
+    private List<ShardedAuthorizationCodeStore> stores;
+
+    // three "instances", with local stand-ins for the HTTP peers
+    private List<ShardedAuthorizationCodeService> services;
+
+    @Before
+    public void setUp() {
+        stores = Stream.generate(() -> new ShardedAuthorizationCodeStore(4)).limit(3).collect(toList());
+        final List<AuthorizationCodePeer> peers = stores.stream().map(LocalAuthorizationCodePeer::new).collect(toList());
+        services = stores.stream().map(store -> new ShardedAuthorizationCodeService(store, peers)).collect(toList());
+    }
+
+    private String createCode(ShardedAuthorizationCodeService service) {
+        return service.create("mystate", "myclient", "/services", ImmutableSet.of("uid"),
+                ImmutableMap.of("sub", "foo"), URI.create("https://myapp.example.org/callback"));
+    }
+
+    @Test
+    public void testCodeCanBeRedeemedOnAnyInstance() {
+        final String code = createCode(services.get(0));
+
+        final Optional<AuthorizationCode> authorizationCode = services.get(1).invalidate(code);
+        assertThat(authorizationCode).isPresent();
+        assertThat(authorizationCode.get().getCode()).isEqualTo(code);
+        assertThat(authorizationCode.get().getClientId()).isEqualTo("myclient");
+        assertThat(authorizationCode.get().getRedirectUri()).isEqualTo(URI.create("https://myapp.example.org/callback"));
+
+        assertThat(services.get(0).invalidate(code)).isEmpty();
+        assertThat(services.get(2).invalidateAsync(code).join()).isEmpty();
+    }
+
+    @Test
+    public void testCodeCanBeRedeemedAsync() {
+        final String code = createCode(services.get(2));
+        assertThat(services.get(0).invalidateAsync(code).join()).isPresent();
+        assertThat(services.get(1).invalidate(code)).isEmpty();
+    }
+
+    @Test
+    public void testCodesAreSpreadOverTheirOwners() {
+        for (int i = 0; i < 300; i++) {
+            final String code = createCode(services.get(i % 3));
+            // all instances agree on the owner
+            assertThat(services.get(1).getOwner(code)).isSameAs(services.get(2).getOwner(code));
+        }
+        assertThat(stores.stream().mapToInt(ShardedAuthorizationCodeStore::size).sum()).isEqualTo(300);
+        assertThat(stores).allMatch(store -> store.size() > 50);
+    }
+
+    @Test
+    public void testUnknownCode() {
+        assertThat(services.get(0).invalidate(CassandraAuthorizationCodeService.getRandomCode())).isEmpty();
+        assertThat(services.get(0).invalidate("")).isEmpty();
+    }
+
+    @Test
+    public void testCodesAreOwnedByAvailablePeers() {
+        final AuthorizationCodePeer down = new UnavailablePeer();
+        final List<AuthorizationCodePeer> peers = Arrays.asList(new LocalAuthorizationCodePeer(stores.get(0)), down,
+                new LocalAuthorizationCodePeer(stores.get(2)));
+        final ShardedAuthorizationCodeService service = new ShardedAuthorizationCodeService(stores.get(0), peers);
+
+        for (int i = 0; i < 30; i++) {
+            final String code = createCode(service);
+            assertThat(service.getOwner(code)).isNotSameAs(down);
+            assertThat(service.invalidate(code)).isPresent();
+        }
+    }
+
+    @Test
+    public void testCodesAreOwnedBySelfIfAllOthersAreDown() {
+        final List<AuthorizationCodePeer> peers = Arrays.asList(new UnavailablePeer(),
+                new LocalAuthorizationCodePeer(stores.get(1)), new UnavailablePeer());
+        final ShardedAuthorizationCodeService service = new ShardedAuthorizationCodeService(stores.get(1), peers);
+
+        for (int i = 0; i < 30; i++) {
+            final String code = createCode(service);
+            assertThat(service.getOwner(code)).isSameAs(peers.get(1));
+        }
+        assertThat(stores.get(1).size()).isEqualTo(30);
+    }
+
+    @Test
+    public void testCreateFailsIfNoPeerIsAvailable() {
+        final ShardedAuthorizationCodeService service = new ShardedAuthorizationCodeService(stores.get(0),
+                Arrays.asList(new UnavailablePeer(), new UnavailablePeer()));
+        try {
+            createCode(service);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause()).isInstanceOf(ResourceAccessException.class);
+        }
+    }
+
+    private static class UnavailablePeer implements AuthorizationCodePeer {
+
+        @Override
+        public boolean store(AuthorizationCode code, long expires) {
+            throw new ResourceAccessException("Connection refused");
+        }
+
+        @Override
+        public Optional<AuthorizationCode> consume(String code) {
+            throw new ResourceAccessException("Connection refused");
+        }
+
+        @Override
+        public CompletableFuture<Optional<AuthorizationCode>> consumeAsync(String code) {
+            return CompletableFutures.failed(new ResourceAccessException("Connection refused"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedAuthorizationCodeStoreTest {
+
+    private static final long NOW = 1458000000L;
+
+    private final ShardedAuthorizationCodeStore store = new ShardedAuthorizationCodeStore(4, NOW);
+
+    private static AuthorizationCode code(String code) {
+        return AuthorizationCode.builder()
+                .code(code)
+                .state("mystate")
+                .clientId("myclient")
+                .realm("/services")
+                .scopes(ImmutableSet.of("uid"))
+                .claims(ImmutableMap.of("sub", "foo"))
+                .redirectUri(URI.create("https://myapp.example.org/callback"))
+                .build();
+    }
+
+    @Test
+    public void testCodeCanOnlyBeUsedOnce() {
+        assertThat(store.put(code("a"), NOW + 60, NOW)).isTrue();
+        assertThat(store.consume("a", NOW).get().getState()).isEqualTo("mystate");
+        assertThat(store.consume("a", NOW)).isEmpty();
+        assertThat(store.consume("unknown", NOW)).isEmpty();
+    }
+
+    @Test
+    public void testUsedCodeCanNotBeStoredAgain() {
+        assertThat(store.put(code("a"), NOW + 60, NOW)).isTrue();
+        assertThat(store.put(code("a"), NOW + 60, NOW)).isFalse();
+        assertThat(store.consume("a", NOW)).isPresent();
+        assertThat(store.put(code("a"), NOW + 60, NOW + 1)).isFalse();
+        assertThat(store.consume("a", NOW + 1)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidExpiry() {
+        assertThat(store.put(code("expired"), NOW, NOW)).isFalse();
+        assertThat(store.put(code("too-long"), NOW + 3600, NOW)).isFalse();
+        assertThat(store.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpiredCodeCanNotBeUsed() {
+        store.put(code("a"), NOW + 60, NOW);
+        assertThat(store.consume("a", NOW + 60)).isEmpty();
+    }
+
+    @Test
+    public void testExpire() {
+        for (int i = 0; i < 100; i++) {
+            store.put(code("code" + i), NOW + 1 + (i % 60), NOW);
+        }
+        assertThat(store.consume("code0", NOW)).isPresent();
+        assertThat(store.size()).isEqualTo(100);
+
+        store.expire(NOW + 1);
+        assertThat(store.size()).isEqualTo(98);
+
+        store.expire(NOW + 30);
+        assertThat(store.size()).isEqualTo(40);
+        assertThat(store.consume("code30", NOW + 30)).isPresent();
+
+        store.expire(NOW + 60);
+        assertThat(store.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpireAfterFallingBehind() {
+        store.put(code("a"), NOW + 10, NOW);
+        store.expire(NOW + 5);
+        store.put(code("b"), NOW + 65, NOW + 5);
+        store.expire(NOW + 1000);
+        assertThat(store.size()).isEqualTo(0);
+    }
+}
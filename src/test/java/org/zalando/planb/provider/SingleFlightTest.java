@@ -0,0 +1,128 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.Meter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SingleFlightTest {
+
+    private Meter coalesced;
+    private SingleFlight<String, String> singleFlight;
+    private AtomicInteger calls;
+
+    @Before
+    public void setUp() {
+        coalesced = new Meter();
+        singleFlight = new SingleFlight<>(Duration.ofSeconds(5), coalesced);
+        calls = new AtomicInteger();
+    }
+
+    private CompletableFuture<String> call(CompletableFuture<String> result) {
+        calls.incrementAndGet();
+        return result;
+    }
+
+    @Test
+    public void testConcurrentCallsShareTheResult() throws Exception {
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call(upstream));
+        final CompletableFuture<String> second = singleFlight.execute("key", () -> call(upstream));
+        final CompletableFuture<String> other = singleFlight.execute("other", () -> call(CompletableFuture.completedFuture("y")));
+
+        assertThat(singleFlight.size()).isEqualTo(1);
+        upstream.complete("x");
+
+        assertThat(first.get()).isEqualTo("x");
+        assertThat(second.get()).isEqualTo("x");
+        assertThat(other.get()).isEqualTo("y");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(coalesced.getCount()).isEqualTo(1);
+        assertThat(singleFlight.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentCallsShareTheError() throws Exception {
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call(upstream));
+        final CompletableFuture<String> second = singleFlight.execute("key", () -> call(upstream));
+
+        final IllegalStateException error = new IllegalStateException("boom");
+        upstream.completeExceptionally(error);
+
+        for (CompletableFuture<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                fail("exception expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isSameAs(error);
+            }
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCompletedCallsAreNotReused() throws Exception {
+        assertThat(singleFlight.execute("key", () -> call(CompletableFuture.completedFuture("x"))).get()).isEqualTo("x");
+        assertThat(singleFlight.execute("key", () -> call(CompletableFuture.completedFuture("y"))).get()).isEqualTo("y");
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(coalesced.getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testThrowingCallIsNotInFlight() throws Exception {
+        final CompletableFuture<String> future = singleFlight.execute("key", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(future.isCompletedExceptionally()).isTrue();
+        assertThat(singleFlight.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testEveryCallerTimesOut() throws Exception {
+        singleFlight = new SingleFlight<>(Duration.ofMillis(50), coalesced);
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call(upstream));
+        final CompletableFuture<String> second = singleFlight.execute("key", () -> call(upstream));
+
+        for (CompletableFuture<String> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                fail("exception expected");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+            }
+        }
+
+        // the call itself is still in flight, late callers still join it
+        assertThat(singleFlight.size()).isEqualTo(1);
+        final CompletableFuture<String> third = singleFlight.execute("key", () -> call(upstream));
+        upstream.complete("x");
+        assertThat(third.get()).isEqualTo("x");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        final CompletableFuture<String> upstream = new CompletableFuture<>();
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call(upstream));
+        final CompletableFuture<String> second = singleFlight.execute("key", () -> call(upstream));
+
+        first.cancel(false);
+        upstream.complete("x");
+
+        assertThat(second.get()).isEqualTo("x");
+    }
+}
@@ -0,0 +1,26 @@
+package org.zalando.planb.provider;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Same flows, with codes that are not stored in the authorization_code table
+ */
+@TestPropertySource(properties = {
+        "authorizationCode.stateless=true",
+        "authorizationCode.key=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=",
+        // separate application context, must not clash with the cached one
+        "management.port=0"})
+public class StatelessAuthorizationCodeGrantFlowIT extends AuthorizationCodeGrantFlowIT {
+
+    @Autowired
+    private AuthorizationCodeService authorizationCodeService;
+
+    @Test
+    public void statelessCodesAreUsed() {
+        assertThat(authorizationCodeService).isInstanceOf(StatelessAuthorizationCodeService.class);
+    }
+}
@@ -0,0 +1,78 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class StatelessAuthorizationCodeServiceTest {
+
+    private static final String KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String OTHER_KEY = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private StatelessAuthorizationCodeService service;
+
+    private static StatelessAuthorizationCodeService service(String key) {
+        final AuthorizationCodeProperties properties = new AuthorizationCodeProperties();
+        properties.setStateless(true);
+        properties.setKey(key);
+        return new StatelessAuthorizationCodeService(properties,
+                new InMemoryAuthorizationCodeReplayStore(new InMemoryStorage(Duration.ZERO)));
+    }
+
+    private String createCode() {
+        return service.create("mystate", "myclient", "/services", ImmutableSet.of("uid", "openid"),
+                ImmutableMap.of("sub", "foo"), URI.create("https://myapp.example.org/callback"));
+    }
+
+    @Before
+    public void setUp() {
+        service = service(KEY);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final String code = createCode();
+        assertThat(code).matches("^[a-zA-Z0-9_-]+$");
+
+        final Optional<AuthorizationCode> authorizationCode = service.invalidate(code);
+        assertThat(authorizationCode).isPresent();
+        assertThat(authorizationCode.get().getCode()).isEqualTo(code);
+        assertThat(authorizationCode.get().getState()).isEqualTo("mystate");
+        assertThat(authorizationCode.get().getClientId()).isEqualTo("myclient");
+        assertThat(authorizationCode.get().getRealm()).isEqualTo("/services");
+        assertThat(authorizationCode.get().getScopes()).containsOnly("uid", "openid");
+        assertThat(authorizationCode.get().getClaims()).containsOnly(entry("sub", "foo"));
+        assertThat(authorizationCode.get().getRedirectUri()).isEqualTo(URI.create("https://myapp.example.org/callback"));
+    }
+
+    @Test
+    public void testCodeCanOnlyBeUsedOnce() {
+        final String code = createCode();
+        assertThat(service.invalidateAsync(code).join()).isPresent();
+        assertThat(service.invalidateAsync(code).join()).isEmpty();
+        assertThat(service.invalidate(code)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidCodes() {
+        final String code = createCode();
+        // not the last char, its low bits might not be used
+        final int middle = code.length() / 2;
+        final String modified = code.substring(0, middle) + (code.charAt(middle) == 'A' ? 'B' : 'A') + code.substring(middle + 1);
+
+        assertThat(service.invalidate(modified)).isEmpty();
+        assertThat(service.invalidate("not base64!")).isEmpty();
+        assertThat(service.invalidate(CassandraAuthorizationCodeService.getRandomCode())).isEmpty();
+        assertThat(service(OTHER_KEY).invalidate(code)).isEmpty();
+        // still valid
+        assertThat(service.invalidate(code)).isPresent();
+    }
+}
@@ -0,0 +1,72 @@
+package org.zalando.planb.provider;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.provider.realms.ClientRealmAuthenticationException;
+import org.zalando.planb.provider.realms.UserRealmAuthenticationException;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenMetricsTest {
+
+    private MetricRegistry metricRegistry;
+    private TokenMetrics tokenMetrics;
+
+    @Before
+    public void setUp() {
+        final RealmProperties realmProperties = new RealmProperties();
+        realmProperties.getNames().addAll(asList("/services", "customers"));
+        metricRegistry = new MetricRegistry();
+        tokenMetrics = new TokenMetrics(metricRegistry, realmProperties);
+        tokenMetrics.setup();
+    }
+
+    @Test
+    public void testTimersAreRegisteredUpFront() {
+        assertThat(metricRegistry.getTimers()).containsKeys(
+                "planb.provider.access_token.services.success",
+                "planb.provider.access_token.services.error.client",
+                "planb.provider.access_token.services.error.user",
+                "planb.provider.access_token.services.error.other",
+                "planb.provider.access_token.customers.success",
+                "planb.provider.access_token.unknown-realm.error.other");
+    }
+
+    @Test
+    public void testSameTimerWithAndWithoutSlash() {
+        assertThat(tokenMetrics.accessTokenSuccess("/services"))
+                .isSameAs(tokenMetrics.accessTokenSuccess("services"))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.services.success"));
+        assertThat(tokenMetrics.accessTokenSuccess("/customers"))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.customers.success"));
+    }
+
+    @Test
+    public void testErrorTimers() {
+        assertThat(tokenMetrics.accessTokenError("/services", new ClientRealmAuthenticationException(400, "msg", "invalid_client", "desc")))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.services.error.client"));
+        assertThat(tokenMetrics.accessTokenError("/services", UserRealmAuthenticationException.userNotFound("foo", "/services")))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.services.error.user"));
+        assertThat(tokenMetrics.accessTokenError("/services", new BadRequestException("msg", "invalid_request", "desc")))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.services.error.other"));
+        assertThat(tokenMetrics.accessTokenError("/services", new IllegalStateException()))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.services.error.other"));
+        assertThat(tokenMetrics.accessTokenError("/foo", new RealmNotFoundException("/foo")))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.unknown-realm.error.other"));
+    }
+
+    @Test
+    public void testUnconfiguredRealm() {
+        assertThat(tokenMetrics.accessTokenSuccess("/other"))
+                .isSameAs(metricRegistry.timer("planb.provider.access_token.other.success"));
+    }
+
+    @Test
+    public void testSigningTimers() {
+        assertThat(tokenMetrics.signing("ES256"))
+                .isSameAs(tokenMetrics.signing("ES256"))
+                .isSameAs(metricRegistry.timer("planb.provider.jwt.signing.ES256"));
+    }
+}
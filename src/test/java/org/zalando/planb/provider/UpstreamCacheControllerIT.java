@@ -0,0 +1,78 @@
+package org.zalando.planb.provider;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+import org.zalando.planb.provider.realms.UpstreamAuthenticationCache;
+import org.zalando.planb.provider.realms.UpstreamTokenResponse;
+
+import java.net.URI;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+import static org.springframework.http.RequestEntity.delete;
+
+@ActiveProfiles("it")
+@TestPropertySource(properties = {
+        "cache.upstream.enabled=true",
+        // separate application context, must not clash with the cached one
+        "management.port=0"})
+public class UpstreamCacheControllerIT extends AbstractOauthTest {
+
+    private static final Set<String> SCOPES = ImmutableSet.of("uid");
+
+    @Autowired
+    private UpstreamAuthenticationCache authenticationCache;
+
+    private void login(String username) {
+        authenticationCache.put("/employees", username, "pass", SCOPES, new UpstreamTokenResponse(username, 3600L));
+    }
+
+    private boolean isCached(String username) {
+        return authenticationCache.get("/employees", username, "pass", SCOPES).isPresent();
+    }
+
+    @Test
+    public void testPurgeUser() {
+        login("alice");
+        login("bob");
+
+        assertThat(getRestTemplate().exchange(delete(URI.create(getRawSyncBaseUri() + "/upstream-cache/employees/alice"))
+                .header(AUTHORIZATION, USER1_ACCESS_TOKEN).build(), Void.class).getStatusCode()).isEqualTo(OK);
+
+        assertThat(isCached("alice")).isFalse();
+        assertThat(isCached("bob")).isTrue();
+    }
+
+    @Test
+    public void testPurgeRealm() {
+        login("alice");
+        login("bob");
+
+        assertThat(getRestTemplate().exchange(delete(URI.create(getRawSyncBaseUri() + "/upstream-cache/employees"))
+                .header(AUTHORIZATION, USER1_ACCESS_TOKEN).build(), Void.class).getStatusCode()).isEqualTo(OK);
+
+        assertThat(isCached("alice")).isFalse();
+        assertThat(isCached("bob")).isFalse();
+    }
+
+    @Test
+    public void testPurgeUnauthorized() {
+        login("alice");
+        try {
+            getRestTemplate().exchange(delete(URI.create(getRawSyncBaseUri() + "/upstream-cache/employees"))
+                    .header(AUTHORIZATION, INVALID_ACCESS_TOKEN).build(), Void.class);
+            failBecauseExceptionWasNotThrown(HttpClientErrorException.class);
+        } catch (HttpClientErrorException e) {
+            assertThat(e.getStatusCode()).isEqualTo(UNAUTHORIZED);
+        }
+        assertThat(isCached("alice")).isTrue();
+    }
+}
@@ -0,0 +1,114 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class BCryptVerifierTest {
+
+    private MetricRegistry metricRegistry;
+    private BCryptVerifier verifier;
+    private ExecutorService callers;
+
+    @Before
+    public void setUp() {
+        final BCryptProperties props = new BCryptProperties();
+        props.setPoolSize(1);
+        props.setQueueSize(1);
+        metricRegistry = new MetricRegistry();
+        verifier = new BCryptVerifier(props, metricRegistry);
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+        verifier.shutdown();
+    }
+
+    @Test
+    public void testCheck() {
+        final String pwHash = BCrypt.hashpw("pass", BCrypt.gensalt(4));
+        assertThat(verifier.check("pass", pwHash)).isTrue();
+        assertThat(verifier.check("wrongpass", pwHash)).isFalse();
+        assertThat(metricRegistry.timer("planb.provider.bcrypt.wait").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCheckAsync() throws Exception {
+        final String pwHash = BCrypt.hashpw("pass", BCrypt.gensalt(4));
+        final ExecutorService completion = Executors.newSingleThreadExecutor(r -> new Thread(r, "completion"));
+        try {
+            final CompletableFuture<String> thread = verifier.checkAsync("pass", pwHash, completion)
+                    .thenApply(valid -> valid + " " + Thread.currentThread().getName());
+
+            assertThat(thread.get()).isEqualTo("true completion");
+            assertThat(verifier.checkAsync("wrongpass", pwHash, completion).get()).isFalse();
+        } finally {
+            completion.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncExceptionIsPropagated() throws Exception {
+        try {
+            verifier.checkAsync("pass", "invalid-hash", Runnable::run).get();
+            fail("should have failed");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExceptionIsPropagated() {
+        verifier.check("pass", "invalid-hash");
+    }
+
+    @Test
+    public void testRejectWhenSaturated() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        // occupy the single thread and the single queue slot
+        callers.submit(() -> verifier.execute(() -> {
+            running.countDown();
+            release.await();
+            return true;
+        }));
+        running.await();
+        callers.submit(() -> verifier.execute(() -> true));
+        while (metricRegistry.getGauges().get("planb.provider.bcrypt.queue").getValue().equals(0)) {
+            Thread.sleep(1);
+        }
+
+        try {
+            verifier.execute(() -> true);
+            fail("should have been rejected");
+        } catch (RejectedExecutionException e) {
+            assertThat(metricRegistry.meter("planb.provider.bcrypt.rejected").getCount()).isEqualTo(1);
+        }
+
+        try {
+            final CompletableFuture<Boolean> rejected = verifier.executeAsync(() -> true, Runnable::run);
+            assertThat(rejected.isCompletedExceptionally()).isTrue();
+            rejected.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+            assertThat(metricRegistry.meter("planb.provider.bcrypt.rejected").getCount()).isEqualTo(2);
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.zalando.planb.provider.realms;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.zalando.planb.provider.ClientData;
+import org.zalando.planb.provider.NotFoundException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.emptySet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class ClientManagedRealmTest {
+
+    private static final String SECRET = "secret";
+    private static final String SECRET_HASH = BCrypt.hashpw(SECRET, BCrypt.gensalt(4));
+
+    private final Map<String, ClientData> clients = new HashMap<>();
+
+    private final ClientManagedRealm realm = new ClientManagedRealm() {
+        @Override
+        public Optional<ClientData> get(String clientId) {
+            return Optional.ofNullable(clients.get(clientId));
+        }
+
+        @Override
+        public void update(String clientId, ClientData data) throws NotFoundException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(String clientId) throws NotFoundException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createOrReplace(String id, ClientData client) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void initialize(String realmName) {
+        }
+
+        @Override
+        public String getName() {
+            return "/myrealm";
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        clients.put("confidential", ClientData.builder()
+                .clientSecretHash(SECRET_HASH)
+                .confidential(true)
+                .scopes(ImmutableSet.of("uid", "read"))
+                .build());
+        clients.put("public", ClientData.builder()
+                .clientSecretHash(SECRET_HASH)
+                .confidential(false)
+                .scopes(ImmutableSet.of("uid"))
+                .build());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("exception expected");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testAuthenticateAsync() throws Exception {
+        realm.authenticateAsync("confidential", SECRET, ImmutableSet.of("read"), emptySet(), executor).get();
+        realm.authenticateAsync("public", "anything", ImmutableSet.of("uid"), emptySet(), executor).get();
+    }
+
+    @Test
+    public void testAuthenticateAsyncUnknownClient() throws Exception {
+        assertThat(failure(realm.authenticateAsync("unknown", SECRET, ImmutableSet.of("uid"), emptySet(), executor)))
+                .isInstanceOf(ClientRealmAuthenticationException.class)
+                .hasMessageContaining("unknown");
+    }
+
+    @Test
+    public void testAuthenticateAsyncWrongSecret() throws Exception {
+        assertThat(failure(realm.authenticateAsync("confidential", "wrong", ImmutableSet.of("uid"), emptySet(), executor)))
+                .isInstanceOf(ClientRealmAuthenticationException.class);
+    }
+
+    @Test
+    public void testAuthenticateAsyncMissingScopes() throws Exception {
+        assertThat(failure(realm.authenticateAsync("confidential", SECRET, ImmutableSet.of("write"), emptySet(), executor)))
+                .isInstanceOf(ClientRealmAuthorizationException.class);
+        assertThat(failure(realm.authenticateAsync("public", "anything", ImmutableSet.of("read"), emptySet(), executor)))
+                .isInstanceOf(ClientRealmAuthorizationException.class);
+    }
+}
@@ -0,0 +1,34 @@
+package org.zalando.planb.provider.realms;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CredentialDigestTest {
+
+    private final CredentialDigest credentialDigest = new CredentialDigest();
+
+    @Test
+    public void testSameCredentialsHaveTheSameKey() {
+        final CredentialDigest.Key key = credentialDigest.key("/services", "myclient", "secret", "hash");
+        assertThat(key).isEqualTo(credentialDigest.key("/services", "myclient", "secret", "hash"));
+        assertThat(key.getRealm()).isEqualTo("/services");
+        assertThat(key.getId()).isEqualTo("myclient");
+        assertThat(key.getDigest()).hasSize(32);
+    }
+
+    @Test
+    public void testDifferentCredentialsHaveDifferentKeys() {
+        final CredentialDigest.Key key = credentialDigest.key("/services", "myclient", "secret", "hash");
+        assertThat(key).isNotEqualTo(credentialDigest.key("/services", "myclient", "secret2", "hash"));
+        // the values are length prefixed, moving characters between them changes the key
+        assertThat(credentialDigest.key("/services", "myclient", "ab", "c"))
+                .isNotEqualTo(credentialDigest.key("/services", "myclient", "a", "bc"));
+    }
+
+    @Test
+    public void testEveryInstanceHasItsOwnKey() {
+        assertThat(new CredentialDigest().key("/services", "myclient", "secret").getDigest())
+                .isNotEqualTo(credentialDigest.key("/services", "myclient", "secret").getDigest());
+    }
+}
@@ -13,11 +13,13 @@ import org.zalando.planb.provider.AbstractSpringTest;
 import org.zalando.planb.provider.Main;
 
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.TEXT_XML_VALUE;
 
@@ -113,4 +115,34 @@ public class CustomerUserRealmIT extends AbstractSpringTest {
 
         customerUserRealm.authenticate(EMAIL, PASSWORD, newHashSet(UID), emptySet());
     }
+
+    @Test
+    public void testAuthenticateAsync() throws Exception {
+
+        stubFor(post(urlEqualTo(WS_CUSTOMER_SERVICE_URL))
+                .willReturn(aResponse()
+                        .withStatus(OK.value())
+                        .withHeader(ContentTypeHeader.KEY, TEXT_XML_VALUE)
+                        .withBody(SOAP_RESPONSE)));
+
+        customerUserRealm.initialize("/customers");
+        Map<String, String> authenticate = customerUserRealm.authenticateAsync(EMAIL, PASSWORD, newHashSet(UID), emptySet(), Runnable::run).get();
+        assertThat(authenticate.get(SUB)).isEqualTo(CUSTOMER_NUMBER);
+    }
+
+    @Test
+    public void testAsyncDependencyUnavailable() throws Exception {
+
+        stubFor(post(urlEqualTo(WS_CUSTOMER_SERVICE_URL))
+                .willReturn(aResponse()
+                        .withFault(Fault.EMPTY_RESPONSE)));
+
+        customerUserRealm.initialize("/customers");
+        try {
+            customerUserRealm.authenticateAsync(EMAIL, PASSWORD, newHashSet(UID), emptySet(), Runnable::run).get();
+            failBecauseExceptionWasNotThrown(ExecutionException.class);
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(HystrixRuntimeException.class);
+        }
+    }
 }
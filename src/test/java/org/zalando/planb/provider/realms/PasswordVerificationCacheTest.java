@@ -0,0 +1,89 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.zalando.planb.provider.CacheProperties;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PasswordVerificationCacheTest {
+
+    private static final String PASSWORD = "pass";
+    private static final String PASSWORD_HASH = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+
+    private MetricRegistry metricRegistry;
+    private PasswordVerificationCache cache;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        cache = new PasswordVerificationCache(new CacheProperties(), new BCryptVerifier(new BCryptProperties(), metricRegistry), metricRegistry);
+    }
+
+    @Test
+    public void testCachesSuccessfulVerification() {
+        assertThat(cache.check("/myrealm", "myuser", PASSWORD, PASSWORD_HASH)).isTrue();
+        assertThat(cache.check("/myrealm", "myuser", PASSWORD, PASSWORD_HASH)).isTrue();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(metricRegistry.meter("planb.provider.password_cache.miss").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("planb.provider.password_cache.hit").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCachesSuccessfulAsyncVerification() throws Exception {
+        assertThat(cache.checkAsync("/myrealm", "myuser", PASSWORD, PASSWORD_HASH, Runnable::run).get()).isTrue();
+
+        final CompletableFuture<Boolean> hit = cache.checkAsync("/myrealm", "myuser", PASSWORD, PASSWORD_HASH, Runnable::run);
+        assertThat(hit.isDone()).isTrue();
+        assertThat(hit.get()).isTrue();
+        assertThat(cache.checkAsync("/myrealm", "myuser", "wrongpass", PASSWORD_HASH, Runnable::run).get()).isFalse();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(metricRegistry.meter("planb.provider.password_cache.hit").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDoesNotCacheFailedVerification() {
+        assertThat(cache.check("/myrealm", "myuser", "wrongpass", PASSWORD_HASH)).isFalse();
+        assertThat(cache.check("/myrealm", "myuser", "wrongpass", PASSWORD_HASH)).isFalse();
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(metricRegistry.meter("planb.provider.password_cache.hit").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDifferentPasswordIsNotAHit() {
+        assertThat(cache.check("/myrealm", "myuser", PASSWORD, PASSWORD_HASH)).isTrue();
+        assertThat(cache.check("/myrealm", "myuser", PASSWORD + "x", PASSWORD_HASH)).isFalse();
+        assertThat(cache.check("/myrealm", "otheruser", PASSWORD, PASSWORD_HASH)).isTrue();
+
+        assertThat(metricRegistry.meter("planb.provider.password_cache.hit").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.check("/myrealm", "myuser", PASSWORD, PASSWORD_HASH);
+        cache.check("/myrealm", "otheruser", PASSWORD, PASSWORD_HASH);
+        cache.check("/otherrealm", "myuser", PASSWORD, PASSWORD_HASH);
+
+        cache.invalidate("/myrealm", "myuser");
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDisabled() {
+        final CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getPassword().setEnabled(false);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        cache = new PasswordVerificationCache(cacheProperties, new BCryptVerifier(new BCryptProperties(), metricRegistry), metricRegistry);
+
+        assertThat(cache.check("/myrealm", "myuser", PASSWORD, PASSWORD_HASH)).isTrue();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}
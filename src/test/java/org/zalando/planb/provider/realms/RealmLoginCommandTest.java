@@ -0,0 +1,115 @@
+package org.zalando.planb.provider.realms;
+
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixObservableCommand;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class RealmLoginCommandTest {
+
+    private static final Map<String, String> CLAIMS = singletonMap("sub", "myuid");
+
+    // Hystrix keeps circuit breakers and semaphores per command key, every test gets its own
+    private static HystrixObservableCommand.Setter setter() {
+        return RealmLoginCommand.setter(UpstreamUserRealm.class, "/test-" + UUID.randomUUID());
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("exception expected");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testSuccess() throws Exception {
+        assertThat(RealmLoginCommand.execute(setter(), () -> CompletableFuture.completedFuture(CLAIMS)).get())
+                .isEqualTo(CLAIMS);
+    }
+
+    @Test
+    public void testFailedLoginIsPassedOn() throws Exception {
+        final UserRealmAuthenticationException error = new UserRealmAuthenticationException("User myuser login failed");
+        final CompletableFuture<Map<String, String>> login = new CompletableFuture<>();
+        login.completeExceptionally(error);
+
+        assertThat(failure(RealmLoginCommand.execute(setter(), () -> login))).isSameAs(error);
+    }
+
+    @Test
+    public void testDependencyFailure() throws Exception {
+        final CompletableFuture<Map<String, String>> result = RealmLoginCommand.execute(setter(), () -> {
+            throw new IllegalStateException("connection refused");
+        });
+
+        assertThat(failure(result)).isInstanceOf(HystrixRuntimeException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testConcurrentLoginsAreLimited() throws Exception {
+        final HystrixObservableCommand.Setter setter = setter().andCommandPropertiesDefaults(
+                HystrixCommandProperties.Setter().withExecutionIsolationSemaphoreMaxConcurrentRequests(1));
+        final CompletableFuture<Map<String, String>> pending = new CompletableFuture<>();
+
+        final CompletableFuture<Map<String, String>> first = RealmLoginCommand.execute(setter, () -> pending);
+        final CompletableFuture<Map<String, String>> second = RealmLoginCommand.execute(setter, () -> pending);
+
+        final Throwable rejected = failure(second);
+        assertThat(rejected).isInstanceOf(HystrixRuntimeException.class);
+        assertThat(((HystrixRuntimeException) rejected).getFailureType())
+                .isEqualTo(HystrixRuntimeException.FailureType.REJECTED_SEMAPHORE_EXECUTION);
+
+        pending.complete(CLAIMS);
+        assertThat(first.get()).isEqualTo(CLAIMS);
+
+        // the permit was released again
+        assertThat(RealmLoginCommand.execute(setter, () -> CompletableFuture.completedFuture(CLAIMS)).get())
+                .isEqualTo(CLAIMS);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final HystrixObservableCommand.Setter setter = setter().andCommandPropertiesDefaults(
+                HystrixCommandProperties.Setter().withExecutionTimeoutInMilliseconds(50));
+
+        final Throwable timedOut = failure(RealmLoginCommand.execute(setter, CompletableFuture::new));
+        assertThat(timedOut).isInstanceOf(HystrixRuntimeException.class);
+        assertThat(((HystrixRuntimeException) timedOut).getFailureType())
+                .isEqualTo(HystrixRuntimeException.FailureType.TIMEOUT);
+    }
+
+    @Test
+    public void testTimedOutLoginsCountUntilTheyComplete() throws Exception {
+        final HystrixObservableCommand.Setter setter = setter().andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                .withExecutionTimeoutInMilliseconds(50)
+                .withExecutionIsolationSemaphoreMaxConcurrentRequests(1));
+        final CompletableFuture<Map<String, String>> pending = new CompletableFuture<>();
+
+        final Throwable timedOut = failure(RealmLoginCommand.execute(setter, () -> pending));
+        assertThat(((HystrixRuntimeException) timedOut).getFailureType())
+                .isEqualTo(HystrixRuntimeException.FailureType.TIMEOUT);
+
+        // Hystrix has released its semaphore, but the login still blocks its thread
+        final Throwable rejected = failure(RealmLoginCommand.execute(setter, () -> CompletableFuture.completedFuture(CLAIMS)));
+        assertThat(rejected).isInstanceOf(HystrixRuntimeException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+
+        pending.complete(CLAIMS);
+        assertThat(RealmLoginCommand.execute(setter, () -> CompletableFuture.completedFuture(CLAIMS)).get())
+                .isEqualTo(CLAIMS);
+    }
+}
@@ -0,0 +1,81 @@
+package org.zalando.planb.provider.realms;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.planb.provider.CacheProperties;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UpstreamAuthenticationCacheTest {
+
+    private static final Set<String> SCOPES = ImmutableSet.of("uid");
+    private static final UpstreamTokenResponse TOKEN_INFO = new UpstreamTokenResponse("myuid", 3600L);
+
+    private MetricRegistry metricRegistry;
+    private UpstreamAuthenticationCache cache;
+
+    @Before
+    public void setUp() {
+        final CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getUpstream().setEnabled(true);
+        metricRegistry = new MetricRegistry();
+        cache = new UpstreamAuthenticationCache(cacheProperties, metricRegistry);
+    }
+
+    @Test
+    public void testCachesSuccessfulLogin() {
+        assertThat(cache.get("/employees", "myuser", "pass", SCOPES)).isEmpty();
+        cache.put("/employees", "myuser", "pass", SCOPES, TOKEN_INFO);
+
+        assertThat(cache.get("/employees", "myuser", "pass", SCOPES)).containsSame(TOKEN_INFO);
+        assertThat(metricRegistry.meter("planb.provider.upstream_cache.miss").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("planb.provider.upstream_cache.hit").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDifferentCredentialsOrScopesAreNotAHit() {
+        cache.put("/employees", "myuser", "pass", SCOPES, TOKEN_INFO);
+
+        assertThat(cache.get("/employees", "myuser", "passx", SCOPES)).isEmpty();
+        assertThat(cache.get("/employees", "otheruser", "pass", SCOPES)).isEmpty();
+        assertThat(cache.get("/employees", "myuser", "pass", ImmutableSet.of("uid", "cn"))).isEmpty();
+        assertThat(cache.get("/otherrealm", "myuser", "pass", SCOPES)).isEmpty();
+        assertThat(metricRegistry.meter("planb.provider.upstream_cache.hit").getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpiredTokenIsNotCached() {
+        cache.put("/employees", "myuser", "pass", SCOPES, new UpstreamTokenResponse("myuid", 0L));
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get("/employees", "myuser", "pass", SCOPES)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put("/employees", "myuser", "pass", SCOPES, TOKEN_INFO);
+        cache.put("/employees", "otheruser", "pass", SCOPES, TOKEN_INFO);
+        cache.put("/otherrealm", "myuser", "pass", SCOPES, TOKEN_INFO);
+
+        cache.invalidate("/employees", "myuser");
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.invalidate("/employees");
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("/otherrealm", "myuser", "pass", SCOPES)).isPresent();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        cache = new UpstreamAuthenticationCache(new CacheProperties(), new MetricRegistry());
+        cache.put("/employees", "myuser", "pass", SCOPES, TOKEN_INFO);
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get("/employees", "myuser", "pass", SCOPES)).isEmpty();
+    }
+}
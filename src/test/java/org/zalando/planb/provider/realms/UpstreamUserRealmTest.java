@@ -1,13 +1,23 @@
 package org.zalando.planb.provider.realms;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.collect.ImmutableSet;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.zalando.planb.provider.CacheProperties;
 import org.zalando.planb.provider.RestException;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +44,12 @@ public class UpstreamUserRealmTest {
                 .withBody("{\"uid\":\"myuid\"}")));
         stubFor(get(urlPathEqualTo("/tokeninfo-invalid")).willReturn(aResponse()
                 .withStatus(401)));
+        stubFor(get(urlPathEqualTo("/token-error")).willReturn(aResponse()
+                .withStatus(500)));
+        stubFor(get(urlPathEqualTo("/token-slow")).willReturn(aResponse()
+                .withStatus(200)
+                .withFixedDelay(500)
+                .withBody("mytok\n")));
     }
 
     @Test
@@ -109,4 +125,128 @@ public class UpstreamUserRealmTest {
             assertThat(ex.getMessage()).isEqualTo("User myuser login failed");
         }
     }
+
+    @Test
+    public void testConnectionIsReused() {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token");
+        props.setTokenInfoUrl("http://localhost:" + wiremockPort + "/tokeninfo");
+        MetricRegistry metricRegistry = new MetricRegistry();
+        UpstreamUserRealm realm = new UpstreamUserRealm(props, metricRegistry, new UpstreamAuthenticationCache(new CacheProperties(), metricRegistry),
+                new LoginCoalescing(2000, metricRegistry));
+        realm.initialize("/employees");
+
+        for (int i = 0; i < 3; i++) {
+            realm.authenticate("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of("myscope"));
+        }
+
+        final Map<String, Gauge> gauges = metricRegistry.getGauges();
+        assertThat(gauges.get("planb.provider.upstream_pool.employees.leased").getValue()).isEqualTo(0);
+        assertThat(gauges.get("planb.provider.upstream_pool.employees.pending").getValue()).isEqualTo(0);
+        // token and token info are served by the same host, so all calls went through one kept-alive connection
+        assertThat(gauges.get("planb.provider.upstream_pool.employees.available").getValue()).isEqualTo(1);
+        assertThat(gauges.get("planb.provider.upstream_pool.employees.max").getValue()).isEqualTo(props.getMaxConnections());
+    }
+
+    @Test
+    public void testAuthenticateWithCache() {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token");
+        props.setTokenInfoUrl("http://localhost:" + wiremockPort + "/tokeninfo");
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getUpstream().setEnabled(true);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        UpstreamUserRealm realm = new UpstreamUserRealm(props, metricRegistry, new UpstreamAuthenticationCache(cacheProperties, metricRegistry),
+                new LoginCoalescing(2000, metricRegistry));
+        realm.initialize("/employees");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(realm.authenticate("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of("myscope")))
+                    .containsEntry("sub", "myuid");
+        }
+        assertThat(realm.authenticate("myuser", "otherpass", ImmutableSet.of("myscope"), ImmutableSet.of("myscope")))
+                .containsEntry("sub", "myuid");
+
+        verify(2, getRequestedFor(urlMatching("/token\\?.*")));
+        verify(2, getRequestedFor(urlEqualTo("/tokeninfo")));
+        assertThat(metricRegistry.meter("planb.provider.upstream_cache.hit").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAuthenticateAsyncWrongCredentials() throws Exception {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token-invalid");
+        props.setTokenInfoUrl("http://localhost:" + wiremockPort + "/tokeninfo");
+        UpstreamUserRealm realm = new UpstreamUserRealm(props);
+        realm.initialize("/async-wrong-credentials");
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            realm.authenticateAsync("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of(), executor).get();
+            fail("Authenticate should have thrown exception");
+        } catch (ExecutionException e) {
+            // failed logins are no dependency failures, they are passed on as they are
+            assertThat(e.getCause()).isInstanceOf(UserRealmAuthenticationException.class)
+                    .hasMessage("User myuser login failed");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAuthenticateAsyncGoesThroughHystrix() throws Exception {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token-error");
+        props.setTokenInfoUrl("http://localhost:" + wiremockPort + "/tokeninfo");
+        UpstreamUserRealm realm = new UpstreamUserRealm(props);
+        realm.initialize("/async-dependency-failure");
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            realm.authenticateAsync("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of(), executor).get();
+            fail("Authenticate should have thrown exception");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(HystrixRuntimeException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = ResourceAccessException.class)
+    public void testReadTimeout() {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token-slow");
+        props.setReadTimeout(Duration.ofMillis(100));
+        UpstreamUserRealm realm = new UpstreamUserRealm(props);
+
+        realm.getAccessToken("myuser", "mypass", ImmutableSet.of("myscope"));
+    }
+
+    @Test
+    public void testConcurrentLoginsAreCoalesced() throws Exception {
+        UpstreamRealmProperties props = new UpstreamRealmProperties();
+        props.setTokenServiceUrl("http://localhost:" + wiremockPort + "/token-slow");
+        props.setTokenInfoUrl("http://localhost:" + wiremockPort + "/tokeninfo");
+        MetricRegistry metricRegistry = new MetricRegistry();
+        UpstreamUserRealm realm = new UpstreamUserRealm(props, metricRegistry,
+                new UpstreamAuthenticationCache(new CacheProperties(), metricRegistry),
+                new LoginCoalescing(5000, metricRegistry));
+        realm.initialize("/myrealm");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final CompletableFuture<Map<String, String>> first = realm.authenticateAsync("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of(), executor);
+            final CompletableFuture<Map<String, String>> second = realm.authenticateAsync("myuser", "mypass", ImmutableSet.of("myscope"), ImmutableSet.of(), executor);
+            final CompletableFuture<Map<String, String>> otherScopes = realm.authenticateAsync("myuser", "mypass", ImmutableSet.of("uid"), ImmutableSet.of(), executor);
+
+            assertThat(first.get()).containsEntry("sub", "myuid");
+            assertThat(second.get()).containsEntry("sub", "myuid");
+            assertThat(otherScopes.get()).containsEntry("sub", "myuid");
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(2, getRequestedFor(urlMatching("/token-slow\\?.*")));
+        assertThat(metricRegistry.meter("planb.provider.login_coalescing.myrealm.coalesced").getCount()).isEqualTo(1);
+    }
 }
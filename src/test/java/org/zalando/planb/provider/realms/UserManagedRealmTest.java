@@ -0,0 +1,120 @@
+package org.zalando.planb.provider.realms;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.zalando.planb.provider.NotFoundException;
+import org.zalando.planb.provider.UserData;
+import org.zalando.planb.provider.UserPasswordHash;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.emptySet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class UserManagedRealmTest {
+
+    private final Map<String, UserData> users = new HashMap<>();
+
+    private final UserManagedRealm realm = new UserManagedRealm() {
+        @Override
+        public Optional<UserData> get(String username) {
+            return Optional.ofNullable(users.get(username));
+        }
+
+        @Override
+        public void update(String username, UserData data) throws NotFoundException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(String username) throws NotFoundException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createOrReplace(String username, UserData user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addPassword(String username, UserPasswordHash password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void initialize(String realmName) {
+        }
+
+        @Override
+        public String getName() {
+            return "/myrealm";
+        }
+    };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        users.put("myuser", UserData.builder()
+                .passwordHashes(ImmutableSet.of(
+                        new UserPasswordHash(BCrypt.hashpw("old", BCrypt.gensalt(4))),
+                        new UserPasswordHash(BCrypt.hashpw("new", BCrypt.gensalt(4)))))
+                .scopes(ImmutableMap.of("uid", "true", "read", "true"))
+                .build());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("exception expected");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testAuthenticateAsyncWithAnyPassword() throws Exception {
+        assertThat(realm.authenticateAsync("myuser", "old", ImmutableSet.of("read"), emptySet(), executor).get())
+                .containsEntry("sub", "myuser");
+        assertThat(realm.authenticateAsync("myuser", "new", ImmutableSet.of("uid"), emptySet(), executor).get())
+                .containsEntry("sub", "myuser");
+    }
+
+    @Test
+    public void testAuthenticateAsyncUnknownUser() throws Exception {
+        assertThat(failure(realm.authenticateAsync("unknown", "old", ImmutableSet.of("uid"), emptySet(), executor)))
+                .isInstanceOf(UserRealmAuthenticationException.class);
+        assertThat(failure(realm.authenticateAsync("unknown", Optional.empty(), "old", ImmutableSet.of("uid"), emptySet(), executor)))
+                .isInstanceOf(UserRealmAuthenticationException.class);
+    }
+
+    @Test
+    public void testAuthenticateAsyncWrongPassword() throws Exception {
+        assertThat(failure(realm.authenticateAsync("myuser", "wrong", ImmutableSet.of("uid"), emptySet(), executor)))
+                .isInstanceOf(UserRealmAuthenticationException.class);
+    }
+
+    @Test
+    public void testAuthenticateAsyncMissingScopes() throws Exception {
+        assertThat(failure(realm.authenticateAsync("myuser", "new", ImmutableSet.of("write"), emptySet(), executor)))
+                .isInstanceOf(UserRealmAuthorizationException.class);
+    }
+}